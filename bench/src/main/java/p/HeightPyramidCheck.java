@@ -0,0 +1,99 @@
+package p;
+
+import java.util.SplittableRandom;
+
+/**
+ * Check of the segment queries of the min/max pyramid of the land ({@link HeightPyramid#findImpact(float, float, float, float, float, float, float[])}):
+ * the impact points of random segments over a generated land are compared to the ones found by testing every cell
+ * near the segment (brute force).<br>
+ * Short (bullet) and long segments are checked, also vertical ones, ones parallel to the axes, ones starting on the edges
+ * of the cells and of the blocks of the pyramid, and ones reaching out of the map.<br>
+ * Run it with <code>java -cp target/benchmarks.jar p.HeightPyramidCheck</code>, the exit status is 1 if the check fails.
+ *
+ * @author Andras Belicza
+ */
+public class HeightPyramidCheck {
+
+	/** Number of the checked segments.                                           */
+	private static final int   SEGMENTS  = 200000;
+	/** Maximum difference of the parameters of the impact points found.          */
+	private static final float TOLERANCE = 1e-4f;
+
+
+	/**
+	 * Runs the check.
+	 * @param arguments not used
+	 */
+	public static void main( final String[] arguments ) {
+		final Model model = new Model();
+		model.newGame( 2005l );
+		final HeightMap        land   = model.land;
+		final int              size   = land.size;
+		final SplittableRandom random = new SplittableRandom( 1 );
+		final float[]          t      = new float[ 2 ];
+
+		int hits = 0, failures = 0;
+		for ( int i = 0; i < SEGMENTS; i++ ) {
+			float x0 = (float) random.nextDouble( -20.0, size + 20.0 ), y0 = (float) random.nextDouble( -20.0, size + 20.0 );
+			if ( i % 3 == 0 ) // On the edge of a block of the pyramid
+				x0 = (int) x0 >> HeightPyramid.BASE_SHIFT + i % 4 << HeightPyramid.BASE_SHIFT + i % 4;
+			if ( i % 13 == 0 ) // On the edge of a cell
+				y0 = (int) y0;
+			final float z0     = (float) random.nextDouble( -800.0, 2400.0 );
+			final float length = i % 2 == 0 ? 50.0f : 400.0f;
+			float x1 = x0 + (float) random.nextDouble( -length, length ), y1 = y0 + (float) random.nextDouble( -length, length );
+			final float z1     = z0 + (float) random.nextDouble( -600.0, 600.0 );
+			if ( i % 5 == 0 ) // Parallel to the y axis (vertical if it's parallel to the x axis too)
+				x1 = x0;
+			if ( i % 7 == 0 ) // Parallel to the x axis
+				y1 = y0;
+			if ( i % 11 == 0 ) // Ends on the edge of a cell
+				x1 = (int) x1;
+
+			final float expected = findImpactBruteForce( land, x0, y0, z0, x1, y1, z1, t );
+			final float found    = model.landPyramid.findImpact( x0, y0, z0, x1, y1, z1, t );
+			if ( expected != Float.POSITIVE_INFINITY )
+				hits++;
+			final boolean ok = expected == Float.POSITIVE_INFINITY || found == Float.POSITIVE_INFINITY ? expected == found : Math.abs( expected - found ) <= TOLERANCE;
+			if ( !ok && failures++ < 10 )
+				System.out.println( "Segment (" + x0 + ", " + y0 + ", " + z0 + ") - (" + x1 + ", " + y1 + ", " + z1 + "): impact at " + found + " instead of " + expected );
+		}
+
+		System.out.println( SEGMENTS + " segments checked (" + hits + " hitting the land), " + failures + " failed." );
+		if ( failures > 0 )
+			System.exit( 1 );
+	}
+
+	/**
+	 * Finds the first point of a segment which is below the land by testing every cell near the segment.
+	 * @param land the land
+	 * @param x0   x coordinate of the start point of the segment
+	 * @param y0   y coordinate of the start point of the segment
+	 * @param z0   height of the start point of the segment
+	 * @param x1   x coordinate of the end point of the segment
+	 * @param y1   y coordinate of the end point of the segment
+	 * @param z1   height of the end point of the segment
+	 * @param t    array to clip the segment into (reused)
+	 * @return the parameter of the impact point (0 at the start point, 1 at the end point), or positive infinity if the segment is clear of the land
+	 */
+	private static float findImpactBruteForce( final HeightMap land, final float x0, final float y0, final float z0, final float x1, final float y1, final float z1, final float[] t ) {
+		final float dz     = z1 - z0;
+		float       impact = Float.POSITIVE_INFINITY;
+		for ( int y = Math.max( 0, (int) Math.floor( Math.min( y0, y1 ) ) - 1 ); y <= Math.min( land.size - 1, Math.max( y0, y1 ) + 1 ); y++ )
+			for ( int x = Math.max( 0, (int) Math.floor( Math.min( x0, x1 ) ) - 1 ); x <= Math.min( land.size - 1, Math.max( x0, x1 ) + 1 ); x++ ) {
+				// The cell is the unit square [x, x+1) x [y, y+1): a segment only touching its right or bottom side doesn't cross it
+				if ( !HeightPyramid.clip( x, y, x + 1, y + 1, x0, y0, x1, y1, t ) )
+					continue;
+				final double tMiddle = ( t[ 0 ] + t[ 1 ] ) / 2.0;
+				if ( Math.floor( x0 + ( (double) x1 - x0 ) * tMiddle ) != x || Math.floor( y0 + ( (double) y1 - y0 ) * tMiddle ) != y )
+					continue;
+				final float height = land.get( x, y );
+				if ( z0 + dz * t[ 0 ] < height )
+					impact = Math.min( impact, t[ 0 ] );
+				else if ( z0 + dz * t[ 1 ] < height )
+					impact = Math.min( impact, Math.max( t[ 0 ], ( height - z0 ) / dz ) );
+			}
+		return impact;
+	}
+
+}
@@ -0,0 +1,63 @@
+package p;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the land generation: {@link Model#generateLand(SplittableRandom)},
+ * and of building the min/max pyramid of the land: {@link HeightPyramid#build(HeightMap)}.
+ *
+ * @author Andras Belicza
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( value = 1, jvmArgsAppend = "-Djava.awt.headless=true" )
+public class LandBenchmark {
+
+	/** The model whose land is generated. */
+	private final Model model = new Model();
+
+	/**
+	 * Generates the land whose pyramid is built.
+	 */
+	@Setup( Level.Trial )
+	public void setupLand() {
+		model.generateLand( new SplittableRandom( 2005l ) );
+	}
+
+	/**
+	 * Generates a new land.
+	 * @return the model (so the generated land is not dead code)
+	 */
+	@Benchmark
+	public Model generateLand() {
+		model.generateLand( new SplittableRandom( 2005l ) );
+		return model;
+	}
+
+	/**
+	 * Builds the min/max pyramid of the land.
+	 * @return the pyramid (so it is not dead code)
+	 */
+	@Benchmark
+	public HeightPyramid buildLandPyramid() {
+		model.landPyramid.build( model.land );
+		return model.landPyramid;
+	}
+
+}
@@ -0,0 +1,226 @@
+package p;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.util.SplittableRandom;
+
+/**
+ * Check of the lockstep network game ({@link Lockstep}): two machines (threads of this process) play games
+ * with random control keys over the loopback network, directly and through a proxy losing 30% of the packets,
+ * and the models of the two machines must be the same at the end of every game.
+ * The second machine is late in the middle of a game.<br>
+ * A machine with another setup of the game must refuse to play.<br>
+ * Run it with <code>java -cp target/benchmarks.jar p.LockstepCheck</code>, the exit status is 1 if a check fails.
+ *
+ * @author Andras Belicza
+ */
+public class LockstepCheck {
+
+	/** Number of the games played in a check.                        */
+	private static final int GAMES        = 3;
+	/** Maximum number of the steps of a game.                        */
+	private static final int MAX_TICKS    = 3000;
+	/** Local UDP port of the first machine (the second one uses the next one). */
+	private static final int PORT         = 47000;
+	/** UDP port of the proxy for the first machine (the second one uses the next one). */
+	private static final int PROXY_PORT   = 47100;
+	/** Percentage of the packets lost by the proxy.                   */
+	private static final int LOSS_PERCENT = 30;
+	/** Time limit of a check in milliseconds.                         */
+	private static final int TIME_LIMIT   = 120000;
+
+
+	/**
+	 * Runs the checks.
+	 * @param arguments not used
+	 * @throws Exception if a check can't be run
+	 */
+	public static void main( final String[] arguments ) throws Exception {
+		boolean ok = checkGames( "loopback", false );
+		ok &= checkGames( "packet loss", true );
+		ok &= checkSetupMismatch();
+
+		System.out.println( ok ? "All checks passed." : "Some checks FAILED!" );
+		if ( !ok )
+			System.exit( 1 );
+	}
+
+	/**
+	 * Plays the games on the two machines and compares their models at the end of the games.
+	 * @param name       name of the check
+	 * @param packetLoss tells if the packets go through the proxy losing some of them
+	 * @return true if the check passed
+	 * @throws Exception if the check can't be run
+	 */
+	private static boolean checkGames( final String name, final boolean packetLoss ) throws Exception {
+		final DatagramSocket[] proxySockets = packetLoss ? startProxy() : null;
+
+		final Lockstep[]  locksteps = new Lockstep[ 2 ];
+		final long[][]    checksums = new long[ 2 ][ GAMES ];
+		final Exception[] failures  = new Exception[ 2 ];
+		final Thread[]    machines  = new Thread[ 2 ];
+		for ( int i = 0; i < 2; i++ ) {
+			final int me = i;
+			locksteps[ me ] = new Lockstep( PORT + me, new InetSocketAddress( "127.0.0.1", packetLoss ? PROXY_PORT + me : PORT + 1 - me ), me, 2,
+					Lockstep.getSetup( new Model() ) );
+			machines[ me ] = new Thread( () -> {
+				try {
+					play( locksteps[ me ], checksums[ me ] );
+				} catch ( final Exception e ) {
+					failures[ me ] = e;
+				}
+			} );
+			machines[ me ].start();
+		}
+		finish( machines, locksteps );
+		if ( proxySockets != null )
+			for ( final DatagramSocket socket : proxySockets )
+				socket.close();
+
+		boolean ok = true;
+		for ( int i = 0; i < 2; i++ )
+			if ( failures[ i ] != null ) {
+				System.out.println( name + ": machine " + ( i + 1 ) + " failed: " + failures[ i ] );
+				ok = false;
+			}
+		for ( int game = 0; ok && game < GAMES; game++ )
+			if ( checksums[ 0 ][ game ] != checksums[ 1 ][ game ] ) {
+				System.out.println( name + ": the machines are out of sync in game " + ( game + 1 ) + "!" );
+				ok = false;
+			}
+		System.out.println( name + ": " + ( ok ? "OK" : "FAILED" ) );
+		return ok;
+	}
+
+	/**
+	 * Plays the games on a machine.
+	 * @param lockstep  the lockstep network game of the machine
+	 * @param checksums array to store the checksums of the models at the end of the games into
+	 * @throws IOException if the network fails
+	 */
+	private static void play( final Lockstep lockstep, final long[] checksums ) throws IOException {
+		final GameSimulation   simulation = new GameSimulation();
+		final SplittableRandom random     = new SplittableRandom( lockstep.localPlayer * 77 );
+		final boolean[][]      keyStates  = new boolean[ simulation.model.players.length ][ GameSimulation.KEYS_COUNT ];
+		final boolean[]        localKeys  = new boolean[ GameSimulation.KEYS_COUNT ];
+
+		for ( int game = 0; game < GAMES; game++ ) {
+			simulation.newGame( lockstep.newGame( null ) );
+			int stepsAfterGameOver = 0;
+			while ( true ) {
+				final int tick = (int) simulation.getTick();
+				for ( int i = 0; i < localKeys.length; i++ )
+					localKeys[ i ] = random.nextInt( 3 ) == 0;
+				// The second machine is late in the middle of the second game
+				if ( lockstep.localPlayer == 1 && game == 1 && tick == 50 )
+					try {
+						Thread.sleep( 300 );
+					} catch ( final InterruptedException ie ) {
+						Thread.currentThread().interrupt();
+					}
+				final int remoteKeys = lockstep.exchange( tick, GameSimulation.packKeys( localKeys ) );
+				if ( remoteKeys < 0 )
+					break; // The other machine has started the next game
+				GameSimulation.unpackKeys( lockstep.getLocalInput( tick ), keyStates[ lockstep.localPlayer ] );
+				GameSimulation.unpackKeys( remoteKeys, keyStates[ 1 - lockstep.localPlayer ] );
+				simulation.step( keyStates );
+				if ( simulation.isGameOver() && ++stepsAfterGameOver > 100 || tick > MAX_TICKS )
+					break;
+			}
+			checksums[ game ] = simulation.model.checksum();
+		}
+	}
+
+	/**
+	 * Checks that the machines refuse to play if the other machine has another setup of the game (other number of players).
+	 * @return true if the check passed
+	 * @throws Exception if the check can't be run
+	 */
+	private static boolean checkSetupMismatch() throws Exception {
+		final Lockstep[]    locksteps = new Lockstep[ 2 ];
+		final IOException[] failures  = new IOException[ 2 ];
+		final Thread[]      machines  = new Thread[ 2 ];
+		for ( int i = 0; i < 2; i++ ) {
+			final int me = i;
+			locksteps[ me ] = new Lockstep( PORT + me, new InetSocketAddress( "127.0.0.1", PORT + 1 - me ), me, 2,
+					Lockstep.getSetup( new Model( 2 + 2 * me, 2 ) ) );
+			machines[ me ] = new Thread( () -> {
+				try {
+					locksteps[ me ].newGame( null );
+					for ( int tick = 0; tick < MAX_TICKS; tick++ )
+						locksteps[ me ].exchange( tick, 0 );
+				} catch ( final IOException ie ) {
+					failures[ me ] = ie;
+				}
+			} );
+			machines[ me ].start();
+		}
+		// The machine refusing to play (the one receiving a packet first) doesn't answer any more,
+		// the other one is stopped by closing its socket
+		final long deadline = System.currentTimeMillis() + TIME_LIMIT;
+		while ( machines[ 0 ].isAlive() && machines[ 1 ].isAlive() && System.currentTimeMillis() < deadline )
+			Thread.sleep( 10 );
+		for ( int i = 0; i < 2; i++ ) {
+			locksteps[ i ].close();
+			machines[ i ].join();
+		}
+
+		for ( final IOException failure : failures )
+			if ( failure != null && !( failure instanceof SocketException ) && failure.getMessage().contains( "another setup" ) ) {
+				System.out.println( "setup mismatch: OK (" + failure.getMessage() + ")" );
+				return true;
+			}
+		System.out.println( "setup mismatch: FAILED, the machines didn't refuse to play" );
+		return false;
+	}
+
+	/**
+	 * Waits for the machines to finish (at most for the time limit), and closes their sockets.
+	 * @param machines  the threads of the machines
+	 * @param locksteps the lockstep network games of the machines
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	private static void finish( final Thread[] machines, final Lockstep[] locksteps ) throws InterruptedException {
+		final long deadline = System.currentTimeMillis() + TIME_LIMIT;
+		for ( final Thread machine : machines )
+			machine.join( Math.max( 1, deadline - System.currentTimeMillis() ) );
+		for ( int i = 0; i < 2; i++ ) {
+			locksteps[ i ].close();
+			machines[ i ].join();
+		}
+	}
+
+	/**
+	 * Starts the proxy between the machines which loses some of the packets.<br>
+	 * The packets of machine <code>i</code> arrive to port <code>PROXY_PORT + i</code>, and are sent on to the other machine.
+	 * @return the sockets of the proxy (closing them stops the proxy)
+	 * @throws SocketException if the ports of the proxy cannot be opened
+	 */
+	private static DatagramSocket[] startProxy() throws SocketException {
+		final DatagramSocket[] sockets = { new DatagramSocket( PROXY_PORT ), new DatagramSocket( PROXY_PORT + 1 ) };
+		for ( int i = 0; i < 2; i++ ) {
+			final int    from  = i;
+			final Thread proxy = new Thread( () -> {
+				final SplittableRandom random = new SplittableRandom( from );
+				final byte[]           buffer = new byte[ 2048 ];
+				try {
+					while ( true ) {
+						final DatagramPacket packet = new DatagramPacket( buffer, buffer.length );
+						sockets[ from ].receive( packet );
+						if ( random.nextInt( 100 ) >= LOSS_PERCENT )
+							sockets[ 1 - from ].send( new DatagramPacket( buffer, packet.getLength(), new InetSocketAddress( "127.0.0.1", PORT + 1 - from ) ) );
+					}
+				} catch ( final IOException ie ) {
+					// The proxy is stopped
+				}
+			} );
+			proxy.setDaemon( true );
+			proxy.start();
+		}
+		return sockets;
+	}
+
+}
@@ -0,0 +1,77 @@
+package p;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static p.MovingObject.BOUNDARIES;
+
+/**
+ * Benchmark of the rocket guidance ({@link RocketGuidance#steer(ShotPool, float[], float[], float[])}):
+ * steering 10,000 rockets (and a quarter as many bullets among them) with the scalar and with the vectorized implementation.<br>
+ * The rockets are not moved, only steered, so they keep turning towards (or heading straight at) their targets.
+ *
+ * @author Andras Belicza
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector" )
+public class RocketGuidanceBenchmark {
+
+	/** Implementation of the guidance: scalar or vector. */
+	@Param( { "scalar", "vector" } )
+	public String implementation;
+
+	/** The guidance to be benchmarked.                   */
+	private RocketGuidance guidance;
+	/** The shots to be steered.                           */
+	private final ShotPool shots    = new ShotPool( 12500 );
+	/** X coordinates of the targets.                     */
+	private final float[]  targetXs = { BOUNDARIES[ 0 ] / 3.0f, BOUNDARIES[ 0 ] * 2.0f / 3.0f };
+	/** Y coordinates of the targets.                     */
+	private final float[]  targetYs = { BOUNDARIES[ 1 ] / 3.0f, BOUNDARIES[ 1 ] * 2.0f / 3.0f };
+	/** Heights of the targets.                            */
+	private final float[]  targetZs = { BOUNDARIES[ 2 ] / 2.0f, BOUNDARIES[ 2 ] / 2.0f };
+
+	/**
+	 * Creates the guidance and the shots, flying in random directions all over the land.
+	 */
+	@Setup( Level.Trial )
+	public void setupShots() {
+		guidance = implementation.equals( "vector" ) ? new VectorRocketGuidance() : new RocketGuidance();
+
+		final SplittableRandom random = new SplittableRandom( 2005l );
+		for ( int i = 0; i < 12500; i++ ) {
+			final double direction = random.nextDouble( 2.0 * Math.PI );
+			shots.add( i % 5 == 4 ? ShotPool.BULLET : ShotPool.ROCKET, (float) random.nextDouble( BOUNDARIES[ 0 ] ), (float) random.nextDouble( BOUNDARIES[ 1 ] ),
+					(float) random.nextDouble( BOUNDARIES[ 2 ] ), GameSimulation.ROCKET_VELOCITY * (float) Math.cos( direction ),
+					GameSimulation.ROCKET_VELOCITY * (float) Math.sin( direction ), 0.0f, i % 2 );
+		}
+	}
+
+	/**
+	 * Steers the rockets.
+	 * @return the shots (so the steering is not dead code)
+	 */
+	@Benchmark
+	public ShotPool steer() {
+		guidance.steer( shots, targetXs, targetYs, targetZs );
+		return shots;
+	}
+
+}
@@ -0,0 +1,111 @@
+package p;
+
+import java.util.SplittableRandom;
+
+/**
+ * Check of the vectorized rocket guidance ({@link VectorRocketGuidance}): it must steer the rockets exactly
+ * (bit by bit) like the scalar guidance ({@link RocketGuidance}), else the games of the machines of a network game
+ * or the replays of the matches would go out of sync.<br>
+ * 50 pools of random shots (rockets and bullets, their sizes are not multiples of the vector size) are steered
+ * and moved in 100 steps by both, and the shots are compared after every step. A rocket is put onto its target
+ * in every pool (it has no direction to steer to).<br>
+ * Run it with <code>java --add-modules jdk.incubator.vector -cp target/benchmarks.jar p.RocketGuidanceCheck</code>,
+ * the exit status is 1 if the check fails. Smaller vectors than the CPU prefers can be checked with <code>-XX:MaxVectorSize=16</code> or <code>32</code>.
+ *
+ * @author Andras Belicza
+ */
+public class RocketGuidanceCheck {
+
+	/** Number of the checked pools of shots.               */
+	private static final int POOLS = 50;
+	/** Number of the steps the shots are steered and moved. */
+	private static final int STEPS = 100;
+
+
+	/**
+	 * Runs the check.
+	 * @param arguments not used
+	 */
+	public static void main( final String[] arguments ) {
+		final RocketGuidance scalar   = new RocketGuidance();
+		final RocketGuidance vector   = new VectorRocketGuidance();
+		final float[]        targetXs = { 1000.0f, 2000.5f }, targetYs = { 700.25f, 1800.0f }, targetZs = { 1200.0f, 300.0f };
+
+		int failures = 0;
+		for ( int pool = 0; pool < POOLS; pool++ ) {
+			final ShotPool scalarShots = createShots( 1003 + pool, pool ), vectorShots = createShots( 1003 + pool, pool );
+			scalarShots.type[ 5 ] = vectorShots.type[ 5 ] = ShotPool.ROCKET;
+			scalarShots.x   [ 5 ] = vectorShots.x   [ 5 ] = targetXs[ scalarShots.target[ 5 ] ];
+			scalarShots.y   [ 5 ] = vectorShots.y   [ 5 ] = targetYs[ scalarShots.target[ 5 ] ];
+
+			for ( int step = 0; step < STEPS; step++ ) {
+				scalar.steer( scalarShots, targetXs, targetYs, targetZs );
+				vector.steer( vectorShots, targetXs, targetYs, targetZs );
+				move( scalarShots );
+				move( vectorShots );
+
+				final int shot = findDifference( scalarShots, vectorShots );
+				if ( shot >= 0 ) {
+					System.out.println( "Pool " + pool + ", step " + step + ": shot " + shot + " is steered differently: ("
+							+ vectorShots.vx[ shot ] + ", " + vectorShots.vy[ shot ] + ", " + vectorShots.vz[ shot ] + ") instead of ("
+							+ scalarShots.vx[ shot ] + ", " + scalarShots.vy[ shot ] + ", " + scalarShots.vz[ shot ] + ")" );
+					failures++;
+					break;
+				}
+			}
+		}
+
+		System.out.println( POOLS + " pools of shots checked in " + STEPS + " steps, " + failures + " failed." );
+		if ( failures > 0 )
+			System.exit( 1 );
+	}
+
+	/**
+	 * Creates a pool of random shots: rockets and bullets flying in random directions over the land.
+	 * @param count number of the shots
+	 * @param seed  seed of the random shots
+	 * @return the pool of the shots
+	 */
+	private static ShotPool createShots( final int count, final long seed ) {
+		final SplittableRandom random = new SplittableRandom( seed );
+		final ShotPool         shots  = new ShotPool( 16 );
+		for ( int i = 0; i < count; i++ ) {
+			final double direction = random.nextDouble( -Math.PI, Math.PI );
+			shots.add( random.nextInt( 4 ) == 0 ? ShotPool.BULLET : ShotPool.ROCKET, (float) random.nextDouble( 2500.0 ), (float) random.nextDouble( 2500.0 ),
+					(float) random.nextDouble( 2400.0 ), GameSimulation.ROCKET_VELOCITY * (float) Math.cos( direction ),
+					GameSimulation.ROCKET_VELOCITY * (float) Math.sin( direction ), (float) random.nextDouble( -5.0, 5.0 ), random.nextInt( 2 ) );
+		}
+		return shots;
+	}
+
+	/**
+	 * Moves the shots by their velocities.
+	 * @param shots the shots
+	 */
+	private static void move( final ShotPool shots ) {
+		for ( int i = 0; i < shots.size; i++ ) {
+			shots.x[ i ] += shots.vx[ i ];
+			shots.y[ i ] += shots.vy[ i ];
+			shots.z[ i ] += shots.vz[ i ];
+		}
+	}
+
+	/**
+	 * Finds the first shot which is different in two pools (its position or velocity is not the same bit by bit).
+	 * @param shots1 the first pool of shots
+	 * @param shots2 the second pool of shots
+	 * @return the index of the first different shot, or -1 if the pools are the same
+	 */
+	private static int findDifference( final ShotPool shots1, final ShotPool shots2 ) {
+		for ( int i = 0; i < shots1.size; i++ )
+			if ( Float.floatToRawIntBits( shots1.x [ i ] ) != Float.floatToRawIntBits( shots2.x [ i ] )
+					|| Float.floatToRawIntBits( shots1.y [ i ] ) != Float.floatToRawIntBits( shots2.y [ i ] )
+					|| Float.floatToRawIntBits( shots1.z [ i ] ) != Float.floatToRawIntBits( shots2.z [ i ] )
+					|| Float.floatToRawIntBits( shots1.vx[ i ] ) != Float.floatToRawIntBits( shots2.vx[ i ] )
+					|| Float.floatToRawIntBits( shots1.vy[ i ] ) != Float.floatToRawIntBits( shots2.vy[ i ] )
+					|| Float.floatToRawIntBits( shots1.vz[ i ] ) != Float.floatToRawIntBits( shots2.vz[ i ] ) )
+				return i;
+		return -1;
+	}
+
+}
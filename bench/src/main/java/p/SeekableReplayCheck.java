@@ -0,0 +1,124 @@
+package p;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Check of the replays jumping to any step ({@link SeekableReplay}, {@link Keyframes}): bot matches are played and recorded
+ * ({@link MatchRecorder}) keeping the checksum of the model after every step, then the replays of the recordings jump
+ * forwards and backwards to random steps, and the checksums of their models must be the ones of the played matches.<br>
+ * Run it with <code>java -cp target/benchmarks.jar p.SeekableReplayCheck</code>, the exit status is 1 if the check fails.
+ *
+ * @author Andras Belicza
+ */
+public class SeekableReplayCheck {
+
+	/** Numbers of the players and the teams of the checked matches.       */
+	private static final int[][] SETUPS            = { { 2, 2 }, { 6, 3 } };
+	/** Maximum number of the steps of a match.                            */
+	private static final int     MAX_STEPS         = 4000;
+	/** Number of the steps recorded after the match is over.              */
+	private static final int     STEPS_AFTER_OVER  = 100;
+	/** Number of the steps between the keyframes of the replays.          */
+	private static final int     KEYFRAME_INTERVAL = 20;
+	/** Number of the jumps in a replay.                                   */
+	private static final int     SEEKS             = 500;
+
+
+	/**
+	 * Runs the check.
+	 * @param arguments not used
+	 * @throws IOException if the recordings cannot be written or read
+	 */
+	public static void main( final String[] arguments ) throws IOException {
+		int failures = 0;
+		for ( final int[] setup : SETUPS )
+			failures += checkMatch( setup[ 0 ], setup[ 1 ], 1000 + setup[ 0 ] );
+
+		System.out.println( SETUPS.length + " matches checked, " + failures + " jumps failed." );
+		if ( failures > 0 )
+			System.exit( 1 );
+	}
+
+	/**
+	 * Plays and records a bot match, and checks the jumps of its replay.
+	 * @param playersCount number of the players
+	 * @param teamsCount   number of the teams
+	 * @param seed         seed of the match and of the jumps
+	 * @return the number of the failed jumps
+	 * @throws IOException if the recording cannot be written or read
+	 */
+	private static int checkMatch( final int playersCount, final int teamsCount, final long seed ) throws IOException {
+		final Path file = Files.createTempFile( "landfight-", ".lfm" );
+		try {
+			final long[] checksums = playMatch( file, playersCount, teamsCount, seed );
+			final int    steps     = checksums.length - 1;
+
+			final SeekableReplay replay;
+			try ( final InputStream in = Files.newInputStream( file ) ) {
+				replay = new SeekableReplay( new MatchReplay( in ), KEYFRAME_INTERVAL );
+			}
+			if ( replay.getStepsCount() != steps ) {
+				System.out.println( playersCount + " players: " + replay.getStepsCount() + " steps are replayed instead of " + steps );
+				return 1;
+			}
+
+			final SplittableRandom random = new SplittableRandom( seed );
+			int failures = 0, backwards = 0;
+			for ( int i = 0; i < SEEKS; i++ ) {
+				// The first jump goes to the end of the match (taking all keyframes), the second one back to the start
+				final int  tick    = i == 0 ? steps : i == 1 ? 0 : random.nextInt( steps + 1 );
+				final long current = replay.simulation.getTick();
+				if ( tick < current )
+					backwards++;
+				replay.seek( tick );
+				if ( replay.simulation.getTick() != tick || replay.simulation.model.checksum() != checksums[ tick ] ) {
+					if ( failures++ < 10 )
+						System.out.println( playersCount + " players: jumping from step " + current + " to step " + tick + " results in another state than playing the match" );
+				}
+			}
+			System.out.println( playersCount + " players in " + teamsCount + " teams, " + steps + " steps: " + SEEKS + " jumps (" + backwards + " backwards), "
+					+ failures + " failed." );
+			return failures;
+		} finally {
+			Files.delete( file );
+		}
+	}
+
+	/**
+	 * Plays a match of bots, and records it.
+	 * @param file         file to record the match to
+	 * @param playersCount number of the players
+	 * @param teamsCount   number of the teams
+	 * @param seed         seed of the match
+	 * @return the checksums of the model at the start and after every step of the match
+	 * @throws IOException if the recording cannot be created
+	 */
+	private static long[] playMatch( final Path file, final int playersCount, final int teamsCount, final long seed ) throws IOException {
+		final GameSimulation simulation = new GameSimulation( new Model( playersCount, teamsCount ), null );
+		final boolean[][]    keyStatess = new boolean[ playersCount ][ GameSimulation.KEYS_COUNT ];
+		final long[]         checksums  = new long[ MAX_STEPS + 1 ];
+		simulation.newGame( seed );
+		checksums[ 0 ] = simulation.model.checksum();
+
+		final MatchRecorder recorder = new MatchRecorder( file, seed, playersCount, teamsCount );
+		int steps = 0, stepsAfterOver = 0;
+		while ( steps < MAX_STEPS && stepsAfterOver < STEPS_AFTER_OVER ) {
+			for ( int i = 0; i < playersCount; i++ )
+				BotPilot.control( simulation.model, i, keyStatess[ i ] );
+			recorder.record( keyStatess );
+			if ( simulation.step( keyStatess ) )
+				stepsAfterOver++;
+			checksums[ ++steps ] = simulation.model.checksum();
+		}
+		recorder.close();
+
+		final long[] result = new long[ steps + 1 ];
+		System.arraycopy( checksums, 0, result, 0, result.length );
+		return result;
+	}
+
+}
@@ -0,0 +1,108 @@
+package p;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static p.MovingObject.BOUNDARIES;
+
+/**
+ * Benchmark of one game iteration ({@link GameSimulation#step(boolean[][])}) with a given number of players and live shots.<br>
+ * The players hover above the highest possible land in a regular grid without touching any key, and the shots (bullets)
+ * stand still at the same height all over the land (but not over the players), so every shot lives forever.
+ * In every iteration every shot is moved, tested against the land (in the min/max pyramid of the land)
+ * and looks up the aircrafts near its path in the aircrafts grid (finding none), and every player looks up the aircrafts near it
+ * for crashes (finding only itself), so the numbers show how the iteration scales with the number of the shots and the players.
+ * The state does not change during the measurement, and the numbers are repeatable.
+ *
+ * @author Andras Belicza
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( value = 1, jvmArgsAppend = { "-Djava.awt.headless=true", "--add-modules=jdk.incubator.vector" } )
+public class TickBenchmark {
+
+	/** Number of the players (in 2 teams).      */
+	@Param( { "2", "32" } )
+	public int playersCount;
+
+	/** Number of live shots during the iteration. */
+	@Param( { "0", "100", "10000" } )
+	public int shotsCount;
+
+	/** The simulation to be stepped.            */
+	private GameSimulation simulation;
+	/** Key states of the players: nothing is pressed. */
+	private boolean[][]    keyStates;
+
+	/**
+	 * Creates the simulation and generates the land once for the whole trial.
+	 */
+	@Setup( Level.Trial )
+	public void setupGame() {
+		simulation = new GameSimulation( new Model( playersCount, 2 ), null );
+		keyStates  = new boolean[ playersCount ][ GameSimulation.KEYS_COUNT ];
+		simulation.newGame();
+	}
+
+	/**
+	 * Places the players and the shots before each iteration.
+	 */
+	@Setup( Level.Iteration )
+	public void setupIteration() {
+		final Model model = simulation.model;
+
+		// The players are spread in a grid (they don't crash into each other)
+		final int playersGridSize = (int) Math.ceil( Math.sqrt( playersCount ) );
+		for ( int i = 0; i < playersCount; i++ ) {
+			final ShapeObject player = model.players[ i ];
+			player.p[ 0 ] = ( i % playersGridSize + 0.5f ) * BOUNDARIES[ 0 ] / playersGridSize;
+			player.p[ 1 ] = ( i / playersGridSize + 0.5f ) * BOUNDARIES[ 1 ] / playersGridSize;
+			player.p[ 2 ] = BOUNDARIES[ 2 ];
+			player.v[ 0 ] = player.v[ 1 ] = player.v[ 2 ] = 0.0f;
+		}
+		model.aircrafts.clear();
+		for ( final ShapeObject player : model.players )
+			model.aircrafts.add( player );
+
+		model.shots.clear();
+		// We spread the shots evenly in a grid, skipping the cells too close to a player
+		final int gridSize = (int) Math.ceil( Math.sqrt( shotsCount * 2 ) );
+		for ( int i = 0; model.shots.size < shotsCount; i++ ) {
+			final float x = ( i % gridSize + 0.5f ) * BOUNDARIES[ 0 ] / gridSize;
+			final float y = ( i / gridSize % gridSize + 0.5f ) * BOUNDARIES[ 1 ] / gridSize;
+			boolean nearPlayer = false;
+			for ( final ShapeObject player : model.players )
+				if ( Math.abs( player.p[ 0 ] - x ) < 100.0f && Math.abs( player.p[ 1 ] - y ) < 100.0f )
+					nearPlayer = true;
+			if ( nearPlayer )
+				continue;
+
+			model.shots.add( ShotPool.BULLET, x, y, BOUNDARIES[ 2 ], 0.0f, 0.0f, 0.0f, 0 );
+		}
+	}
+
+	/**
+	 * Calculates one game iteration.
+	 * @return true if the game is over (it never is)
+	 */
+	@Benchmark
+	public boolean tick() {
+		return simulation.step( keyStates );
+	}
+
+}
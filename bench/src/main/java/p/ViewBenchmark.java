@@ -0,0 +1,106 @@
+package p;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+
+/**
+ * Benchmarks of the view: colouring the landscape ({@link View#newGame()})
+ * and painting a whole frame into an offscreen image ({@link View#paint(java.awt.Graphics)}),
+ * with the players standing still or moving (so the scenes scroll).
+ *
+ * @author Andras Belicza
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( value = 1, jvmArgsAppend = "-Djava.awt.headless=true" )
+public class ViewBenchmark {
+
+	/** The simulation whose model is viewed.     */
+	private GameSimulation simulation;
+	/** The view to be benchmarked.               */
+	private View           view;
+	/** The offscreen image the view paints into. */
+	private BufferedImage  image;
+	/** Graphics context of the offscreen image.  */
+	private Graphics2D     graphics;
+	/** Number of frames painted while moving.    */
+	private int            frames;
+
+	/**
+	 * Creates the view and a game to be viewed.
+	 */
+	@Setup( Level.Trial )
+	public void setup() {
+		final Model model = new Model();
+		view       = new View( model, new Controller() );
+		simulation = new GameSimulation( model, view );
+		simulation.newGame();
+		view      .newGame();
+
+		image    = new BufferedImage( view.getPreferredSize().width, view.getPreferredSize().height, TYPE_INT_RGB );
+		graphics = image.createGraphics();
+	}
+
+	/**
+	 * Releases the graphics context.
+	 */
+	@TearDown( Level.Trial )
+	public void tearDown() {
+		graphics.dispose();
+	}
+
+	/**
+	 * Colours the whole landscape and the minimap.
+	 * @return the view
+	 */
+	@Benchmark
+	public View newGame() {
+		view.newGame();
+		return view;
+	}
+
+	/**
+	 * Paints a whole frame: the scenes, the status windows and the minimap.
+	 * @return the image painted into
+	 */
+	@Benchmark
+	public BufferedImage paint() {
+		view.paint( graphics );
+		return image;
+	}
+
+	/**
+	 * Paints a whole frame after moving the players diagonally by 3 pixels (as if they were flying)
+	 * and publishing the moved state.
+	 * @return the image painted into
+	 */
+	@Benchmark
+	public BufferedImage paintMoving() {
+		final float position = 1000.0f + 3 * ( frames++ % 100 );
+		for ( final ShapeObject player : simulation.model.players )
+			player.p[ 0 ] = player.p[ 1 ] = position;
+		simulation.model.snapshots.publish( simulation.model );
+		view.paint( graphics );
+		return image;
+	}
+
+}
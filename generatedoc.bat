@@ -1 +1 @@
-javadoc -private -author -d javadoc p/*.java
+javadoc -private -author --add-modules jdk.incubator.vector -d javadoc p/*.java
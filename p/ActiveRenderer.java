@@ -0,0 +1,193 @@
+package p;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.DisplayMode;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsDevice;
+import java.awt.GraphicsEnvironment;
+import java.awt.Insets;
+import java.awt.Toolkit;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.image.BufferStrategy;
+
+import javax.swing.Box;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+
+/**
+ * Active renderer: paints the view on the game thread right after the game iterations, into a buffer strategy
+ * (page flipping if the platform supports it), instead of asking the EDT to repaint it.<br>
+ * The EDT may coalesce or delay the repaints, with active rendering every game iteration is painted and shown
+ * right away, so the frames are delivered at the pace of the game iterations.<br>
+ * Active rendering is enabled by the <code>landfight.activeRendering</code> system property, or by
+ * <code>landfight.fullScreen</code> which also switches to full-screen exclusive mode with the display mode
+ * of the <code>landfight.displayMode</code> system property (<code>1024x768</code> by default; the current
+ * display mode is kept if the asked one is not available). Escape exits the full-screen game.<br>
+ * The window is not painted by Swing: the renderer paints the view and the status line (the text of the status label)
+ * itself, centered in the window.
+ *
+ * @author Andras Belicza
+ */
+class ActiveRenderer {
+
+	/** Height of the status line below the view.                       */
+	private static final int STATUS_HEIGHT = 20;
+
+	/** The window we paint.                                            */
+	private final JFrame         frame;
+	/** The view to be painted.                                         */
+	private final View           view;
+	/** The status label whose text is painted in the status line.      */
+	private final JLabel         statusLabel;
+	/** The buffer strategy of the window.                              */
+	private final BufferStrategy strategy;
+
+
+	/**
+	 * Creates an active renderer if active rendering is enabled by the system properties.<br>
+	 * The view must already be added to the frame. If the returned renderer is not null,
+	 * the frame is set up (and made visible) for active rendering, and the status label must not be added to it.
+	 * @param frame       the main frame of the game
+	 * @param view        the view to be painted
+	 * @param statusLabel the status label whose text is painted in the status line
+	 * @return the active renderer, or null if active rendering is not enabled
+	 */
+	public static ActiveRenderer create( final JFrame frame, final View view, final JLabel statusLabel ) {
+		final boolean fullScreen = Boolean.getBoolean( "landfight.fullScreen" );
+		if ( !fullScreen && !Boolean.getBoolean( "landfight.activeRendering" ) )
+			return null;
+		return new ActiveRenderer( frame, view, statusLabel, fullScreen );
+	}
+
+	/**
+	 * Creates a new ActiveRenderer, and sets up the frame for active rendering.
+	 * @param frame       the main frame of the game
+	 * @param view        the view to be painted
+	 * @param statusLabel the status label whose text is painted in the status line
+	 * @param fullScreen  tells whether to switch to full-screen exclusive mode
+	 */
+	private ActiveRenderer( final JFrame frame, final View view, final JLabel statusLabel, final boolean fullScreen ) {
+		this.frame       = frame;
+		this.view        = view;
+		this.statusLabel = statusLabel;
+
+		// We paint everything, we don't want the system or Swing to paint the window
+		frame.setIgnoreRepaint( true );
+		view .setIgnoreRepaint( true );
+
+		if ( fullScreen ) {
+			final GraphicsDevice device = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice();
+			frame.setUndecorated( true );
+			device.setFullScreenWindow( frame ); // If exclusive mode is not supported, this just covers the screen with the window
+			if ( device.isFullScreenSupported() && device.isDisplayChangeSupported() ) {
+				final DisplayMode displayMode = getDisplayMode( device, System.getProperty( "landfight.displayMode", "1024x768" ) );
+				if ( displayMode != null )
+					device.setDisplayMode( displayMode );
+			}
+			view.addKeyListener( new KeyAdapter() {
+				@Override
+				public void keyPressed( final KeyEvent ke ) {
+					if ( ke.getKeyCode() == KeyEvent.VK_ESCAPE ) // There is no window to close
+						System.exit( 0 );
+				}
+			} );
+		}
+		else {
+			// Room for the status line below the view
+			frame.getContentPane().add( Box.createRigidArea( new Dimension( 0, STATUS_HEIGHT ) ), BorderLayout.SOUTH );
+			frame.pack();
+			frame.setVisible( true );
+		}
+
+		frame.createBufferStrategy( 2 );
+		strategy = frame.getBufferStrategy();
+	}
+
+	/**
+	 * Returns the display mode of the device with the specified resolution, and with the bit depth and refresh rate
+	 * of the current display mode if there is such.
+	 * @param device     the device whose display mode is needed
+	 * @param resolution resolution of the display mode in the form of <code>&lt;width&gt;x&lt;height&gt;</code>
+	 * @return the display mode with the specified resolution, or null if the device has no such (or the resolution is invalid)
+	 */
+	private static DisplayMode getDisplayMode( final GraphicsDevice device, final String resolution ) {
+		final int width, height;
+		try {
+			final String[] sizes = resolution.split( "x" );
+			width  = Integer.parseInt( sizes[ 0 ].trim() );
+			height = Integer.parseInt( sizes[ 1 ].trim() );
+		}
+		catch ( final RuntimeException re ) {
+			System.err.println( "Invalid display mode: " + resolution );
+			return null;
+		}
+
+		final DisplayMode current   = device.getDisplayMode();
+		DisplayMode       best      = null;
+		int               bestScore = -1;
+		for ( final DisplayMode displayMode : device.getDisplayModes() )
+			if ( displayMode.getWidth() == width && displayMode.getHeight() == height ) {
+				final int score = ( displayMode.getBitDepth   () == current.getBitDepth   () ? 2 : 0 )
+				                + ( displayMode.getRefreshRate() == current.getRefreshRate() ? 1 : 0 );
+				if ( score > bestScore ) {
+					best      = displayMode;
+					bestScore = score;
+				}
+			}
+		return best;
+	}
+
+	/**
+	 * Renders a frame: paints the view and the status line into the back buffer and shows it.<br>
+	 * If the content of the buffers is lost meanwhile (for example the display mode changed), the frame is painted again.
+	 */
+	public void render() {
+		do {
+			do {
+				final Graphics2D g2 = (Graphics2D) strategy.getDrawGraphics();
+				try {
+					paint( g2 );
+				}
+				finally {
+					g2.dispose();
+				}
+			} while ( strategy.contentsRestored() );
+			strategy.show();
+		} while ( strategy.contentsLost() );
+
+		Toolkit.getDefaultToolkit().sync(); // Some systems buffer the graphics commands, we want it on the screen now
+	}
+
+	/**
+	 * Paints the view and the status line centered in the window.
+	 * @param g2 graphics context of the back buffer
+	 */
+	private void paint( final Graphics2D g2 ) {
+		final Insets    insets   = frame.getInsets();
+		final int       width    = frame.getWidth () - insets.left - insets.right;
+		final int       height   = frame.getHeight() - insets.top  - insets.bottom;
+		final Dimension viewSize = view.getPreferredSize();
+		final int       x        = insets.left + ( width  - viewSize.width                  ) / 2;
+		final int       y        = insets.top  + ( height - viewSize.height - STATUS_HEIGHT ) / 2;
+
+		g2.setColor( Color.BLACK );
+		g2.fillRect( 0, 0, frame.getWidth(), frame.getHeight() );
+
+		g2.translate( x, y );
+		view.paint( g2 );
+		g2.setClip( null );
+
+		final String status = statusLabel.getText();
+		if ( status != null ) {
+			g2.setFont( statusLabel.getFont() );
+			final FontMetrics fontMetrics = g2.getFontMetrics();
+			g2.setColor( Color.WHITE );
+			g2.drawString( status, ( viewSize.width - fontMetrics.stringWidth( status ) ) / 2, viewSize.height + ( STATUS_HEIGHT + fontMetrics.getAscent() - fontMetrics.getDescent() ) / 2 );
+		}
+	}
+
+}
@@ -0,0 +1,88 @@
+package p;
+
+import java.util.Arrays;
+
+import static p.MovingObject.BOUNDARIES;
+
+/**
+ * Pilot of the players who are not controlled by humans (bots): presses the control keys of a player by the state of the model.<br>
+ * The bot turns towards the nearest enemy and flies to it, keeps a safe height over the land ahead of it
+ * (found in the min/max pyramid of the land), follows the height of the enemy above that,
+ * fires its gun when the enemy is in front of it and launches rockets when the enemy is in range.<br>
+ * The bot only reads the model, and its trigonometric functions are the ones of StrictMath, so it's deterministic:
+ * the machines of a network game press the same keys for the bots. The keys of the bots are recorded like the keys
+ * of the humans, so replays don't depend on the bots.
+ *
+ * @author Andras Belicza
+ */
+final class BotPilot {
+
+	/** Half of the angle the aircrafts turn in a step: the bot doesn't turn if it's facing the enemy within this. */
+	private static final float AIM_TOLERANCE = 0.05f;
+	/** Maximum angle between the direction of the bot and the enemy to fire the gun. */
+	private static final float GUN_ANGLE     = 0.15f;
+	/** Maximum distance of the enemy to fire the gun.                                 */
+	private static final float GUN_RANGE     = 700.0f;
+	/** Maximum distance of the enemy to launch rockets.                               */
+	private static final float ROCKET_RANGE  = 1500.0f;
+	/** Distance the bot keeps from the enemy (it brakes if it's closer than half of it). */
+	private static final float KEEP_DISTANCE = 250.0f;
+	/** Distance ahead of the bot where it looks for the land.                         */
+	private static final int   LOOK_AHEAD    = 150;
+	/** Height the bot keeps above the land ahead of it.                               */
+	private static final float SAFE_HEIGHT   = 400.0f;
+	/** Our PI (the one of the game).                                                  */
+	private static final float PI            = 3.1415f;
+
+
+	/**
+	 * No instances, it's stateless.
+	 */
+	private BotPilot() {
+	}
+
+	/**
+	 * Sets the states of the control keys of a bot for the next step.
+	 * @param model     the model of the game
+	 * @param i         index of the player controlled by the bot
+	 * @param keyStates array to set the states of the control keys of the player into
+	 */
+	public static void control( final Model model, final int i, final boolean[] keyStates ) {
+		Arrays.fill( keyStates, false );
+		final ShapeObject player = model.players[ i ];
+		final int         target = player.exploded ? -1 : model.findNearestPlayer( player.p[ 0 ], player.p[ 1 ], player.p[ 2 ], player.team, true );
+		if ( target < 0 )
+			return;
+
+		final float[] p         = player.p, targetPos = model.players[ target ].p;
+		final float   dx        = targetPos[ 0 ] - p[ 0 ], dy = targetPos[ 1 ] - p[ 1 ];
+		final float   distance  = (float) Math.sqrt( dx * dx + dy * dy );
+
+		// We turn towards the enemy (the angle to turn is kept between -PI and PI)
+		float turn = (float) StrictMath.atan2( dy, dx ) - player.direction;
+		if ( turn < -PI )
+			turn += 2.0f*PI;
+		if ( turn > PI )
+			turn -= 2.0f*PI;
+		keyStates[ GameSimulation.KEY_RIGHT  ] = turn >  AIM_TOLERANCE;
+		keyStates[ GameSimulation.KEY_LEFT   ] = turn < -AIM_TOLERANCE;
+
+		// We fly to the enemy if it's ahead, and brake if it's too close
+		keyStates[ GameSimulation.KEY_ACC    ] = distance > KEEP_DISTANCE && Math.abs( turn ) < PI/2;
+		keyStates[ GameSimulation.KEY_BREAK  ] = distance < KEEP_DISTANCE/2;
+
+		// We keep the safe height over the land between us and the point ahead, and follow the height of the enemy above that
+		final int   aheadX = (int) ( p[ 0 ] + LOOK_AHEAD * StrictMath.cos( player.direction ) );
+		final int   aheadY = (int) ( p[ 1 ] + LOOK_AHEAD * StrictMath.sin( player.direction ) );
+		final float land   = model.landPyramid.getMax( Math.min( (int) p[ 0 ], aheadX ) - LOOK_AHEAD/4, Math.min( (int) p[ 1 ], aheadY ) - LOOK_AHEAD/4,
+				Math.max( (int) p[ 0 ], aheadX ) + LOOK_AHEAD/4, Math.max( (int) p[ 1 ], aheadY ) + LOOK_AHEAD/4 );
+		final float height = Math.min( BOUNDARIES[ 2 ], Math.max( Math.max( land, 0.0f ) + SAFE_HEIGHT, targetPos[ 2 ] ) );
+		keyStates[ GameSimulation.KEY_ASCEN  ] = p[ 2 ] < height -  50.0f;
+		keyStates[ GameSimulation.KEY_DESCEN ] = p[ 2 ] > height + 100.0f;
+
+		// We fire the gun if the enemy is in front of us, and launch rockets (they follow the enemy) if it's in range
+		keyStates[ GameSimulation.KEY_FIRE1  ] = Math.abs( turn ) < GUN_ANGLE && distance < GUN_RANGE;
+		keyStates[ GameSimulation.KEY_FIRE2  ] = Math.abs( turn ) < PI/2 && distance < ROCKET_RANGE;
+	}
+
+}
@@ -0,0 +1,216 @@
+package p;
+
+import java.awt.Polygon;
+import java.util.Arrays;
+
+/**
+ * Convex polygon for the swept collision tests, around the origin (the position of an object).<br>
+ * The edges are stored as half-planes (outward normal and offset), so testing a point is a few multiplications per edge,
+ * and clipping a segment to the polygon is the Cyrus-Beck algorithm: the segment is clipped by the half-planes one by one,
+ * giving the parameters where it enters and exits the polygon. A moving point hits the polygon during a step if its
+ * path in the step (a segment) enters it, and the parameter tells the exact time of the impact.<br>
+ * Immutable.
+ *
+ * @author Andras Belicza
+ */
+final class ConvexHull {
+
+	/** X coordinates of the vertices (counterclockwise if the y axis points up).         */
+	private final float[] xs;
+	/** Y coordinates of the vertices.                                                   */
+	private final float[] ys;
+	/** X components of the outward normals of the edges.                                */
+	private final float[] nxs;
+	/** Y components of the outward normals of the edges.                                */
+	private final float[] nys;
+	/** Offsets of the edges: a point p is inside the half-plane of edge i if n[i] . p <= ds[i]. */
+	private final float[] ds;
+
+
+	/**
+	 * Creates a new ConvexHull.
+	 * @param xs x coordinates of the vertices of the convex polygon, in order
+	 * @param ys y coordinates of the vertices of the convex polygon, in order
+	 */
+	private ConvexHull( final float[] xs, final float[] ys ) {
+		this.xs = xs;
+		this.ys = ys;
+		final int n = xs.length;
+		nxs = new float[ n ];
+		nys = new float[ n ];
+		ds  = new float[ n ];
+		for ( int i = 0; i < n; i++ ) {
+			final int j = ( i + 1 ) % n;
+			// The vertices are counterclockwise (if the y axis points up), so the outward normal of an edge is (dy, -dx)
+			nxs[ i ] =   ys[ j ] - ys[ i ];
+			nys[ i ] = -( xs[ j ] - xs[ i ] );
+			ds [ i ] = nxs[ i ] * xs[ i ] + nys[ i ] * ys[ i ];
+		}
+	}
+
+	/**
+	 * Creates the convex hull of a polygon.
+	 * @param polygon the polygon
+	 * @return the convex hull of the polygon
+	 */
+	public static ConvexHull of( final Polygon polygon ) {
+		final float[] xs = new float[ polygon.npoints ], ys = new float[ polygon.npoints ];
+		for ( int i = 0; i < polygon.npoints; i++ ) {
+			xs[ i ] = polygon.xpoints[ i ];
+			ys[ i ] = polygon.ypoints[ i ];
+		}
+		return of( xs, ys );
+	}
+
+	/**
+	 * Creates the convex hull of points (Andrew's monotone chain).
+	 * @param pxs x coordinates of the points
+	 * @param pys y coordinates of the points
+	 * @return the convex hull of the points
+	 */
+	public static ConvexHull of( final float[] pxs, final float[] pys ) {
+		// We sort the points by x, then by y
+		final Integer[] order = new Integer[ pxs.length ];
+		for ( int i = 0; i < order.length; i++ )
+			order[ i ] = i;
+		Arrays.sort( order, ( a, b ) -> pxs[ a ] != pxs[ b ] ? Float.compare( pxs[ a ], pxs[ b ] ) : Float.compare( pys[ a ], pys[ b ] ) );
+
+		// Lower and upper chains, collinear points are dropped
+		final int[] hull = new int[ order.length * 2 ];
+		int count = 0;
+		for ( int pass = 0; pass < 2; pass++ ) {
+			final int chainStart = count;
+			for ( int k = 0; k < order.length; k++ ) {
+				final int i = order[ pass == 0 ? k : order.length - 1 - k ];
+				while ( count >= chainStart + 2 && cross( pxs, pys, hull[ count - 2 ], hull[ count - 1 ], i ) <= 0.0f )
+					count--;
+				hull[ count++ ] = i;
+			}
+			count--; // The last point of a chain is the first point of the other one
+		}
+
+		final float[] xs = new float[ count ], ys = new float[ count ];
+		for ( int i = 0; i < count; i++ ) {
+			xs[ i ] = pxs[ hull[ i ] ];
+			ys[ i ] = pys[ hull[ i ] ];
+		}
+		return new ConvexHull( xs, ys );
+	}
+
+	/**
+	 * Returns the cross product of the vectors a-&gt;b and a-&gt;c (positive if c is on the left of a-&gt;b in a y-up system).
+	 * @param pxs x coordinates of the points
+	 * @param pys y coordinates of the points
+	 * @param a   index of point a
+	 * @param b   index of point b
+	 * @param c   index of point c
+	 * @return the cross product of the vectors a-&gt;b and a-&gt;c
+	 */
+	private static float cross( final float[] pxs, final float[] pys, final int a, final int b, final int c ) {
+		return ( pxs[ b ] - pxs[ a ] ) * ( pys[ c ] - pys[ a ] ) - ( pys[ b ] - pys[ a ] ) * ( pxs[ c ] - pxs[ a ] );
+	}
+
+	/**
+	 * Creates the hull of the positions of another hull where it intersects this hull: the other hull rotated by an angle
+	 * (relative to this one) at position q intersects this hull if q is in the returned hull (the Minkowski difference).
+	 * So a moving hull can be tested as a moving point.
+	 * @param other the other hull
+	 * @param cos   cosine of the rotation of the other hull
+	 * @param sin   sine of the rotation of the other hull
+	 * @return the hull of the positions of the other hull where it intersects this hull
+	 */
+	public ConvexHull expand( final ConvexHull other, final float cos, final float sin ) {
+		final int     n   = xs.length, m = other.xs.length;
+		final float[] pxs = new float[ n * m ], pys = new float[ n * m ];
+		for ( int i = 0; i < n; i++ )
+			for ( int j = 0; j < m; j++ ) {
+				pxs[ i * m + j ] = xs[ i ] - ( cos * other.xs[ j ] - sin * other.ys[ j ] );
+				pys[ i * m + j ] = ys[ i ] - ( sin * other.xs[ j ] + cos * other.ys[ j ] );
+			}
+		return of( pxs, pys );
+	}
+
+	/**
+	 * Tells whether another hull intersects this hull (separating axis test).<br>
+	 * The other hull is transformed into the coordinate system of this hull: its point (x, y) is at
+	 * (m00*x - m10*y + tx, m10*x + m00*y + ty), which is a rotation and a (positive) scaling followed by a translation.
+	 * The hulls are disjoint if all vertices of one of them are outside of an edge of the other one.
+	 * @param other the other hull
+	 * @param m00   cosine of the rotation of the other hull multiplied by its scale
+	 * @param m10   sine of the rotation of the other hull multiplied by its scale
+	 * @param tx    x coordinate of the position of the other hull
+	 * @param ty    y coordinate of the position of the other hull
+	 * @return true if the other hull intersects this hull; false otherwise
+	 */
+	public boolean intersects( final ConvexHull other, final float m00, final float m10, final float tx, final float ty ) {
+		// The edges of this hull
+		for ( int i = 0; i < ds.length; i++ ) {
+			boolean outside = true;
+			for ( int j = 0; j < other.xs.length && outside; j++ )
+				outside = nxs[ i ] * ( m00 * other.xs[ j ] - m10 * other.ys[ j ] + tx ) + nys[ i ] * ( m10 * other.xs[ j ] + m00 * other.ys[ j ] + ty ) > ds[ i ];
+			if ( outside )
+				return false;
+		}
+		// The edges of the other hull (the normals are only rotated and scaled)
+		for ( int i = 0; i < other.ds.length; i++ ) {
+			final float nx = m00 * other.nxs[ i ] - m10 * other.nys[ i ], ny = m10 * other.nxs[ i ] + m00 * other.nys[ i ];
+			final float d  = nx * ( m00 * other.xs[ i ] - m10 * other.ys[ i ] + tx ) + ny * ( m10 * other.xs[ i ] + m00 * other.ys[ i ] + ty );
+			boolean outside = true;
+			for ( int j = 0; j < xs.length && outside; j++ )
+				outside = nx * xs[ j ] + ny * ys[ j ] > d;
+			if ( outside )
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Tells whether the hull at the specified position contains a point.
+	 * @param posX x coordinate of the position of the hull
+	 * @param posY y coordinate of the position of the hull
+	 * @param px   x coordinate of the point
+	 * @param py   y coordinate of the point
+	 * @return true if the hull at the specified position contains the point; false otherwise
+	 */
+	public boolean contains( final float posX, final float posY, final float px, final float py ) {
+		final float x = px - posX, y = py - posY;
+		for ( int i = 0; i < ds.length; i++ )
+			if ( nxs[ i ] * x + nys[ i ] * y > ds[ i ] )
+				return false;
+		return true;
+	}
+
+	/**
+	 * Clips a segment to the hull at the specified position (Cyrus-Beck).<br>
+	 * The parameters of the segment go from 0 (start point) to 1 (end point); the clipping starts from the range
+	 * specified in <code>t</code>, so the range can be limited beforehand (for example by a vertical slab).
+	 * @param posX x coordinate of the position of the hull
+	 * @param posY y coordinate of the position of the hull
+	 * @param x0   x coordinate of the start point of the segment
+	 * @param y0   y coordinate of the start point of the segment
+	 * @param dx   x component of the vector from the start point to the end point
+	 * @param dy   y component of the vector from the start point to the end point
+	 * @param t    range of parameters to be clipped (in: the range to clip; out: where the segment enters and exits the hull)
+	 * @return true if the segment is inside the hull in a part of the range; false otherwise
+	 */
+	public boolean clip( final float posX, final float posY, final float x0, final float y0, final float dx, final float dy, final float[] t ) {
+		final float x = x0 - posX, y = y0 - posY;
+		float tEnter = t[ 0 ], tExit = t[ 1 ];
+		for ( int i = 0; i < ds.length && tEnter <= tExit; i++ ) {
+			final float distance = ds[ i ] - ( nxs[ i ] * x + nys[ i ] * y ); // >= 0 if the start point is inside the half-plane
+			final float approach = nxs[ i ] * dx + nys[ i ] * dy;             // > 0 if the segment goes outwards
+			if ( approach == 0.0f ) {
+				if ( distance < 0.0f )
+					return false; // Parallel with the edge, outside of it
+			}
+			else if ( approach > 0.0f )
+				tExit  = Math.min( tExit , distance / approach );
+			else
+				tEnter = Math.max( tEnter, distance / approach );
+		}
+		t[ 0 ] = tEnter;
+		t[ 1 ] = tExit;
+		return tEnter <= tExit;
+	}
+
+}
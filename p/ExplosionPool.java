@@ -0,0 +1,106 @@
+package p;
+
+import java.util.Arrays;
+
+/**
+ * The explosions (of the rockets and of the aircrafts).<br>
+ * Like the {@link ShotPool}, the explosions are not objects, they are stored in parallel primitive arrays
+ * which are preallocated and reused, so exploding does not allocate. A dead explosion is removed by
+ * moving the last explosion to its place.
+ *
+ * @author Andras Belicza
+ */
+class ExplosionPool {
+
+	/** Number of the explosions.                                    */
+	public int     size;
+
+	/** X coordinates of the centers of the explosions.              */
+	public float[] x;
+	/** Y coordinates of the centers of the explosions.              */
+	public float[] y;
+	/** Heights (z coordinates) of the explosions.                   */
+	public float[] z;
+	/** Current radiuses of the explosions.                          */
+	public float[] radius;
+
+
+	/**
+	 * Creates a new ExplosionPool.
+	 * @param capacity number of explosions to preallocate room for
+	 */
+	public ExplosionPool( final int capacity ) {
+		x      = new float[ capacity ];
+		y      = new float[ capacity ];
+		z      = new float[ capacity ];
+		radius = new float[ capacity ];
+	}
+
+	/**
+	 * Adds a new explosion.
+	 * @param x_      x coordinate of the center of the explosion
+	 * @param y_      y coordinate of the center of the explosion
+	 * @param z_      height of the explosion
+	 * @param radius_ starting radius of the explosion
+	 */
+	public void add( final float x_, final float y_, final float z_, final float radius_ ) {
+		if ( size == x.length ) {
+			final int capacity = Math.max( 16, size * 2 );
+			x      = Arrays.copyOf( x     , capacity );
+			y      = Arrays.copyOf( y     , capacity );
+			z      = Arrays.copyOf( z     , capacity );
+			radius = Arrays.copyOf( radius, capacity );
+		}
+
+		x     [ size ] = x_;
+		y     [ size ] = y_;
+		z     [ size ] = z_;
+		radius[ size ] = radius_;
+		size++;
+	}
+
+	/**
+	 * Animates the explosions: shrinks them, and removes the ones which are over.
+	 * @param shrinking value to decrease the radiuses with
+	 */
+	public void step( final float shrinking ) {
+		for ( int i = 0; i < size; )
+			if ( ( radius[ i ] -= shrinking ) < 0.0f ) {
+				final int last = --size;
+				x     [ i ] = x     [ last ];
+				y     [ i ] = y     [ last ];
+				z     [ i ] = z     [ last ];
+				radius[ i ] = radius[ last ];
+			}
+			else
+				i++;
+	}
+
+	/**
+	 * Removes all explosions.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Makes this pool a copy of another one: copies the explosions of the other pool.<br>
+	 * The arrays only grow if needed, so copying does not allocate.
+	 * @param other the pool to be copied
+	 */
+	public void copyFrom( final ExplosionPool other ) {
+		if ( x.length < other.size ) {
+			x      = new float[ other.x.length ];
+			y      = new float[ other.x.length ];
+			z      = new float[ other.x.length ];
+			radius = new float[ other.x.length ];
+		}
+
+		size = other.size;
+		System.arraycopy( other.x     , 0, x     , 0, size );
+		System.arraycopy( other.y     , 0, y     , 0, size );
+		System.arraycopy( other.z     , 0, z     , 0, size );
+		System.arraycopy( other.radius, 0, radius, 0, size );
+	}
+
+}
@@ -0,0 +1,550 @@
+package p;
+
+import static p.MovingObject.BOUNDARIES;
+
+/**
+ * The headless simulation of the game.<br>
+ * The simulation steps the model by the control key states of the players, one game iteration per step.
+ * It does not depend on the view, on the timing or on any user interface, so it can be stepped
+ * as fast as the CPU allows (for example for balance testing or for training bots).<br>
+ * The simulation is deterministic: the same seed and the same control key states result in the same game
+ * on every machine (the trigonometric functions are the ones of StrictMath, there are no other random sources),
+ * so a game can be recorded as its seed and its key states (see {@link MatchRecorder}) and replayed.<br>
+ * Marks left on the land are reported to an optional {@link LandMarkListener}.<br>
+ * The durations of the phases of the steps are recorded in the {@link Stats} if it's asked for; only the simulation
+ * of the played game records them (the timers are recorded by one thread, and the replays and benchmarks stepping
+ * headless simulations must not mix their durations into the statistics of the game).<br>
+ * After every step (and at the start of a new game) the state of the model is published
+ * in a {@link RenderSnapshot} (see {@link Model#snapshots}), the view paints only from those.
+ *
+ * @author Andras Belicza
+ */
+public class GameSimulation {
+
+	/** Index of the control key turning left.         */
+	public static final int KEY_LEFT   = 0;
+	/** Index of the control key turning right.        */
+	public static final int KEY_RIGHT  = 1;
+	/** Index of the control key accelerating.         */
+	public static final int KEY_ACC    = 2;
+	/** Index of the control key break.                */
+	public static final int KEY_BREAK  = 3;
+	/** Index of the control key ascending.            */
+	public static final int KEY_ASCEN  = 4;
+	/** Index of the control key descending.           */
+	public static final int KEY_DESCEN = 5;
+	/** Index of the control key fire1.                */
+	public static final int KEY_FIRE1  = 6;
+	/** Index of the control key fire2.                */
+	public static final int KEY_FIRE2  = 7;
+	/** Number of the control keys of a player.        */
+	public static final int KEYS_COUNT = 8;
+
+	/** 1-step horizontal velcity of the rockets.      */
+	static final float         ROCKET_VELOCITY = 16.0f;
+	/** 1-step horizontal velcity of the bullets.      */
+	private static final float BULLET_VELOCITY = 40.0f;
+	/** Maximum height difference of a shot and an aircraft it can hit. */
+	private static final float HIT_HEIGHT      = 200.0f;
+	/** Shapes of the positions of a rocket where it hits an aircraft (relative to the aircraft), indexed by the rotation
+	 *  of the rocket relative to the aircraft: the shape of the aircraft expanded by the rotated rocket, so a rocket can be swept as a point. */
+	private static final SweptShape[] ROCKET_HIT_SHAPES = ShapeTemplate.AIRCRAFT.createHitShapes( ShapeTemplate.ROCKET );
+	/** Value of acceleration of the aircrafts.        */
+	private static final float ACCELERATION    = 0.4f;
+	/** Our PI (we keep the one the game was tuned with). */
+	private static final float PI              = 3.1415f;
+	/** Guidance of the rockets (vectorized if the vector API is available). */
+	private static final RocketGuidance GUIDANCE = RocketGuidance.create();
+
+
+
+	/** The model being simulated.                     */
+	public  final Model            model;
+	/** Listener of the marks left on the land, can be null. */
+	private final LandMarkListener markListener;
+	/** Tells if the durations of the phases of the steps are recorded in the {@link Stats}. */
+	private final boolean          recordStats;
+	/** Number of steps since the current game started. */
+	private       long             tick;
+	/** Parameter range of the path of a shot, clipped by the shapes of the aircrafts (reused). */
+	private final float[]          clipRange = new float[ 2 ];
+	/** X coordinates of the players, the targets of the rockets (reused). */
+	private final float[]          targetXs;
+	/** Y coordinates of the players, the targets of the rockets (reused). */
+	private final float[]          targetYs;
+	/** Heights of the players, the targets of the rockets (reused). */
+	private final float[]          targetZs;
+	/** New targets of the rockets following dead players: the nearest living teammates of the dead players, or -1 (reused). */
+	private final int[]            newTargets;
+
+
+	/**
+	 * Creates a new GameSimulation with its own model, without a land mark listener and without recording the statistics.
+	 */
+	public GameSimulation() {
+		this( new Model(), null );
+	}
+
+	/**
+	 * Creates a new GameSimulation which doesn't record the statistics.
+	 * @param model        the model to be simulated
+	 * @param markListener listener of the marks left on the land, can be null
+	 */
+	GameSimulation( final Model model, final LandMarkListener markListener ) {
+		this( model, markListener, false );
+	}
+
+	/**
+	 * Creates a new GameSimulation.
+	 * @param model        the model to be simulated
+	 * @param markListener listener of the marks left on the land, can be null
+	 * @param recordStats  tells if the durations of the phases of the steps are to be recorded in the {@link Stats}
+	 */
+	GameSimulation( final Model model, final LandMarkListener markListener, final boolean recordStats ) {
+		this.model        = model;
+		this.markListener = markListener;
+		this.recordStats  = recordStats;
+		targetXs   = new float[ model.players.length ];
+		targetYs   = new float[ model.players.length ];
+		targetZs   = new float[ model.players.length ];
+		newTargets = new int  [ model.players.length ];
+	}
+
+	/**
+	 * Reinits the model so a new game can begin, with a random seed.
+	 */
+	public void newGame() {
+		model.newGame();
+		tick = 0;
+		model.snapshots.publish( model );
+	}
+
+	/**
+	 * Reinits the model so a new game can begin.
+	 * @param seed seed of the new game, the same seed always results in the same land and the same starting positions
+	 */
+	public void newGame( final long seed ) {
+		model.newGame( seed );
+		tick = 0;
+		model.snapshots.publish( model );
+	}
+
+	/**
+	 * Returns the number of steps since the current game started.
+	 * @return the number of steps since the current game started
+	 */
+	public long getTick() {
+		return tick;
+	}
+
+	/**
+	 * Saves the state of the game (including the number of steps).
+	 * @param state state to save into
+	 */
+	public void save( final ModelState state ) {
+		model.save( state );
+		state.tick = tick;
+	}
+
+	/**
+	 * Restores a saved state of the game (including the number of steps).<br>
+	 * The land mark listener is not notified about the marks (the ones dropped or restored).
+	 * @param state state to be restored, must be saved from the current game
+	 */
+	public void restore( final ModelState state ) {
+		model.restore( state );
+		tick = state.tick;
+		model.snapshots.publish( model );
+	}
+
+	/**
+	 * Packs the states of the control keys of a player into the bits of an int: bit i is the state of key i.
+	 * @param keyStates states of the control keys of a player
+	 * @return the packed states of the control keys (fits into a byte)
+	 */
+	public static int packKeys( final boolean[] keyStates ) {
+		int bits = 0;
+		for ( int i = 0; i < KEYS_COUNT; i++ )
+			if ( keyStates[ i ] )
+				bits |= 1 << i;
+		return bits;
+	}
+
+	/**
+	 * Unpacks the states of the control keys of a player packed by {@link #packKeys(boolean[])}.
+	 * @param bits      the packed states of the control keys
+	 * @param keyStates array to unpack the states of the control keys into
+	 */
+	public static void unpackKeys( final int bits, final boolean[] keyStates ) {
+		for ( int i = 0; i < KEYS_COUNT; i++ )
+			keyStates[ i ] = ( bits & 1 << i ) != 0;
+	}
+
+	/**
+	 * Tells whether the game is over (only one team has living players, see {@link Model#isGameOver()}).
+	 * @return true if the game is over; false otherwise
+	 */
+	public boolean isGameOver() {
+		return model.isGameOver();
+	}
+
+	/**
+	 * Calculates the next game iteration.<br>
+	 * If the game is over, the next iteration is equal to the previous one, except the explosions.
+	 *
+	 * @param keyStatess states of the control keys of the players, indexed by player and then by the KEY_XXX constants;
+	 *                   the arrays are not modified and not retained
+	 * @return true if the game is over; false otherwise
+	 */
+	public boolean step( final boolean[][] keyStatess ) {
+		final long start = recordStats ? System.nanoTime() : 0;
+		tick++;
+
+		// We animate the explosions
+		model.explosions.step( 2.3f );
+		long time = recordStats ? Stats.TICK_EXPLOSIONS.record( start ) : 0;
+
+		if ( isGameOver() ) {
+			model.snapshots.publish( model );
+			if ( recordStats ) {
+				Stats.TICK_SNAPSHOT.record( time );
+				Stats.TICK.record( start );
+			}
+			return true;
+		}
+
+		checkCrashes();
+		if ( recordStats )
+			time = Stats.TICK_CRASHES.record( time );
+
+		if ( !isGameOver() ) { // If the crashes ended the game, nothing moves any more
+			// We check and step and handle the living players
+			for ( int i = 0; i < model.players.length; i++ )
+				if ( !model.players[ i ].exploded )
+					stepPlayer( i, keyStatess[ i ] );
+			if ( recordStats )
+				time = Stats.TICK_PLAYERS.record( time );
+
+			stepShots();
+			if ( recordStats )
+				time = Stats.TICK_SHOTS.record( time );
+		}
+
+		// We publish the new state for the view
+		model.snapshots.publish( model );
+		if ( recordStats ) {
+			Stats.TICK_SNAPSHOT.record( time );
+			Stats.TICK.record( start );
+		}
+
+		return isGameOver();
+	}
+
+	/**
+	 * Checks whether the players crashed into each other, crashed into the land or lost their shields,
+	 * and explodes them if they did.<br>
+	 * Players crashing into each other lose their shields. Only the pairs of aircrafts near each other are tested
+	 * (found in the aircrafts grid), and each pair only once, so this scales with the number of the players
+	 * (not with the number of their pairs). The players are exploded after all pairs are tested, so all aircrafts
+	 * of a pile-up crash.
+	 */
+	private void checkCrashes() {
+		// (We only look for the aircrafts near the players.)
+		final SpatialGrid aircrafts = model.aircrafts;
+		for ( final ShapeObject player : model.players ) {
+			if ( player.exploded )
+				continue;
+			final int reach = player.shape.reach;
+			final int count = aircrafts.query( player.getX() - reach, player.getY() - reach, player.getX() + reach, player.getY() + reach );
+			for ( int j = 0; j < count; j++ ) {
+				final ShapeObject aircraft = (ShapeObject) aircrafts.found[ j ];
+				// The pair is tested by the aircraft with the lower grid id
+				if ( aircraft.gridId > player.gridId && Math.abs( player.p[ 2 ] - aircraft.p[ 2 ] ) < 200.0f
+						&& player.intersects( aircraft ) ) {
+					player  .shield = -1.0f;
+					aircraft.shield = -1.0f;
+				}
+			}
+		}
+
+		// The players with no more shield or hitting the land explode
+		// (We check the path of the player in the last step, so it can't fly through a thin ridge.)
+		for ( final ShapeObject player : model.players ) {
+			if ( player.exploded )
+				continue;
+			final float[] p = player.p, v = player.v;
+			final float   x0 = Math.min( BOUNDARIES[ 0 ], Math.max( 0.0f, p[ 0 ] - v[ 0 ] ) ), y0 = Math.min( BOUNDARIES[ 1 ], Math.max( 0.0f, p[ 1 ] - v[ 1 ] ) );
+			final float   z0 = Math.min( BOUNDARIES[ 2 ], Math.max( 0.0f, p[ 2 ] - v[ 2 ] ) );
+			final float   tHit = player.shield < 0.0f ? Float.POSITIVE_INFINITY : model.landPyramid.findImpact( x0, y0, z0, p[ 0 ], p[ 1 ], p[ 2 ], clipRange );
+			if ( player.shield < 0.0f || tHit <= 1.0f ) {
+				if ( player.shield >= 0.0f ) {
+					// The aircraft crashes where its path goes below the land
+					p[ 0 ] = x0 + ( p[ 0 ] - x0 ) * tHit;
+					p[ 1 ] = y0 + ( p[ 1 ] - y0 ) * tHit;
+					p[ 2 ] = z0 + ( p[ 2 ] - z0 ) * tHit;
+					registerObjectMark( player.getX(), player.getY(), 50.0f );
+				}
+				explode( player, 50.0f );
+				player.shield          =  0.0f;
+			}
+		}
+	}
+
+	/**
+	 * Checks, steps and handles a player: turns, accelerates and fires by its control keys.
+	 * @param i         index of the player
+	 * @param keyStates states of the control keys of the player
+	 */
+	private void stepPlayer( final int i, final boolean[] keyStates ) {
+		final ShapeObject player = model.players[ i ];
+
+		if ( keyStates[ KEY_RIGHT  ] )
+			player.direction += 0.1f;
+		if ( keyStates[ KEY_LEFT   ] )
+			player.direction -= 0.1f;
+
+		// We keep direction between -PI and PI
+		if ( player.direction < -PI )
+			player.direction += 2.0f*PI;
+		if ( player.direction > PI )
+			player.direction -= 2.0f*PI;
+
+		player.v[ 2 ] = 0f;                  // There is no vertical acceleration, vertical movement is 3-phased: up, down, or none
+		if ( keyStates[ KEY_ASCEN  ] ) {
+			player.v[ 2 ] += 30.0f;
+		}
+		if ( keyStates[ KEY_DESCEN ] ) {
+			player.v[ 2 ] -= 40.0f;
+		}
+		if ( !keyStates[ KEY_ASCEN ] && !keyStates[ KEY_DESCEN ] ) {// If we dont accelerate, we slow down
+			player.v[ 0 ] *= 0.95f;
+			player.v[ 1 ] *= 0.95f;
+		}
+
+		if ( keyStates[ KEY_ACC    ] ) {
+			player.v[ 0 ] += ACCELERATION * StrictMath.cos( player.direction );
+			player.v[ 1 ] += ACCELERATION * StrictMath.sin( player.direction );
+		}
+		if ( keyStates[ KEY_BREAK  ] ) {
+			player.v[ 0 ] -= ACCELERATION * StrictMath.cos( player.direction );
+			player.v[ 1 ] -= ACCELERATION * StrictMath.sin( player.direction );
+		}
+
+		// We make sure that the players velocity doesnt grow beyond a certain value
+		while ( StrictMath.hypot( player.v[ 0 ], player.v[ 1 ] ) > 9.0 )
+			for ( int j = 0; j < 2; j++ )   // We decrease the velocity while the direction must not change
+				player.v[ j ] *= 0.93f;
+
+		// Now we step the player
+		// (We have to do this before making new shots and moving them outside the player,
+		// or else stepping the player could cause stepping onto his own shot and resulting in hurting himslef!)
+		player.step();
+
+		final ShotPool shots = model.shots;
+		
+		// The shots target the nearest enemy (there is one, else the game would be over)
+		final int target = keyStates[ KEY_FIRE1 ] || keyStates[ KEY_FIRE2 ] ? model.findNearestPlayer( player.p[ 0 ], player.p[ 1 ], player.p[ 2 ], player.team, true ) : -1;
+		
+		if ( keyStates[ KEY_FIRE1  ] && player.reloadings[ 0 ] == 1.0f ) {
+			final float[] targetPos = model.players[ target ].p; // We want the bullet to target the nearest enemy
+
+			final float  dh = targetPos[ 2 ] - player.p[ 2 ];
+			final double dx = targetPos[ 0 ] - player.p[ 0 ];
+			final double dy = targetPos[ 1 ] - player.p[ 1 ];
+			// We initialize the bullet starter position to the position of the player.
+			// Vertical component of bullet velocity is determined: if target doesn't move, bullet must hit it.
+			final int bullet = shots.add( ShotPool.BULLET, player.p[ 0 ], player.p[ 1 ], player.p[ 2 ],
+					BULLET_VELOCITY * (float) StrictMath.cos( player.direction ), BULLET_VELOCITY * (float) StrictMath.sin( player.direction ),
+					BULLET_VELOCITY * dh / (float) Math.sqrt( dx * dx + dy * dy ), target );
+
+			// We move the bullet outside the player, we dont want it to hit his owner (but we ensure we won't stuck inside)
+			for ( int j = 0; player.contains( player.shape.swept, shots.x[ bullet ], shots.y[ bullet ] ) && j < 50; j++ )
+				shots.step( bullet );
+
+			player.reloadings[ 0 ] = 0.0f;
+		}
+
+		if ( keyStates[ KEY_FIRE2  ] && player.reloadings[ 1 ] == 1.0f ) {
+			// We initialize the rocket starter position to the position of the player. The rocket targets the nearest enemy.
+			final int rocket = shots.add( ShotPool.ROCKET, player.p[ 0 ], player.p[ 1 ], player.p[ 2 ],
+					ROCKET_VELOCITY * (float) StrictMath.cos( player.direction ), ROCKET_VELOCITY * (float) StrictMath.sin( player.direction ), 0.0f, target );
+
+			// We move the rocket outside the player, we dont want it to hit his owner (but we ensure we won't stuck inside)
+			// (The rocket faces the direction of the player.)
+			for ( int j = 0; player.contains( ROCKET_HIT_SHAPES[ 0 ], shots.x[ rocket ], shots.y[ rocket ] ) && j < 50; j++ )
+				shots.step( rocket );
+
+			player.reloadings[ 1 ] = 0.0f;
+		}
+
+		player.reloadings[ 0 ] = Math.min( 1.0f, player.reloadings[ 0 ] + 0.1f   );
+		player.reloadings[ 1 ] = Math.min( 1.0f, player.reloadings[ 1 ] + 0.007f );
+	}
+
+	/**
+	 * Steps the bullets and rockets, and handles the ones hitting the land or a player.<br>
+	 * The rockets are steered towards their targets first, all of them in one batch (see {@link RocketGuidance}).
+	 * The rockets following a dead player follow its nearest living teammate instead; if it has none, they dive into the land.<br>
+	 * A shot is stepped once per step. Its path in the step (a segment) is swept against the shapes of the aircrafts
+	 * near it (see {@link SweptShape#sweep(float, float, float, float, float, float, float[])}), so a hit is found
+	 * wherever it happens along the path (even if the shot passes through the aircraft), and the first hit wins.
+	 * The path is also traversed over the cells of the land (see {@link HeightPyramid#findImpact(float, float, float, float, float, float, float[])}),
+	 * so the shot hits the land exactly where its path goes below it (even if it would pass through a thin ridge).<br>
+	 * Dead shots are removed right away (the last shot is moved to their place, which is processed next).
+	 */
+	private void stepShots() {
+		final ShotPool      shots     = model.shots;
+		final SpatialGrid   aircrafts = model.aircrafts;
+		final float[]       t         = clipRange;
+		
+		// The rockets follow their targets (all of them at once)
+		boolean retarget = false;
+		for ( int i = 0; i < model.players.length; i++ ) {
+			final ShapeObject player = model.players[ i ];
+			targetXs[ i ] = player.p[ 0 ];
+			targetYs[ i ] = player.p[ 1 ];
+			targetZs[ i ] = player.p[ 2 ];
+			newTargets[ i ] = -1;
+			if ( player.exploded ) {
+				newTargets[ i ] = model.findNearestPlayer( player.p[ 0 ], player.p[ 1 ], player.p[ 2 ], player.team, false );
+				if ( newTargets[ i ] < 0 )
+					targetZs[ i ] = Float.NEGATIVE_INFINITY; // Nobody to follow, they go down
+				else
+					retarget = true;
+			}
+		}
+		if ( retarget )
+			for ( int shot = 0; shot < shots.size; shot++ )
+				if ( newTargets[ shots.target[ shot ] ] >= 0 )
+					shots.target[ shot ] = newTargets[ shots.target[ shot ] ];
+		GUIDANCE.steer( shots, targetXs, targetYs, targetZs );
+		
+		for ( int shot = 0; shot < shots.size; ) {
+			final boolean isRocket = shots.type[ shot ] == ShotPool.ROCKET;
+			
+			final float x0 = shots.x [ shot ], y0 = shots.y [ shot ], z0 = shots.z [ shot ];
+			final float dx = shots.vx[ shot ], dy = shots.vy[ shot ], dz = shots.vz[ shot ];
+			
+			// The first point of the path in the land (or at 0 height)
+			float tHit = model.landPyramid.findImpact( x0, y0, z0, x0 + dx, y0 + dy, z0 + dz, t );
+			if ( z0 + dz <= 0.0f )
+				tHit = Math.min( tHit, dz < 0.0f ? Math.max( 0.0f, -z0 / dz ) : 0.0f );
+			boolean hitsLand = tHit <= 1.0f;
+			
+			// The first aircraft on the path before that (only the aircrafts near the path can be hit)
+			final int reach = isRocket ? ShapeTemplate.ROCKET.reach : 0;
+			final int count = aircrafts.query( (int) Math.min( x0, x0 + dx ) - reach, (int) Math.min( y0, y0 + dy ) - reach,
+					(int) Math.max( x0, x0 + dx ) + reach, (int) Math.max( y0, y0 + dy ) + reach );
+			final ShapeObject hitPlayer = count == 0 ? null : findHitAircraft( count, isRocket, x0, y0, z0, dx, dy, dz, tHit );
+			if ( hitPlayer != null )
+				tHit = t[ 0 ];
+			
+			final boolean deadShot;
+			if ( hitPlayer != null ) {
+				deadShot           = true;
+				hitsLand           = false;
+				// We want the explosion in the center of the player being hit
+				shots.x[ shot ]    = hitPlayer.p[ 0 ];
+				shots.y[ shot ]    = hitPlayer.p[ 1 ];
+				shots.z[ shot ]    = z0 + dz * tHit;
+				hitPlayer.shield  -= isRocket ? 0.3f : 0.05f;
+			}
+			else if ( hitsLand ) {
+				deadShot           = true;
+				shots.x[ shot ]    = Math.min( BOUNDARIES[ 0 ], Math.max( 0.0f, x0 + dx * tHit ) );
+				shots.y[ shot ]    = Math.min( BOUNDARIES[ 1 ], Math.max( 0.0f, y0 + dy * tHit ) );
+				shots.z[ shot ]    = Math.min( BOUNDARIES[ 2 ], Math.max( 0.0f, z0 + dz * tHit ) );
+			}
+			else
+				deadShot = shots.step( shot ); // Shots leaving the land are destroyed
+			
+			if ( deadShot ) {
+				final float explosionRadius = isRocket ? 30.0f : 0.0f;
+				if ( isRocket )
+					model.explosions.add( shots.x[ shot ], shots.y[ shot ], shots.z[ shot ], explosionRadius );
+				if ( hitsLand )
+					registerObjectMark( (int) shots.x[ shot ], (int) shots.y[ shot ], explosionRadius );
+				shots.remove( shot ); // The last shot comes here, we process it next
+			}
+			else
+				shot++;
+		}
+	}
+
+	/**
+	 * Finds the first aircraft hit by a shot on its path in the step, from the aircrafts found near the path.
+	 * Bullets hit if their center point hits the aircraft, rockets if their shape does (both rotated and scaled as they are drawn).
+	 * If more aircrafts are hit at the same time, the one with the lower player index is hit (the order of the found aircrafts
+	 * depends on the order they were added to the grid, which is different in a restored model).
+	 * @param count    number of the aircrafts found near the path (in {@link SpatialGrid#found} of the aircrafts grid)
+	 * @param isRocket tells whether the shot is a rocket
+	 * @param x0       x coordinate of the shot
+	 * @param y0       y coordinate of the shot
+	 * @param z0       height of the shot
+	 * @param dx       x component of the velocity of the shot
+	 * @param dy       y component of the velocity of the shot
+	 * @param dz       vertical component of the velocity of the shot
+	 * @param before   parameter of the path where the shot hits the land (only the aircrafts hit before that are considered)
+	 * @return the aircraft hit first, or null if no aircraft is hit; the parameter of the path where it is hit is stored in <code>clipRange[ 0 ]</code>
+	 */
+	private ShapeObject findHitAircraft( final int count, final boolean isRocket, final float x0, final float y0, final float z0, final float dx, final float dy, final float dz, final float before ) {
+		final SpatialGrid aircrafts = model.aircrafts;
+		final float[]     t         = clipRange;
+		ShapeObject hitAircraft    = null;
+		float       tHit           = before;
+		int         rocketRotation = -1; // Calculated if a rocket is near an aircraft
+		for ( int j = 0; j < count; j++ ) {
+			final ShapeObject aircraft = (ShapeObject) aircrafts.found[ j ];
+			// The part of the path in the height range of the aircraft
+			t[ 0 ] = 0.0f;
+			t[ 1 ] = Math.min( 1.0f, tHit );
+			final float dh = z0 - aircraft.p[ 2 ];
+			if ( dz == 0.0f ) {
+				if ( Math.abs( dh ) >= HIT_HEIGHT )
+					continue;
+			}
+			else {
+				final float ta = ( -HIT_HEIGHT - dh ) / dz, tb = ( HIT_HEIGHT - dh ) / dz;
+				t[ 0 ] = Math.max( t[ 0 ], Math.min( ta, tb ) );
+				t[ 1 ] = Math.min( t[ 1 ], Math.max( ta, tb ) );
+			}
+			if ( t[ 0 ] > t[ 1 ] )
+				continue;
+			if ( isRocket && rocketRotation < 0 )
+				rocketRotation = ShapeTemplate.toRotation( (float) StrictMath.atan2( dy, dx ) );
+			final SweptShape hitShape = isRocket ? ROCKET_HIT_SHAPES[ rocketRotation - aircraft.getRotation() & ShapeTemplate.ROTATIONS - 1 ] : aircraft.shape.swept;
+			if ( aircraft.sweep( hitShape, x0, y0, dx, dy, t )
+					&& ( t[ 0 ] < tHit || t[ 0 ] == tHit && hitAircraft != null && aircraft.index < hitAircraft.index ) ) {
+				tHit        = t[ 0 ];
+				hitAircraft = aircraft;
+			}
+		}
+		t[ 0 ] = tHit;
+		return hitAircraft;
+	}
+
+	/**
+	 * Explodes an aircraft: an explosion is started at its position, and it is no longer an aircraft in the grid.
+	 * @param aircraft        aircraft to be exploded
+	 * @param explosionRadius radius of the explosion
+	 */
+	private void explode( final ShapeObject aircraft, final float explosionRadius ) {
+		aircraft.exploded = true;
+		model.explosions.add( aircraft.p[ 0 ], aircraft.p[ 1 ], aircraft.p[ 2 ], explosionRadius );
+		if ( aircraft.grid != null )
+			aircraft.grid.remove( aircraft );
+	}
+
+	/**
+	 * Counts a new mark in the model, and notifies the land mark listener (if there is one) about it.
+	 * @param x               x coordinate of the mark
+	 * @param y               y coordinate of the mark
+	 * @param explosionRadius radius of the explosion which left the mark, or 0 if the mark was left by a bullet
+	 */
+	private void registerObjectMark( final int x, final int y, final float explosionRadius ) {
+		model.marksCount++;
+		if ( markListener != null )
+			markListener.registerObjectMark( x, y, explosionRadius );
+	}
+
+}
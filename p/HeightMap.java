@@ -0,0 +1,229 @@
+package p;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * A square map of heights (the land).<br>
+ * The heights are stored row by row in one contiguous storage (and not in an array of arrays),
+ * so looking up a height is a single index calculation and a single bounds check.<br>
+ * Implementations:
+ * <ul>
+ *     <li>heights in a float array on the heap (default),
+ *     <li>heights in a float buffer (off-heap if the buffer is direct),
+ *     <li>heights quantized to 16 bits in a short buffer, which halves the memory of the map
+ *         (we don't use the float precision anyway, the quantum is a few hundredth of a height unit).
+ * </ul>
+ * {@link #create(int, float, float)} chooses the implementation by the <code>landfight.land.offHeap</code> and
+ * <code>landfight.land.quantized</code> boolean system properties.
+ *
+ * @author Andras Belicza
+ */
+abstract class HeightMap {
+
+	/** Size of the map in both of the coordinate axis. */
+	public final int size;
+
+
+	/**
+	 * Creates a new HeightMap.
+	 * @param size size of the map in both of the coordinate axis
+	 */
+	HeightMap( final int size ) {
+		this.size = size;
+	}
+
+	/**
+	 * Creates a new height map whose implementation is chosen by the system properties.
+	 * @param size      size of the map in both of the coordinate axis
+	 * @param minHeight minimum height to be stored in the map
+	 * @param maxHeight maximum height to be stored in the map
+	 * @return a new height map
+	 */
+	public static HeightMap create( final int size, final float minHeight, final float maxHeight ) {
+		final boolean offHeap = Boolean.getBoolean( "landfight.land.offHeap" );
+
+		if ( isQuantizedConfigured() )
+			return new Quantized( size, minHeight, maxHeight, offHeap
+					? ByteBuffer.allocateDirect( size * size * 2 ).order( ByteOrder.nativeOrder() ).asShortBuffer()
+					: ShortBuffer.allocate( size * size ) );
+
+		return offHeap ? new Buffer( size, ByteBuffer.allocateDirect( size * size * 4 ).order( ByteOrder.nativeOrder() ).asFloatBuffer() )
+				: new Array( size );
+	}
+
+	/**
+	 * Tells whether {@link #create(int, float, float)} creates quantized height maps (by the system properties).<br>
+	 * A generated land has different heights in the two modes, so a land must only be loaded in the mode it would be generated in.
+	 * @return true if the created height maps are quantized to 16 bits; false if they store floats
+	 */
+	public static boolean isQuantizedConfigured() {
+		return Boolean.getBoolean( "landfight.land.quantized" );
+	}
+
+	/**
+	 * Wraps the specified data into a height map (the data is not copied).
+	 * @param data      data of the heights, row by row; its byte order is used
+	 * @param size      size of the map in both of the coordinate axis
+	 * @param quantized tells whether the data contains 16 bit quantized heights or floats
+	 * @param minHeight minimum height to be stored in the map
+	 * @param maxHeight maximum height to be stored in the map
+	 * @return a height map backed by the specified data
+	 */
+	public static HeightMap wrap( final ByteBuffer data, final int size, final boolean quantized, final float minHeight, final float maxHeight ) {
+		return quantized ? new Quantized( size, minHeight, maxHeight, data.asShortBuffer() ) : new Buffer( size, data.asFloatBuffer() );
+	}
+
+	/**
+	 * Tells whether the heights are quantized to 16 bits.
+	 * @return true if the heights are quantized to 16 bits; false if they are floats
+	 */
+	public boolean isQuantized() {
+		return false;
+	}
+
+	/**
+	 * Writes the heights row by row to the specified buffer in the buffer's byte order,
+	 * in the format of this height map (floats or 16 bit quantized heights).
+	 * @param target buffer to write to
+	 */
+	public abstract void writeTo( ByteBuffer target );
+
+	/**
+	 * Returns the height at the specified position.
+	 * @param x x coordinate of the position
+	 * @param y y coordinate of the position
+	 * @return the height at the specified position
+	 */
+	public abstract float get( int x, int y );
+
+	/**
+	 * Sets the height at the specified position.
+	 * @param x      x coordinate of the position
+	 * @param y      y coordinate of the position
+	 * @param height the height to be set
+	 */
+	public abstract void set( int x, int y, float height );
+
+
+	/**
+	 * Height map storing the heights in a float array.
+	 */
+	static final class Array extends HeightMap {
+
+		/** The heights, row by row. */
+		private final float[] heights;
+
+		/**
+		 * Creates a new Array height map.
+		 * @param size size of the map in both of the coordinate axis
+		 */
+		Array( final int size ) {
+			super( size );
+			heights = new float[ size * size ];
+		}
+
+		public float get( final int x, final int y ) {
+			return heights[ y * size + x ];
+		}
+
+		public void set( final int x, final int y, final float height ) {
+			heights[ y * size + x ] = height;
+		}
+
+		public void writeTo( final ByteBuffer target ) {
+			target.asFloatBuffer().put( heights );
+		}
+
+	}
+
+
+	/**
+	 * Height map storing the heights in a float buffer.
+	 */
+	static final class Buffer extends HeightMap {
+
+		/** The heights, row by row. */
+		private final FloatBuffer heights;
+
+		/**
+		 * Creates a new Buffer height map.
+		 * @param size    size of the map in both of the coordinate axis
+		 * @param heights buffer of the heights, its capacity must be at least size*size
+		 */
+		Buffer( final int size, final FloatBuffer heights ) {
+			super( size );
+			this.heights = heights;
+		}
+
+		public float get( final int x, final int y ) {
+			return heights.get( y * size + x );
+		}
+
+		public void set( final int x, final int y, final float height ) {
+			heights.put( y * size + x, height );
+		}
+
+		public void writeTo( final ByteBuffer target ) {
+			target.asFloatBuffer().put( heights.duplicate() );
+		}
+
+	}
+
+
+	/**
+	 * Height map storing the heights quantized to 16 bits in a short buffer.<br>
+	 * The minimum height is stored as <code>Short.MIN_VALUE</code>, the maximum height as <code>Short.MAX_VALUE</code>,
+	 * heights outside of this range are clamped.
+	 */
+	static final class Quantized extends HeightMap {
+
+		/** The quantized heights, row by row.      */
+		private final ShortBuffer heights;
+		/** The minimum storable height.            */
+		private final float       minHeight;
+		/** The maximum storable height.            */
+		private final float       maxHeight;
+		/** Number of quanta in a height unit.      */
+		private final float       scale;
+		/** Size of a quantum in height units.      */
+		private final float       quantum;
+
+		/**
+		 * Creates a new Quantized height map.
+		 * @param size      size of the map in both of the coordinate axis
+		 * @param minHeight the minimum storable height
+		 * @param maxHeight the maximum storable height
+		 * @param heights   buffer of the quantized heights, its capacity must be at least size*size
+		 */
+		Quantized( final int size, final float minHeight, final float maxHeight, final ShortBuffer heights ) {
+			super( size );
+			this.heights   = heights;
+			this.minHeight = minHeight;
+			this.maxHeight = maxHeight;
+			scale          = 65535.0f / ( maxHeight - minHeight );
+			quantum        = ( maxHeight - minHeight ) / 65535.0f;
+		}
+
+		public float get( final int x, final int y ) {
+			return minHeight + ( heights.get( y * size + x ) - Short.MIN_VALUE ) * quantum;
+		}
+
+		public void set( final int x, final int y, final float height ) {
+			final float clamped = Math.max( minHeight, Math.min( height, maxHeight ) );
+			heights.put( y * size + x, (short) ( Math.round( ( clamped - minHeight ) * scale ) + Short.MIN_VALUE ) );
+		}
+
+		public boolean isQuantized() {
+			return true;
+		}
+
+		public void writeTo( final ByteBuffer target ) {
+			target.asShortBuffer().put( heights.duplicate() );
+		}
+
+	}
+
+}
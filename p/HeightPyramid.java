@@ -0,0 +1,352 @@
+package p;
+
+import java.util.stream.IntStream;
+
+/**
+ * Min/max pyramid of a {@link HeightMap} (a min/max mipmap): the minimum and maximum heights of square blocks of the map,
+ * level by level.<br>
+ * The blocks of the first level are 2^BASE_SHIFT (4) cells wide, the blocks of a level are 2x2 blocks of the previous level,
+ * and the last level is a single block covering the whole map. A query starts from the last level and only descends
+ * into the blocks which may change its answer: a block fully inside the queried area, or a block whose heights
+ * are all below (or all above) the queried height is answered by its min/max, so a query visits a few blocks per level
+ * instead of every cell of the area (only the cells of the first level blocks at the boundary of the area are scanned).<br>
+ * The pyramid is about 1/8 of the size of the map. It must be rebuilt when the map is replaced ({@link #build(HeightMap)}).
+ *
+ * @author Andras Belicza
+ */
+class HeightPyramid {
+
+	/** Size of the blocks of the first level is 2^BASE_SHIFT.                    */
+	public  static final int BASE_SHIFT = 2;
+
+	/** Size of the map in both of the coordinate axis.                           */
+	public  final int        size;
+	/** Number of the levels.                                                      */
+	public  final int        levelsCount;
+	/** Number of blocks of the levels in both of the coordinate axis.            */
+	private final int[]      blocksCounts;
+	/** Minimum heights of the blocks of the levels, row by row.                  */
+	private final float[][]  mins;
+	/** Maximum heights of the blocks of the levels, row by row.                  */
+	private final float[][]  maxs;
+	/** The height map of the pyramid.                                             */
+	private       HeightMap  map;
+
+
+	/**
+	 * Creates a new HeightPyramid.
+	 * @param size size of the height maps in both of the coordinate axis
+	 */
+	public HeightPyramid( final int size ) {
+		this.size = size;
+
+		int levels = 1;
+		while ( ( size - 1 ) >> BASE_SHIFT + levels - 1 > 0 )
+			levels++;
+		levelsCount  = levels;
+		blocksCounts = new int    [ levels ];
+		mins         = new float  [ levels ][];
+		maxs         = new float  [ levels ][];
+		for ( int level = 0; level < levels; level++ ) {
+			blocksCounts[ level ] = ( ( size - 1 ) >> BASE_SHIFT + level ) + 1;
+			mins[ level ] = new float[ blocksCounts[ level ] * blocksCounts[ level ] ];
+			maxs[ level ] = new float[ blocksCounts[ level ] * blocksCounts[ level ] ];
+		}
+	}
+
+	/**
+	 * Builds the pyramid of a height map. The rows of blocks of the first level are calculated in parallel.
+	 * @param map the height map (of the size of the pyramid)
+	 */
+	public void build( final HeightMap map ) {
+		this.map = map;
+		IntStream.range( 0, blocksCounts[ 0 ] ).parallel().forEach( this::calculateFirstLevelRow );
+		for ( int level = 1; level < levelsCount; level++ )
+			for ( int by = 0; by < blocksCounts[ level ]; by++ )
+				for ( int bx = 0; bx < blocksCounts[ level ]; bx++ )
+					calculateBlock( level, bx, by );
+	}
+
+	/**
+	 * Calculates the min and max heights of a row of blocks of the first level.<br>
+	 * The cells are read row by row (in the order of the map).
+	 * @param by y coordinate of the row of blocks
+	 */
+	private void calculateFirstLevelRow( final int by ) {
+		final int     offset = by * blocksCounts[ 0 ];
+		final float[] min    = mins[ 0 ], max = maxs[ 0 ];
+		for ( int bx = 0; bx < blocksCounts[ 0 ]; bx++ ) {
+			min[ offset + bx ] = Float.POSITIVE_INFINITY;
+			max[ offset + bx ] = Float.NEGATIVE_INFINITY;
+		}
+		for ( int y = by << BASE_SHIFT; y < Math.min( size, ( by + 1 ) << BASE_SHIFT ); y++ )
+			for ( int x = 0; x < size; x++ ) {
+				final float height = map.get( x, y );
+				final int   index  = offset + ( x >> BASE_SHIFT );
+				if ( height < min[ index ] )
+					min[ index ] = height;
+				if ( height > max[ index ] )
+					max[ index ] = height;
+			}
+	}
+
+	/**
+	 * Calculates the min and max heights of a block from the cells (first level) or from the blocks of the previous level.
+	 * @param level level of the block
+	 * @param bx    x coordinate of the block on its level
+	 * @param by    y coordinate of the block on its level
+	 */
+	private void calculateBlock( final int level, final int bx, final int by ) {
+		float min = Float.POSITIVE_INFINITY, max = Float.NEGATIVE_INFINITY;
+		if ( level == 0 ) {
+			final int x0 = bx << BASE_SHIFT, x1 = Math.min( size, x0 + ( 1 << BASE_SHIFT ) );
+			final int y0 = by << BASE_SHIFT, y1 = Math.min( size, y0 + ( 1 << BASE_SHIFT ) );
+			for ( int y = y0; y < y1; y++ )
+				for ( int x = x0; x < x1; x++ ) {
+					final float height = map.get( x, y );
+					min = Math.min( min, height );
+					max = Math.max( max, height );
+				}
+		}
+		else {
+			final int childrenCount = blocksCounts[ level - 1 ];
+			final float[] childMins = mins[ level - 1 ], childMaxs = maxs[ level - 1 ];
+			for ( int cy = by * 2; cy < Math.min( childrenCount, by * 2 + 2 ); cy++ )
+				for ( int cx = bx * 2; cx < Math.min( childrenCount, bx * 2 + 2 ); cx++ ) {
+					min = Math.min( min, childMins[ cy * childrenCount + cx ] );
+					max = Math.max( max, childMaxs[ cy * childrenCount + cx ] );
+				}
+		}
+		mins[ level ][ by * blocksCounts[ level ] + bx ] = min;
+		maxs[ level ][ by * blocksCounts[ level ] + bx ] = max;
+	}
+
+	/**
+	 * Returns the maximum height of an area of the map.
+	 * @param x0 x coordinate of the first cell of the area
+	 * @param y0 y coordinate of the first cell of the area
+	 * @param x1 x coordinate of the last cell of the area
+	 * @param y1 y coordinate of the last cell of the area
+	 * @return the maximum height of the area (the area is clipped to the map), or negative infinity if the area is empty
+	 */
+	public float getMax( final int x0, final int y0, final int x1, final int y1 ) {
+		return getMax( levelsCount - 1, 0, 0, Math.max( 0, x0 ), Math.max( 0, y0 ), Math.min( size - 1, x1 ), Math.min( size - 1, y1 ), Float.NEGATIVE_INFINITY );
+	}
+
+	/**
+	 * Returns the maximum of the specified height and the maximum height of the part of an area covered by a block.
+	 * @param level level of the block
+	 * @param bx    x coordinate of the block on its level
+	 * @param by    y coordinate of the block on its level
+	 * @param x0    x coordinate of the first cell of the area
+	 * @param y0    y coordinate of the first cell of the area
+	 * @param x1    x coordinate of the last cell of the area
+	 * @param y1    y coordinate of the last cell of the area
+	 * @param max   the maximum height found so far
+	 * @return the maximum of max and the maximum height of the part of the area covered by the block
+	 */
+	private float getMax( final int level, final int bx, final int by, final int x0, final int y0, final int x1, final int y1, float max ) {
+		final int shift = BASE_SHIFT + level;
+		final int bx0 = bx << shift, by0 = by << shift, bx1 = bx0 + ( 1 << shift ) - 1, by1 = by0 + ( 1 << shift ) - 1;
+		if ( bx0 > x1 || by0 > y1 || bx1 < x0 || by1 < y0 || maxs[ level ][ by * blocksCounts[ level ] + bx ] <= max )
+			return max; // Outside of the area, or can't be higher
+		if ( bx0 >= x0 && by0 >= y0 && bx1 <= x1 && by1 <= y1 )
+			return maxs[ level ][ by * blocksCounts[ level ] + bx ];
+
+		if ( level == 0 ) {
+			for ( int y = Math.max( y0, by0 ); y <= Math.min( y1, by1 ); y++ )
+				for ( int x = Math.max( x0, bx0 ); x <= Math.min( x1, bx1 ); x++ )
+					max = Math.max( max, map.get( x, y ) );
+			return max;
+		}
+		// The children inside the area first: they're cheap, and the children at the boundary may not change the maximum
+		final int childrenCount = blocksCounts[ level - 1 ], childShift = shift - 1;
+		for ( int pass = 0; pass < 2; pass++ )
+			for ( int cy = by * 2; cy < Math.min( childrenCount, by * 2 + 2 ); cy++ )
+				for ( int cx = bx * 2; cx < Math.min( childrenCount, bx * 2 + 2 ); cx++ ) {
+					final boolean inside = cx << childShift >= x0 && cy << childShift >= y0 && ( cx + 1 << childShift ) - 1 <= x1 && ( cy + 1 << childShift ) - 1 <= y1;
+					if ( inside == ( pass == 0 ) )
+						max = getMax( level - 1, cx, cy, x0, y0, x1, y1, max );
+				}
+		return max;
+	}
+
+	/**
+	 * Finds the first point of a segment which is below the land: where a moving object following the segment hits the land.<br>
+	 * The blocks crossed by the segment are visited from the start point towards the end point, and a block is only
+	 * descended into if the segment is not above all of its cells; in the blocks of the first level the crossed cells
+	 * are walked one by one along the segment (DDA). A cell (x, y) is the unit square [x, x+1) x [y, y+1), its height is constant,
+	 * so the impact point is exact: it is where the segment enters a cell higher than the segment,
+	 * or where the segment descends below the height of a cell. The cells outside of the map are not hit,
+	 * and neither are the cells the segment only touches in a point which is not in the cell (e.g. starting on their right side).
+	 * @param x0 x coordinate of the start point of the segment
+	 * @param y0 y coordinate of the start point of the segment
+	 * @param z0 height of the start point of the segment
+	 * @param x1 x coordinate of the end point of the segment
+	 * @param y1 y coordinate of the end point of the segment
+	 * @param z1 height of the end point of the segment
+	 * @param t  array to clip the segment into (reused)
+	 * @return the parameter of the impact point (0 at the start point, 1 at the end point), or positive infinity if the segment is clear of the land
+	 */
+	public float findImpact( final float x0, final float y0, final float z0, final float x1, final float y1, final float z1, final float[] t ) {
+		// We start from the lowest level where the bounding box of the segment is covered by (at most) 2x2 blocks
+		final int xMin = Math.max( 0, (int) Math.min( x0, x1 ) ), xMax = Math.min( size - 1, (int) Math.max( x0, x1 ) );
+		final int yMin = Math.max( 0, (int) Math.min( y0, y1 ) ), yMax = Math.min( size - 1, (int) Math.max( y0, y1 ) );
+		if ( xMin > xMax || yMin > yMax )
+			return Float.POSITIVE_INFINITY; // Outside of the map
+		int level = 0;
+		while ( level < levelsCount - 1 && ( ( xMax >> BASE_SHIFT + level ) - ( xMin >> BASE_SHIFT + level ) > 1 || ( yMax >> BASE_SHIFT + level ) - ( yMin >> BASE_SHIFT + level ) > 1 ) )
+			level++;
+		final int shift = BASE_SHIFT + level;
+		return findImpactInChildren( level, xMin >> shift, yMin >> shift, xMax >> shift, yMax >> shift, x0, y0, z0, x1, y1, z1, Float.POSITIVE_INFINITY, t );
+	}
+
+	/**
+	 * Finds the first point of the part of a segment crossing a range of (at most 2x2) blocks which is below the land,
+	 * if it is before a parameter. The blocks are visited in the order the segment crosses them
+	 * (a segment can't cross both blocks off the diagonal of 2x2 blocks).
+	 * @param level  level of the blocks
+	 * @param bx0    x coordinate of the first block on its level
+	 * @param by0    y coordinate of the first block on its level
+	 * @param bx1    x coordinate of the last block on its level
+	 * @param by1    y coordinate of the last block on its level
+	 * @param x0     x coordinate of the start point of the segment
+	 * @param y0     y coordinate of the start point of the segment
+	 * @param z0     height of the start point of the segment
+	 * @param x1     x coordinate of the end point of the segment
+	 * @param y1     y coordinate of the end point of the segment
+	 * @param z1     height of the end point of the segment
+	 * @param before parameter of the first impact point found so far (the points after it don't have to be examined)
+	 * @param t      array to clip the segment into (reused)
+	 * @return the parameter of the impact point in the blocks if it is before <code>before</code>; <code>before</code> otherwise
+	 */
+	private float findImpactInChildren( final int level, final int bx0, final int by0, final int bx1, final int by1,
+			final float x0, final float y0, final float z0, final float x1, final float y1, final float z1, float before, final float[] t ) {
+		final boolean flipX = x1 < x0, flipY = y1 < y0;
+		for ( int i = 0; i <= bx1 - bx0; i++ )
+			for ( int j = 0; j <= by1 - by0; j++ )
+				before = findImpact( level, flipX ? bx1 - i : bx0 + i, flipY ? by1 - j : by0 + j, x0, y0, z0, x1, y1, z1, before, t );
+		return before;
+	}
+
+	/**
+	 * Finds the first point of the part of a segment crossing a block which is below the land, if it is before a parameter.
+	 * @param level  level of the block
+	 * @param bx     x coordinate of the block on its level
+	 * @param by     y coordinate of the block on its level
+	 * @param x0     x coordinate of the start point of the segment
+	 * @param y0     y coordinate of the start point of the segment
+	 * @param z0     height of the start point of the segment
+	 * @param x1     x coordinate of the end point of the segment
+	 * @param y1     y coordinate of the end point of the segment
+	 * @param z1     height of the end point of the segment
+	 * @param before parameter of the first impact point found so far (the points after it don't have to be examined)
+	 * @param t      array to clip the segment into (reused)
+	 * @return the parameter of the impact point in the block if it is before <code>before</code>; <code>before</code> otherwise
+	 */
+	private float findImpact( final int level, final int bx, final int by, final float x0, final float y0, final float z0, final float x1, final float y1, final float z1,
+			final float before, final float[] t ) {
+		final int shift = BASE_SHIFT + level;
+		if ( !clip( bx << shift, by << shift, ( bx + 1 ) << shift, ( by + 1 ) << shift, x0, y0, x1, y1, t ) || t[ 0 ] >= before )
+			return before; // The segment doesn't cross the block (before the impact point found so far)
+		final float dx = x1 - x0, dy = y1 - y0;
+		// The clipping rectangle is closed, but the block is not: a segment only touching its right or bottom side
+		// (e.g. starting or ending there) doesn't cross it, the middle of the clipped part is outside of the block
+		final float tMiddle = ( t[ 0 ] + t[ 1 ] ) * 0.5f;
+		if ( (int) Math.floor( x0 + dx * tMiddle ) >> shift != bx || (int) Math.floor( y0 + dy * tMiddle ) >> shift != by )
+			return before;
+		final float tEnter = t[ 0 ], tExit = Math.min( t[ 1 ], before );
+		// The height is linear along the segment, its minimum and maximum in the block are at the ends of the crossing part
+		final float dz     = z1 - z0;
+		final float zEnter = z0 + dz * tEnter, zExit = z0 + dz * tExit;
+		final int   index  = by * blocksCounts[ level ] + bx;
+		if ( Math.min( zEnter, zExit ) >= maxs[ level ][ index ] )
+			return before; // Above all cells of the block
+		if ( zEnter < mins[ level ][ index ] && ( bx + 1 << shift ) <= size && ( by + 1 << shift ) <= size )
+			return tEnter; // Below all cells of the block (and all cells are in the map), it is hit where the segment enters it
+
+		if ( level > 0 ) {
+			final int childrenCount = blocksCounts[ level - 1 ];
+			return findImpactInChildren( level - 1, bx * 2, by * 2, Math.min( childrenCount - 1, bx * 2 + 1 ), Math.min( childrenCount - 1, by * 2 + 1 ),
+					x0, y0, z0, x1, y1, z1, before, t );
+		}
+
+		// We walk the crossed cells of the block along the segment (DDA)
+		final int bx0 = bx << BASE_SHIFT, by0 = by << BASE_SHIFT, bx1 = bx0 + ( 1 << BASE_SHIFT ) - 1, by1 = by0 + ( 1 << BASE_SHIFT ) - 1;
+		int   x      = Math.min( bx1, Math.max( bx0, (int) Math.floor( x0 + dx * tEnter ) ) );
+		int   y      = Math.min( by1, Math.max( by0, (int) Math.floor( y0 + dy * tEnter ) ) );
+		final int   stepX  = dx < 0.0f ? -1 : 1, stepY = dy < 0.0f ? -1 : 1;
+		// Parameters where the segment crosses the next vertical and horizontal cell boundaries, and the parameter distance of the boundaries
+		float       tNextX = dx == 0.0f ? Float.POSITIVE_INFINITY : ( x + ( dx > 0.0f ? 1 : 0 ) - x0 ) / dx;
+		float       tNextY = dy == 0.0f ? Float.POSITIVE_INFINITY : ( y + ( dy > 0.0f ? 1 : 0 ) - y0 ) / dy;
+		final float tDeltaX = Math.abs( 1.0f / dx ), tDeltaY = Math.abs( 1.0f / dy );
+		float       tCell  = tEnter;
+		while ( x >= bx0 && x <= bx1 && y >= by0 && y <= by1 && tCell <= tExit ) {
+			final float tLeave = Math.min( tExit, Math.min( tNextX, tNextY ) );
+			// Cells outside of the map are not hit, and neither are the cells the segment only touches: the first cell
+			// if the segment starts on its side but moves away from it, and the last cell if the segment ends on its right
+			// or bottom side (the rounded boundary parameter may be a bit before the end): the middle of the part is outside of them
+			final boolean touched = tLeave <= tCell || tLeave == tExit;
+			if ( x < size && y < size && ( !touched || (int) Math.floor( x0 + dx * ( tCell + tLeave ) * 0.5f ) == x && (int) Math.floor( y0 + dy * ( tCell + tLeave ) * 0.5f ) == y ) ) {
+				final float height = map.get( x, y );
+				if ( z0 + dz * tCell < height )
+					return tCell;                                   // Enters the cell below its height
+				if ( z0 + dz * tLeave < height )
+					return Math.max( tCell, ( height - z0 ) / dz ); // Descends below the height of the cell (dz is negative here)
+			}
+			if ( tNextX < tNextY ) {
+				x      += stepX;
+				tCell   = tNextX;
+				tNextX += tDeltaX;
+			}
+			else {
+				y      += stepY;
+				tCell   = tNextY;
+				tNextY += tDeltaY;
+			}
+		}
+		return before;
+	}
+
+	/**
+	 * Clips a segment to a rectangle (Liang-Barsky).<br>
+	 * The rectangle is closed (a segment touching a side crosses it), except if the segment is parallel to the side:
+	 * the rectangle is [left, right) x [top, bottom) like a cell.
+	 * @param left   left side of the rectangle
+	 * @param top    top side of the rectangle
+	 * @param right  right side of the rectangle
+	 * @param bottom bottom side of the rectangle
+	 * @param x0     x coordinate of the start point of the segment
+	 * @param y0     y coordinate of the start point of the segment
+	 * @param x1     x coordinate of the end point of the segment
+	 * @param y1     y coordinate of the end point of the segment
+	 * @param t      array to store the parameters (0..1) of the segment where it enters and exits the rectangle
+	 * @return true if the segment crosses the rectangle; false otherwise
+	 */
+	static boolean clip( final int left, final int top, final int right, final int bottom, final float x0, final float y0, final float x1, final float y1, final float[] t ) {
+		final float dx = x1 - x0, dy = y1 - y0;
+		float tEnter = 0.0f, tExit = 1.0f;
+		if ( dx == 0.0f ) {
+			if ( x0 < left || x0 >= right )
+				return false;
+		}
+		else {
+			final float ta = ( left - x0 ) / dx, tb = ( right - x0 ) / dx;
+			tEnter = Math.max( tEnter, Math.min( ta, tb ) );
+			tExit  = Math.min( tExit , Math.max( ta, tb ) );
+		}
+		if ( dy == 0.0f ) {
+			if ( y0 < top || y0 >= bottom )
+				return false;
+		}
+		else {
+			final float ta = ( top - y0 ) / dy, tb = ( bottom - y0 ) / dy;
+			tEnter = Math.max( tEnter, Math.min( ta, tb ) );
+			tExit  = Math.min( tExit , Math.max( ta, tb ) );
+		}
+		t[ 0 ] = tEnter;
+		t[ 1 ] = tExit;
+		return tEnter <= tExit;
+	}
+
+}
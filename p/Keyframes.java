@@ -0,0 +1,97 @@
+package p;
+
+import java.util.Arrays;
+
+/**
+ * Keyframes of a game: the states of the game saved every N steps.<br>
+ * Jumping to an arbitrary step means restoring the nearest keyframe before it and simulating at most N-1 steps
+ * from there (by the same inputs). Saving a state takes microseconds and the states are reused,
+ * so keyframes can be taken even every step (N = 1), for example to roll back a network game.<br>
+ * The keyframes are valid as long as the inputs (the control key states) of the steps after them don't change;
+ * if they do (a network game learns the real inputs of the other player), the later keyframes must be dropped
+ * ({@link #dropAfter(long)}).
+ *
+ * @author Andras Belicza
+ */
+class Keyframes {
+
+	/** Number of steps between the keyframes.                            */
+	public  final int          interval;
+	/** The keyframes: keyframe k is the state at step k * interval.       */
+	private       ModelState[] states = new ModelState[ 16 ];
+	/** Number of the valid keyframes (the first ones).                     */
+	private       int          count;
+
+
+	/**
+	 * Creates a new Keyframes.
+	 * @param interval number of steps between the keyframes
+	 */
+	public Keyframes( final int interval ) {
+		if ( interval < 1 )
+			throw new IllegalArgumentException( "Invalid keyframe interval: " + interval );
+		this.interval = interval;
+	}
+
+	/**
+	 * Takes a keyframe of the game if it's at a keyframe step.<br>
+	 * Should be called after every step (and at the start of the game). Keyframes can only be taken in order:
+	 * a step after the last keyframe is only taken if it's the next one.
+	 * @param simulation simulation of the game
+	 */
+	public void take( final GameSimulation simulation ) {
+		final long tick = simulation.getTick();
+		if ( tick % interval != 0 || tick / interval > count )
+			return;
+
+		final int k = (int) ( tick / interval );
+		if ( k == states.length )
+			states = Arrays.copyOf( states, k * 2 );
+		if ( states[ k ] == null )
+			states[ k ] = new ModelState();
+		simulation.save( states[ k ] );
+		if ( k == count )
+			count++;
+	}
+
+	/**
+	 * Returns the step of the nearest keyframe at or before the specified step.
+	 * @param tick the step
+	 * @return the step of the nearest keyframe at or before the specified step, or -1 if there is no such keyframe
+	 */
+	public long floor( final long tick ) {
+		final int k = (int) Math.min( tick / interval, count - 1 );
+		return tick < 0 || k < 0 ? -1 : (long) k * interval;
+	}
+
+	/**
+	 * Restores the nearest keyframe at or before the specified step.
+	 * @param simulation simulation of the game (the game of the keyframes)
+	 * @param tick       the step to go to
+	 * @return the step of the restored keyframe, or -1 if there is no keyframe at or before the specified step
+	 */
+	public long restore( final GameSimulation simulation, final long tick ) {
+		final int k = (int) Math.min( tick / interval, count - 1 );
+		if ( tick < 0 || k < 0 )
+			return -1;
+
+		simulation.restore( states[ k ] );
+		return simulation.getTick();
+	}
+
+	/**
+	 * Drops the keyframes after the specified step (the inputs of the steps after it have changed).
+	 * @param tick the last step whose keyframe remains valid
+	 */
+	public void dropAfter( final long tick ) {
+		count = tick < 0 ? 0 : (int) Math.min( count, tick / interval + 1 );
+	}
+
+	/**
+	 * Drops all keyframes (a new game started). The states are kept for reuse.
+	 */
+	public void clear() {
+		count = 0;
+	}
+
+}
@@ -0,0 +1,197 @@
+package p;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Disk cache of the lands and the coloured landscapes, identified by the seed of the game.<br>
+ * The cache is enabled by the <code>landfight.cacheDir</code> system property (the directory of the cache files).<br>
+ * The files are compact binary files: a small header and the raw heights (or pixels) row by row, little endian.
+ * They are written once (when a land is generated the first time) and loaded by memory-mapping them,
+ * so a known land opens almost instantly: the heights are used right from the mapped file (copy-on-write),
+ * the pixels are copied into the landscape. If the land file is not writable (for example the cache directory is read-only),
+ * copy-on-write mapping is not possible, the heights are copied to the heap instead.<br>
+ * A land is only loaded if it is stored in the current mode of the heights (floats or quantized, see {@link HeightMap#isQuantizedConfigured()}):
+ * the heights differ in the two modes, and a machine generating the land must get the same heights as a machine loading it.
+ *
+ * @author Andras Belicza
+ */
+class LandCache {
+
+	/** Magic number of the land files ("LFHM").                                        */
+	private static final int  LAND_MAGIC        = 0x4C46484D;
+	/** Magic number of the landscape files ("LFLS").                                   */
+	private static final int  LANDSCAPE_MAGIC   = 0x4C464C53;
+	/** Version of the file formats and of the land generation and colouring.
+	 *  Must be increased whenever they change, so the outdated files are not used.     */
+	private static final int  VERSION           = 1;
+	/** Size of the headers of the files in bytes.                                      */
+	private static final int  HEADER_SIZE       = 32;
+	/** Byte order of the files.                                                        */
+	private static final ByteOrder BYTE_ORDER   = ByteOrder.LITTLE_ENDIAN;
+
+	/** Directory of the cache files, or null if the cache is disabled.                 */
+	private static final Path DIRECTORY         = System.getProperty( "landfight.cacheDir" ) == null ? null : Paths.get( System.getProperty( "landfight.cacheDir" ) );
+
+
+	/**
+	 * No instances, only static methods.
+	 */
+	private LandCache() {
+	}
+
+	/**
+	 * Loads the land of the specified seed from the cache.<br>
+	 * The returned height map is backed by the mapped file (or by a copy of it if the file is not writable). Modifying it does not modify the file.
+	 * @param seed      seed of the land
+	 * @param size      size of the land in both of the coordinate axis
+	 * @param minHeight minimum height of the land
+	 * @param maxHeight maximum height of the land
+	 * @return the land of the specified seed, or null if the cache is disabled or it does not contain the land in the current mode of the heights
+	 */
+	public static HeightMap loadLand( final long seed, final int size, final float minHeight, final float maxHeight ) {
+		if ( DIRECTORY == null )
+			return null;
+
+		final Path file = DIRECTORY.resolve( "land-" + seed + ".lfh" );
+		if ( !Files.isRegularFile( file ) )
+			return null;
+
+		// Copy-on-write mapping requires a channel opened for both reading and writing
+		final boolean writable = Files.isWritable( file );
+		try ( final FileChannel channel = writable ? FileChannel.open( file, StandardOpenOption.READ, StandardOpenOption.WRITE )
+				: FileChannel.open( file, StandardOpenOption.READ ) ) {
+			final ByteBuffer header = channel.map( MapMode.READ_ONLY, 0, HEADER_SIZE ).order( BYTE_ORDER );
+			if ( header.getInt() != LAND_MAGIC || header.getInt() != VERSION || header.getLong() != seed || header.getInt() != size
+					|| header.getFloat() != minHeight || header.getFloat() != maxHeight )
+				return null;
+			final boolean quantized = header.getInt() != 0;
+			if ( quantized != HeightMap.isQuantizedConfigured() )
+				return null; // Generating it in the current mode would give different heights
+
+			final long dataSize = (long) size * size * ( quantized ? 2 : 4 );
+			if ( channel.size() != HEADER_SIZE + dataSize )
+				return null;
+
+			final ByteBuffer data;
+			if ( writable )
+				data = channel.map( MapMode.PRIVATE, HEADER_SIZE, dataSize );
+			else {
+				data = ByteBuffer.allocate( (int) dataSize );
+				data.put( channel.map( MapMode.READ_ONLY, HEADER_SIZE, dataSize ) );
+				data.flip();
+			}
+			return HeightMap.wrap( data.order( BYTE_ORDER ), size, quantized, minHeight, maxHeight );
+		}
+		catch ( final IOException ie ) {
+			return null; // We will generate it instead
+		}
+	}
+
+	/**
+	 * Saves the land of the specified seed into the cache (if the cache is enabled).
+	 * @param seed      seed of the land
+	 * @param land      the land to be saved
+	 * @param minHeight minimum height of the land
+	 * @param maxHeight maximum height of the land
+	 */
+	public static void saveLand( final long seed, final HeightMap land, final float minHeight, final float maxHeight ) {
+		if ( DIRECTORY == null )
+			return;
+
+		try {
+			final ByteBuffer buffer = ByteBuffer.allocate( HEADER_SIZE + land.size * land.size * ( land.isQuantized() ? 2 : 4 ) ).order( BYTE_ORDER );
+			buffer.putInt( LAND_MAGIC ).putInt( VERSION ).putLong( seed ).putInt( land.size ).putFloat( minHeight ).putFloat( maxHeight ).putInt( land.isQuantized() ? 1 : 0 );
+			buffer.position( HEADER_SIZE );
+			land.writeTo( buffer.slice().order( BYTE_ORDER ) );
+			writeFile( "land-" + seed + ".lfh", buffer );
+		}
+		catch ( final IOException ie ) {
+			ie.printStackTrace(); // The game goes on without the cache
+		}
+	}
+
+	/**
+	 * Loads the landscape (the coloured relief map) of the specified seed from the cache into the specified landscape.
+	 * @param seed      seed of the land of the landscape
+	 * @param landscape the landscape to load the pixels into
+	 * @return true if the landscape was loaded; false if the cache is disabled or it does not contain the landscape
+	 */
+	public static boolean loadLandscape( final long seed, final Landscape landscape ) {
+		if ( DIRECTORY == null )
+			return false;
+
+		final Path file = DIRECTORY.resolve( "landscape-" + seed + ".lfl" );
+		if ( !Files.isRegularFile( file ) )
+			return false;
+
+		final int width  = landscape.size;
+		final int height = landscape.size;
+		try ( final FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ) ) {
+			if ( channel.size() != HEADER_SIZE + (long) width * height * 4 )
+				return false;
+			final ByteBuffer buffer = channel.map( MapMode.READ_ONLY, 0, channel.size() ).order( BYTE_ORDER );
+			if ( buffer.getInt() != LANDSCAPE_MAGIC || buffer.getInt() != VERSION || buffer.getLong() != seed
+					|| buffer.getInt() != width || buffer.getInt() != height || buffer.getInt() != Landscape.TYPE )
+				return false;
+
+			buffer.position( HEADER_SIZE );
+			landscape.readFrom( buffer.slice().order( BYTE_ORDER ).asIntBuffer() );
+			return true;
+		}
+		catch ( final IOException ie ) {
+			return false; // We will colour it instead
+		}
+	}
+
+	/**
+	 * Saves the landscape (the coloured relief map) of the specified seed into the cache (if the cache is enabled).
+	 * @param seed      seed of the land of the landscape
+	 * @param landscape the landscape to be saved
+	 */
+	public static void saveLandscape( final long seed, final Landscape landscape ) {
+		if ( DIRECTORY == null )
+			return;
+
+		final int width  = landscape.size;
+		final int height = landscape.size;
+		try {
+			final ByteBuffer buffer = ByteBuffer.allocate( HEADER_SIZE + width * height * 4 ).order( BYTE_ORDER );
+			buffer.putInt( LANDSCAPE_MAGIC ).putInt( VERSION ).putLong( seed ).putInt( width ).putInt( height ).putInt( Landscape.TYPE );
+			buffer.position( HEADER_SIZE );
+
+			landscape.writeTo( buffer.slice().order( BYTE_ORDER ).asIntBuffer() );
+			writeFile( "landscape-" + seed + ".lfl", buffer );
+		}
+		catch ( final IOException ie ) {
+			ie.printStackTrace(); // The game goes on without the cache
+		}
+	}
+
+	/**
+	 * Writes a cache file.<br>
+	 * First a temporary file is written which is renamed when it is complete, so a half written file is never used.
+	 * @param name   name of the cache file
+	 * @param buffer content of the file (from its beginning to its capacity)
+	 * @throws IOException if error occurs during the operation
+	 */
+	private static void writeFile( final String name, final ByteBuffer buffer ) throws IOException {
+		Files.createDirectories( DIRECTORY );
+		final Path temporaryFile = DIRECTORY.resolve( name + ".tmp" );
+		try ( final FileChannel channel = FileChannel.open( temporaryFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE ) ) {
+			buffer.clear();
+			while ( buffer.hasRemaining() )
+				channel.write( buffer );
+		}
+		Files.move( temporaryFile, DIRECTORY.resolve( name ), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+	}
+
+}
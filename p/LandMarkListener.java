@@ -0,0 +1,23 @@
+package p;
+
+/**
+ * Listener of the marks the moving objects leave on the land.<br>
+ * The simulation does not know anything about how (or whether) the marks are displayed,
+ * it just notifies its listener, this way the simulation can run without any view (headless).
+ *
+ * @author Andras Belicza
+ */
+interface LandMarkListener {
+
+	/**
+	 * Registers a mark of a moving object.<br>
+	 * Mark of a moving object can be like a bullet hitting the land, a rocket exploding into the land
+	 * or a player crashing into the land.
+	 *
+	 * @param x               x coordinate of the mark
+	 * @param y               y coordinate of the mark
+	 * @param explosionRadius radius of the explosion which left the mark, or 0 if the mark was left by a bullet
+	 */
+	void registerObjectMark( int x, int y, float explosionRadius );
+
+}
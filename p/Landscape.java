@@ -0,0 +1,172 @@
+package p;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.nio.IntBuffer;
+import java.util.function.Consumer;
+import java.util.function.IntBinaryOperator;
+import java.util.stream.IntStream;
+
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+
+/**
+ * The landscape: the coloured relief map of the land.<br>
+ * The landscape is not one huge image, it is split into square tiles (the tiles on the right and bottom edges
+ * may be smaller). The tiles are managed images: we never grab their pixel arrays (which would make Java2D
+ * give up accelerating them), we only set their pixels through their rasters and draw into them, so Java2D
+ * can cache them in video memory, and drawing them stays accelerated.<br>
+ * Only the tiles overlapping the drawn area are drawn, and drawing a mark only modifies
+ * (and only makes Java2D upload again) the tiles it touches.
+ *
+ * @author Andras Belicza
+ */
+class Landscape {
+
+	/** Size of the tiles in both of the coordinate axis.                 */
+	public static final int TILE_SIZE = 256;
+	/** Type of the images of the tiles (the pixels are RGB ints).        */
+	public static final int TYPE      = TYPE_INT_RGB;
+
+	/** Size of the landscape in both of the coordinate axis.             */
+	public  final int             size;
+	/** Number of tiles in both of the coordinate axis.                   */
+	private final int             tilesCount;
+	/** The tiles, row by row.                                            */
+	private final BufferedImage[] tiles;
+
+
+	/**
+	 * Creates a new Landscape.
+	 * @param size size of the landscape in both of the coordinate axis
+	 */
+	public Landscape( final int size ) {
+		this.size  = size;
+		tilesCount = ( size + TILE_SIZE - 1 ) / TILE_SIZE;
+		tiles      = new BufferedImage[ tilesCount * tilesCount ];
+		for ( int tile = 0; tile < tiles.length; tile++ )
+			tiles[ tile ] = new BufferedImage( getTileSize( tile % tilesCount ), getTileSize( tile / tilesCount ), TYPE );
+	}
+
+	/**
+	 * Returns the size of the tiles of a tile column or row (the last ones may be smaller).
+	 * @param tileCoordinate index of the tile column or row
+	 * @return the size of the tiles of the tile column or row
+	 */
+	private int getTileSize( final int tileCoordinate ) {
+		return Math.min( TILE_SIZE, size - tileCoordinate * TILE_SIZE );
+	}
+
+	/**
+	 * Colours the landscape: sets the color of each point.<br>
+	 * The tiles are coloured in parallel (on the common fork-join pool).
+	 * @param rgbOfPoint function giving the RGB color of a point from its x and y coordinates
+	 */
+	public void colour( final IntBinaryOperator rgbOfPoint ) {
+		IntStream.range( 0, tiles.length ).parallel().forEach( tile -> {
+			final int   tileX  = tile % tilesCount * TILE_SIZE, tileY = tile / tilesCount * TILE_SIZE;
+			final int   width  = tiles[ tile ].getWidth(), height = tiles[ tile ].getHeight();
+			final int[] pixels = new int[ width * height ];
+			for ( int y = 0, i = 0; y < height; y++ )
+				for ( int x = 0; x < width; x++, i++ )
+					pixels[ i ] = rgbOfPoint.applyAsInt( tileX + x, tileY + y );
+			tiles[ tile ].getRaster().setDataElements( 0, 0, width, height, pixels );
+		} );
+	}
+
+	/**
+	 * Sets the pixels of the landscape.
+	 * @param pixels RGB pixels of the whole landscape row by row, read from its position
+	 */
+	public void readFrom( final IntBuffer pixels ) {
+		final int start = pixels.position();
+		for ( int tile = 0; tile < tiles.length; tile++ ) {
+			final int   tileX  = tile % tilesCount * TILE_SIZE, tileY = tile / tilesCount * TILE_SIZE;
+			final int   width  = tiles[ tile ].getWidth(), height = tiles[ tile ].getHeight();
+			final int[] tilePixels = new int[ width * height ];
+			for ( int y = 0; y < height; y++ ) {
+				pixels.position( start + ( tileY + y ) * size + tileX );
+				pixels.get( tilePixels, y * width, width );
+			}
+			tiles[ tile ].getRaster().setDataElements( 0, 0, width, height, tilePixels );
+		}
+	}
+
+	/**
+	 * Writes the pixels of the landscape.
+	 * @param pixels buffer to write the RGB pixels of the whole landscape to, row by row from its position
+	 */
+	public void writeTo( final IntBuffer pixels ) {
+		final int start = pixels.position();
+		for ( int tile = 0; tile < tiles.length; tile++ ) {
+			final int   tileX  = tile % tilesCount * TILE_SIZE, tileY = tile / tilesCount * TILE_SIZE;
+			final int   width  = tiles[ tile ].getWidth(), height = tiles[ tile ].getHeight();
+			final int[] tilePixels = (int[]) tiles[ tile ].getRaster().getDataElements( 0, 0, width, height, null );
+			for ( int y = 0; y < height; y++ ) {
+				pixels.position( start + ( tileY + y ) * size + tileX );
+				pixels.put( tilePixels, y * width, width );
+			}
+		}
+	}
+
+	/**
+	 * Draws an area of the landscape.
+	 * @param g2     graphics context to draw into
+	 * @param landX  x coordinate of the area on the landscape
+	 * @param landY  y coordinate of the area on the landscape
+	 * @param x      x coordinate to draw the area to
+	 * @param y      y coordinate to draw the area to
+	 * @param width  width of the area
+	 * @param height height of the area
+	 */
+	public void draw( final Graphics2D g2, final int landX, final int landY, final int x, final int y, final int width, final int height ) {
+		final int minTileX = Math.max( 0, landX / TILE_SIZE ), maxTileX = Math.min( tilesCount - 1, ( landX + width  - 1 ) / TILE_SIZE );
+		final int minTileY = Math.max( 0, landY / TILE_SIZE ), maxTileY = Math.min( tilesCount - 1, ( landY + height - 1 ) / TILE_SIZE );
+
+		for ( int tileY = minTileY; tileY <= maxTileY; tileY++ )
+			for ( int tileX = minTileX; tileX <= maxTileX; tileX++ ) {
+				final BufferedImage tile = tiles[ tileY * tilesCount + tileX ];
+				// The part of the area on this tile, in the coordinates of the tile
+				final int sx1 = Math.max( 0, landX - tileX * TILE_SIZE ), sx2 = Math.min( tile.getWidth (), landX + width  - tileX * TILE_SIZE );
+				final int sy1 = Math.max( 0, landY - tileY * TILE_SIZE ), sy2 = Math.min( tile.getHeight(), landY + height - tileY * TILE_SIZE );
+				final int dx1 = x + tileX * TILE_SIZE + sx1 - landX, dy1 = y + tileY * TILE_SIZE + sy1 - landY;
+				g2.drawImage( tile, dx1, dy1, dx1 + sx2 - sx1, dy1 + sy2 - sy1, sx1, sy1, sx2, sy2, null );
+			}
+	}
+
+	/**
+	 * Draws the whole landscape scaled to the specified size.
+	 * @param g2         graphics context to draw into
+	 * @param scaledSize size to scale the landscape to, in both of the coordinate axis
+	 */
+	public void drawScaled( final Graphics2D g2, final int scaledSize ) {
+		for ( int tile = 0; tile < tiles.length; tile++ ) {
+			final int tileX = tile % tilesCount * TILE_SIZE, tileY = tile / tilesCount * TILE_SIZE;
+			final int dx1   = tileX * scaledSize / size, dx2 = ( tileX + tiles[ tile ].getWidth () ) * scaledSize / size;
+			final int dy1   = tileY * scaledSize / size, dy2 = ( tileY + tiles[ tile ].getHeight() ) * scaledSize / size;
+			g2.drawImage( tiles[ tile ], dx1, dy1, dx2, dy2, 0, 0, tiles[ tile ].getWidth(), tiles[ tile ].getHeight(), null );
+		}
+	}
+
+	/**
+	 * Draws onto the landscape, into the specified area.<br>
+	 * The painter is called once for each tile overlapping the area, with a graphics context of the tile
+	 * translated so the painter can draw in landscape coordinates, and clipped to the area.
+	 * @param area    area to be drawn into
+	 * @param painter painter drawing in landscape coordinates
+	 */
+	public void drawOnto( final Rectangle area, final Consumer< Graphics2D > painter ) {
+		final int minTileX = Math.max( 0, area.x / TILE_SIZE ), maxTileX = Math.min( tilesCount - 1, ( area.x + area.width  - 1 ) / TILE_SIZE );
+		final int minTileY = Math.max( 0, area.y / TILE_SIZE ), maxTileY = Math.min( tilesCount - 1, ( area.y + area.height - 1 ) / TILE_SIZE );
+
+		for ( int tileY = minTileY; tileY <= maxTileY; tileY++ )
+			for ( int tileX = minTileX; tileX <= maxTileX; tileX++ ) {
+				final Graphics2D g2 = tiles[ tileY * tilesCount + tileX ].createGraphics();
+				g2.translate( -tileX * TILE_SIZE, -tileY * TILE_SIZE );
+				g2.clip( area );
+				painter.accept( g2 );
+				g2.dispose();
+			}
+	}
+
+}
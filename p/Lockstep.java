@@ -0,0 +1,303 @@
+package p;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+
+/**
+ * Lockstep network game of 2 machines over UDP: each player plays on his own machine.<br>
+ * The simulation is deterministic, so the machines only exchange the states of the control keys of their
+ * local players (packed into a byte per step, see {@link GameSimulation#packKeys(boolean[])}), and both
+ * machines simulate the same game: a step is calculated when the inputs of both players of that step have arrived.<br>
+ * The inputs are delayed by a few steps (input delay): the keys pressed at step t are the inputs of step t + delay,
+ * so they have <i>delay</i> steps to arrive before they're needed, and the game doesn't wait for the network
+ * if its latency is below that. The first <i>delay</i> steps of a game have no keys pressed.<br>
+ * UDP packets may be lost: every packet carries all the inputs the other machine has not acknowledged yet
+ * (and the acknowledgement of the received ones), so a lost packet is covered by the next one,
+ * and packets are resent if we are waiting. A packet is 15 bytes plus 1 byte per carried step
+ * (18 bytes with 2 steps of delay), one packet is sent per step (and one more acknowledging the received inputs
+ * if the step had to wait for them, plus the resent ones while waiting).<br>
+ * Player 1 is the host: it chooses the seeds of the games, and sends them in its packets until the other machine
+ * joins the game.<br>
+ * Every packet carries the setup of the game which must be the same on both machines (the number of players and teams,
+ * and whether the heights of the land are quantized, see {@link #getSetup(Model)}): a machine receiving a packet
+ * of another setup refuses to play (instead of the games silently going out of sync).<br>
+ * Network game is enabled by the system properties: <code>landfight.net.port</code> (local UDP port),
+ * <code>landfight.net.peer</code> (<code>&lt;host&gt;:&lt;port&gt;</code> of the other machine),
+ * <code>landfight.net.player</code> (1 or 2, the local player) and <code>landfight.net.inputDelay</code>
+ * (in steps, 2 by default). Both machines may run on the same computer (loopback).
+ *
+ * @author Andras Belicza
+ */
+class Lockstep {
+
+	/** Magic number of the packets ("LF").                                       */
+	private static final short MAGIC      = 0x4C46;
+	/** Flag of the packets carrying the seed of the game.                        */
+	private static final int   FLAG_SEED  = 1;
+	/** Size of a packet without the seed and the inputs (magic, game, flags, setup, ack, first step, count). */
+	private static final int   MIN_SIZE   = 15;
+	/** Size of the input histories (power of 2), more than the steps we can be ahead. */
+	private static final int   HISTORY    = 256;
+	/** Maximum number of inputs in a packet.                                     */
+	private static final int   MAX_INPUTS = 255;
+	/** Time to wait before sending our packet again while we're waiting, in milliseconds. */
+	private static final int   RESEND_MS  = 10;
+
+	/** Index of the local player.                                                */
+	public  final int            localPlayer;
+	/** Input delay in steps.                                                     */
+	public  final int            inputDelay;
+	/** Setup of the game, the same on both machines (see {@link #getSetup(Model)}). */
+	private final short          setup;
+	/** The UDP socket, connected to the other machine.                           */
+	private final DatagramSocket socket;
+	/** Buffer of the packets to be sent.                                         */
+	private final byte[]         sendBuffer    = new byte[ 32 + MAX_INPUTS ];
+	/** Buffer of the received packets.                                           */
+	private final byte[]         receiveBuffer = new byte[ 1024 ];
+	/** Time of sending the last packet, in nanoseconds.                          */
+	private       long           lastSendNanos;
+
+	/** Number of the current game (wraps around, only compared for equality).    */
+	private       byte           game = -1;
+	/** Seed of the current game.                                                 */
+	private       long           seed;
+	/** Tells whether the other machine has joined the current game (we received a packet of it). */
+	private       boolean        peerJoined;
+	/** Seed of the next game if the other machine has already started it, else null. */
+	private       Long           nextSeed;
+	/** Tells whether the other machine has started the next game.                */
+	private       boolean        peerInNextGame;
+
+	/** Packed inputs of the local player by step (modulo HISTORY).               */
+	private final byte[]         localInputs   = new byte[ HISTORY ];
+	/** Packed inputs of the remote player by step (modulo HISTORY).              */
+	private final byte[]         remoteInputs  = new byte[ HISTORY ];
+	/** Last step with a local input.                                             */
+	private       int            localLast;
+	/** Last step up to which all remote inputs have arrived.                     */
+	private       int            remoteLast;
+	/** Last step up to which the other machine has acknowledged our inputs.      */
+	private       int            peerAck;
+
+
+	/**
+	 * Creates a lockstep network game if it is enabled by the system properties.
+	 * @param model the model of the game (its setup must be the same on both machines)
+	 * @return the lockstep network game, or null if network game is not enabled
+	 * @throws IOException if the local port cannot be opened
+	 */
+	public static Lockstep create( final Model model ) throws IOException {
+		final Integer port = Integer.getInteger( "landfight.net.port" );
+		if ( port == null )
+			return null;
+
+		final String peer = System.getProperty( "landfight.net.peer", "127.0.0.1:" + port );
+		final int    colon = peer.lastIndexOf( ':' );
+		return new Lockstep( port, new InetSocketAddress( peer.substring( 0, colon ), Integer.parseInt( peer.substring( colon + 1 ) ) ),
+				Integer.getInteger( "landfight.net.player", 1 ) - 1, Integer.getInteger( "landfight.net.inputDelay", 2 ), getSetup( model ) );
+	}
+
+	/**
+	 * Returns the setup of the game of a model which must be the same on both machines: the number of players (6 bits),
+	 * the number of teams (6 bits) and whether the heights of the land are quantized (1 bit).
+	 * @param model the model
+	 * @return the setup of the game of the model
+	 */
+	public static short getSetup( final Model model ) {
+		return (short) ( model.players.length | model.teamsCount << 6 | ( HeightMap.isQuantizedConfigured() ? 1 : 0 ) << 12 );
+	}
+
+	/**
+	 * Returns the description of a setup (for the error messages).
+	 * @param setup the setup
+	 * @return the description of the setup
+	 */
+	private static String describeSetup( final short setup ) {
+		return ( setup & 63 ) + " players in " + ( setup >> 6 & 63 ) + " teams, " + ( ( setup >> 12 & 1 ) != 0 ? "quantized" : "float" ) + " land heights";
+	}
+
+	/**
+	 * Creates a new Lockstep.
+	 * @param port        local UDP port
+	 * @param peer        address of the other machine
+	 * @param localPlayer index of the local player (0 or 1), player 0 is the host
+	 * @param inputDelay  input delay in steps
+	 * @param setup       setup of the game, must be the same on both machines (see {@link #getSetup(Model)})
+	 * @throws IOException if the local port cannot be opened
+	 */
+	public Lockstep( final int port, final InetSocketAddress peer, final int localPlayer, final int inputDelay, final short setup ) throws IOException {
+		if ( localPlayer < 0 || localPlayer > 1 )
+			throw new IllegalArgumentException( "Invalid player: " + ( localPlayer + 1 ) );
+		if ( inputDelay < 1 || inputDelay > HISTORY / 4 )
+			throw new IllegalArgumentException( "Invalid input delay: " + inputDelay );
+
+		this.localPlayer = localPlayer;
+		this.inputDelay  = inputDelay;
+		this.setup       = setup;
+		socket = new DatagramSocket( port );
+		socket.connect( peer );
+		socket.setSoTimeout( RESEND_MS );
+	}
+
+	/**
+	 * Starts the next game.<br>
+	 * The host chooses the seed of the game (the specified one, or a random one), the other machine waits
+	 * until it receives the seed (the host starts the next game right away).
+	 * @param fixedSeed seed of all games if it is specified (only used by the host), can be null
+	 * @return the seed of the new game
+	 * @throws IOException if receiving fails
+	 */
+	public long newGame( final Long fixedSeed ) throws IOException {
+		if ( localPlayer != 0 )
+			// Meanwhile we keep sending our last packet of the previous game: the host may still wait for our last inputs
+			while ( nextSeed == null ) {
+				receive();
+				resendIfLate();
+			}
+
+		game++;
+		peerJoined     = false;
+		peerInNextGame = false;
+		// The first steps have no keys pressed, we don't have to send or receive them
+		localLast = remoteLast = peerAck = inputDelay - 1;
+		for ( int tick = 0; tick < inputDelay; tick++ )
+			localInputs[ tick ] = remoteInputs[ tick ] = 0;
+
+		seed     = localPlayer != 0 ? nextSeed : fixedSeed != null ? fixedSeed : new SplittableRandom().nextLong();
+		nextSeed = null;
+		return seed;
+	}
+
+	/**
+	 * Exchanges inputs: submits the input of the local player for step <code>tick + inputDelay</code>,
+	 * and waits for the input of the remote player for step <code>tick</code>.
+	 * @param tick      the step to be calculated next
+	 * @param localKeys packed states of the control keys of the local player pressed now
+	 * @return the packed states of the control keys of the remote player for the step,
+	 *         or -1 if the other machine has already started the next game (this game is over)
+	 * @throws IOException if sending or receiving fails
+	 */
+	public int exchange( final int tick, final int localKeys ) throws IOException {
+		localLast = tick + inputDelay;
+		localInputs[ localLast & HISTORY - 1 ] = (byte) localKeys;
+		send();
+
+		boolean waited = false;
+		while ( remoteLast < tick ) {
+			if ( peerInNextGame )
+				return -1;
+			waited = true;
+			receive();
+			resendIfLate();
+		}
+		if ( waited )
+			send(); // We acknowledge the awaited inputs right away, so the other machine stops repeating them
+		return remoteInputs[ tick & HISTORY - 1 ] & 0xff;
+	}
+
+	/**
+	 * Returns the packed states of the control keys of the local player for a step.
+	 * @param tick the step (at most inputDelay steps before the last submitted one)
+	 * @return the packed states of the control keys of the local player for the step
+	 */
+	public int getLocalInput( final int tick ) {
+		return localInputs[ tick & HISTORY - 1 ] & 0xff;
+	}
+
+	/**
+	 * Sends a packet to the other machine: the acknowledgement of its inputs, and our inputs it has not acknowledged yet.
+	 * @throws IOException if sending fails
+	 */
+	private void send() throws IOException {
+		final boolean    withSeed = localPlayer == 0 && !peerJoined;
+		final int        count    = Math.min( MAX_INPUTS, localLast - peerAck );
+		final ByteBuffer buffer   = ByteBuffer.wrap( sendBuffer );
+		buffer.putShort( MAGIC ).put( game ).put( (byte) ( withSeed ? FLAG_SEED : 0 ) ).putShort( setup );
+		if ( withSeed )
+			buffer.putLong( seed );
+		buffer.putInt( remoteLast ).putInt( peerAck + 1 ).put( (byte) count );
+		for ( int tick = peerAck + 1; tick <= peerAck + count; tick++ )
+			buffer.put( localInputs[ tick & HISTORY - 1 ] );
+		try {
+			socket.send( new DatagramPacket( sendBuffer, buffer.position() ) );
+		}
+		catch ( final PortUnreachableException pue ) {
+			// The other machine hasn't opened its port yet, we'll send again
+		}
+		lastSendNanos = System.nanoTime();
+	}
+
+	/**
+	 * Sends our packet again if we're waiting for a while: our last packet may have been lost.<br>
+	 * Receiving packets doesn't mean that ours arrive (for example we may only receive packets of another game).
+	 * @throws IOException if sending fails
+	 */
+	private void resendIfLate() throws IOException {
+		if ( System.nanoTime() - lastSendNanos > RESEND_MS * 1_000_000L )
+			send();
+	}
+
+	/**
+	 * Receives and processes a packet from the other machine (waits at most RESEND_MS for it).
+	 * @throws IOException if receiving fails, or the other machine has another setup
+	 */
+	private void receive() throws IOException {
+		final DatagramPacket packet = new DatagramPacket( receiveBuffer, receiveBuffer.length );
+		try {
+			socket.receive( packet );
+		}
+		catch ( final SocketTimeoutException | PortUnreachableException e ) {
+			return; // Nothing arrived, or the other machine hasn't opened its port yet
+		}
+
+		final ByteBuffer buffer = ByteBuffer.wrap( receiveBuffer, 0, packet.getLength() );
+		if ( buffer.remaining() < MIN_SIZE || buffer.getShort() != MAGIC )
+			return; // Not ours
+		final byte    packetGame = buffer.get();
+		final boolean withSeed   = ( buffer.get() & FLAG_SEED ) != 0;
+		final short   peerSetup  = buffer.getShort();
+		if ( peerSetup != setup )
+			throw new IOException( "The other machine has another setup: " + describeSetup( peerSetup ) + " instead of " + describeSetup( setup ) + "!" );
+		if ( withSeed && packet.getLength() < MIN_SIZE + 8 )
+			return; // Truncated
+		final long    packetSeed = withSeed ? buffer.getLong() : 0;
+
+		if ( packetGame != game ) {
+			if ( packetGame == (byte) ( game + 1 ) ) { // The other machine has started the next game
+				peerInNextGame = true;
+				if ( withSeed )
+					nextSeed = packetSeed;
+			}
+			return; // Packets of other games are not processed
+		}
+		peerJoined = true;
+
+		peerAck = Math.max( peerAck, buffer.getInt() );
+		final int firstTick = buffer.getInt();
+		final int count     = buffer.get() & 0xff;
+		// The other machine sends from what we acknowledged (maybe earlier), so there are no gaps
+		if ( firstTick <= remoteLast + 1 && buffer.remaining() >= count ) {
+			for ( int i = 0; i < count; i++ ) {
+				final byte input = buffer.get();
+				if ( firstTick + i > remoteLast )
+					remoteInputs[ firstTick + i & HISTORY - 1 ] = input;
+			}
+			remoteLast = Math.max( remoteLast, firstTick + count - 1 );
+		}
+	}
+
+	/**
+	 * Closes the socket.
+	 */
+	public void close() {
+		socket.close();
+	}
+
+}
@@ -0,0 +1,113 @@
+package p;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Recorder of a match: the seed of the game and the states of the control keys of the players in every step.<br>
+ * The simulation is deterministic, so this is enough to replay the match (see {@link MatchReplay}).
+ * The states of the 8 control keys of a player are packed into a byte, so a step of 2 players costs 2 bytes:
+ * a 10-minute match (at 25 steps per second) is about 30 KB. The keys of the bots are recorded too
+ * (a match of 32 players is about 480 KB), so the replays don't depend on the bots.<br>
+ * Recording is enabled by the <code>landfight.recordDir</code> system property (the directory of the recordings),
+ * every game is recorded into a new file named <code>match-&lt;seed&gt;-&lt;time&gt;.lfm</code>.<br>
+ * The file format: a header (magic number, version, seed, number of players, number of teams), then the packed key states
+ * of the players step by step (big endian, streamed; the number of steps is the length of the rest of the file).
+ *
+ * @author Andras Belicza
+ */
+class MatchRecorder {
+
+	/** Magic number of the recordings ("LFMR").                                        */
+	public  static final int  MAGIC       = 0x4C464D52;
+	/** Version of the file format and of the simulation.
+	 *  Must be increased whenever the simulation changes, older matches would be replayed differently. */
+	public  static final int  VERSION     = 8;
+
+	/** Directory of the recordings, or null if recording is disabled.                  */
+	private static final Path DIRECTORY   = System.getProperty( "landfight.recordDir" ) == null ? null : Paths.get( System.getProperty( "landfight.recordDir" ) );
+
+	/** Stream to write the recording to, null if writing failed.                       */
+	private DataOutputStream  output;
+
+
+	/**
+	 * Starts recording a game if recording is enabled.<br>
+	 * Errors are printed, the game goes on without recording.
+	 * @param seed         seed of the game
+	 * @param playersCount number of the players
+	 * @param teamsCount   number of the teams
+	 * @return the recorder of the game, or null if recording is disabled (or the recording cannot be created)
+	 */
+	public static MatchRecorder create( final long seed, final int playersCount, final int teamsCount ) {
+		if ( DIRECTORY == null )
+			return null;
+
+		try {
+			Files.createDirectories( DIRECTORY );
+			return new MatchRecorder( DIRECTORY.resolve( "match-" + seed + "-" + System.currentTimeMillis() + ".lfm" ), seed, playersCount, teamsCount );
+		}
+		catch ( final IOException ie ) {
+			ie.printStackTrace(); // The game goes on without recording
+			return null;
+		}
+	}
+
+	/**
+	 * Creates a new MatchRecorder, and writes the header of the recording.
+	 * @param file         file to record to
+	 * @param seed         seed of the game
+	 * @param playersCount number of the players
+	 * @param teamsCount   number of the teams
+	 * @throws IOException if the file cannot be created
+	 */
+	public MatchRecorder( final Path file, final long seed, final int playersCount, final int teamsCount ) throws IOException {
+		output = new DataOutputStream( new BufferedOutputStream( Files.newOutputStream( file ) ) );
+		output.writeInt ( MAGIC        );
+		output.writeInt ( VERSION      );
+		output.writeLong( seed         );
+		output.writeInt ( playersCount );
+		output.writeInt ( teamsCount   );
+	}
+
+	/**
+	 * Records a step: the states of the control keys of the players.<br>
+	 * Errors are printed, and recording stops.
+	 * @param keyStatess states of the control keys of the players the step is calculated by
+	 */
+	public synchronized void record( final boolean[][] keyStatess ) {
+		if ( output == null )
+			return;
+
+		try {
+			for ( final boolean[] keyStates : keyStatess )
+				output.write( GameSimulation.packKeys( keyStates ) );
+		}
+		catch ( final IOException ie ) {
+			ie.printStackTrace();
+			close();
+		}
+	}
+
+	/**
+	 * Finishes the recording: flushes and closes the file.<br>
+	 * It may be called by another thread (for example by a shutdown hook) than the one recording.
+	 */
+	public synchronized void close() {
+		if ( output == null )
+			return;
+
+		try {
+			output.close();
+		}
+		catch ( final IOException ie ) {
+			ie.printStackTrace();
+		}
+		output = null;
+	}
+
+}
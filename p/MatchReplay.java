@@ -0,0 +1,99 @@
+package p;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Replay of a match recorded by the {@link MatchRecorder}.<br>
+ * The recording is streamed (it's not loaded into memory), and the match is simulated headless,
+ * as fast as the CPU allows. The simulation is deterministic, so the replayed match is the same as the recorded one,
+ * which can be used to reproduce bugs and to verify results.<br>
+ * Replaying from the command line: <code>java -cp &lt;classpath&gt; p.MatchReplay &lt;recording&gt;...</code>
+ * prints the outcome of the matches (and a checksum of their final state).
+ *
+ * @author Andras Belicza
+ */
+public class MatchReplay {
+
+	/** Stream to read the recording from.                 */
+	private final DataInputStream input;
+	/** Seed of the recorded game.                         */
+	public  final long            seed;
+	/** Number of the players of the recorded game.        */
+	public  final int             playersCount;
+	/** Number of the teams of the recorded game.          */
+	public  final int             teamsCount;
+
+
+	/**
+	 * Replays the specified recordings, and prints the outcome of the matches.
+	 * @param args the files of the recordings
+	 * @throws IOException if a recording cannot be read
+	 */
+	public static void main( final String[] args ) throws IOException {
+		for ( final String file : args )
+			try ( final InputStream in = Files.newInputStream( Paths.get( file ) ) ) {
+				final long           start      = System.nanoTime();
+				final MatchReplay    replay     = new MatchReplay( in );
+				final GameSimulation simulation = new GameSimulation( new Model( replay.playersCount, replay.teamsCount ), null );
+				simulation.newGame( replay.seed );
+				final long           gameStart  = System.nanoTime();
+
+				final boolean[][] keyStatess = new boolean[ replay.playersCount ][ GameSimulation.KEYS_COUNT ];
+				long gameOverTick = -1;
+				while ( replay.readStep( keyStatess ) )
+					if ( simulation.step( keyStatess ) && gameOverTick < 0 )
+						gameOverTick = simulation.getTick();
+				final long end = System.nanoTime();
+
+				String result = "not finished";
+				if ( gameOverTick >= 0 ) {
+					result = "no winner";
+					for ( final ShapeObject player : simulation.model.players )
+						if ( !player.exploded )
+							result = ( replay.teamsCount < replay.playersCount ? "team " : "player " ) + ( player.team + 1 ) + " wins";
+					result = "game over at step " + gameOverTick + ", " + result;
+				}
+				System.out.printf( "%s: land %d, %d steps, %s, checksum %016x (%d ms, %.0f steps/s without the land)%n", file, replay.seed, simulation.getTick(), result,
+						simulation.model.checksum(), ( end - start ) / 1000000, simulation.getTick() * 1e9 / Math.max( 1, end - gameStart ) );
+			}
+	}
+
+	/**
+	 * Creates a new MatchReplay, and reads the header of the recording.
+	 * @param in stream of the recording
+	 * @throws IOException if the header cannot be read, or the stream is not a recording of this version
+	 */
+	public MatchReplay( final InputStream in ) throws IOException {
+		input = new DataInputStream( new BufferedInputStream( in ) );
+		if ( input.readInt() != MatchRecorder.MAGIC )
+			throw new IOException( "Not a match recording!" );
+		if ( input.readInt() != MatchRecorder.VERSION )
+			throw new IOException( "Match recording of another version!" );
+		seed         = input.readLong();
+		playersCount = input.readInt();
+		teamsCount   = input.readInt();
+	}
+
+	/**
+	 * Reads the states of the control keys of the players of the next step.
+	 * @param keyStatess array to read the states of the control keys of the players into
+	 * @return true if a step has been read; false if the recording is over
+	 * @throws IOException if the recording cannot be read
+	 */
+	public boolean readStep( final boolean[][] keyStatess ) throws IOException {
+		final int first = input.read();
+		if ( first < 0 )
+			return false;
+
+		GameSimulation.unpackKeys( first, keyStatess[ 0 ] );
+		for ( int i = 1; i < playersCount; i++ )
+			GameSimulation.unpackKeys( input.readUnsignedByte(), keyStatess[ i ] );
+		return true;
+	}
+
+}
@@ -1,122 +1,365 @@
-package p;
-
-import java.util.Vector;
-import static p.MovingObject.BOUNDARIES;
-/**
- * This is the model layer of the MVC architecture.<br>
- * 
- * @author Andras Belicza
- */
-class Model {
-
-	/** Number of land basepoints in both of the coordinate axis.
-	 *  A basepoint is a determined (random) height point of the land.
-	 *  Note: there are basepoints on the edges of the land.                        */
-	private static final int   LAND_BASE_POINTS = 11;
-	/** The base points divide the land to sectors, and this is their sizes.        */
-	private static final int   SECTOR_SIZE      = 250;
-	/** Size of the land (calculated from the LAND_BASE_POINTS and SECTOR_SIZE).    */
-	public  static final int   LAND_SIZE        = ( LAND_BASE_POINTS - 1 ) * SECTOR_SIZE;
-	
-	/** Minimum height (depth) value of a land point.                               */
-	public  static final float LAND_MIN         = -800.0f;
-	/** Maximum height value of a land point.                                       */
-	public  static final float LAND_MAX         = 2000.0f;
-	
-	
-	
-	
-	/** Players of the game.                                                        */
-	public ShapeObject[]          players = new ShapeObject[ 2 ];
-	/** The values of the heights of the land.<br>
-	 *  We want this float not doulbe, because this can contain millions of 
-	 *  height values (huge size), and we don't even use fully the float precision. */
-	public float[][]              land    = new float[ LAND_SIZE + 1 ][ LAND_SIZE + 1 ];  // +1 is for having +1 base point for helping the land generation
-	
-	/** Vector of bullets and rockets.                                              */
-	public Vector< MovingObject > shots      = new Vector< MovingObject >();
-	/** Vector of explosions.                                                       */
-	public Vector< ShapeObject  > explosions = new Vector< ShapeObject  >();
-	
-	
-
-	
-	/**
-	 * Reinits the game model so a new game can begin.
-	 */
-	public void newGame() {
-		generateLand();
-		
-		for ( int i = 0; i < players.length; i++ ) {
-			final ShapeObject player = players[ i ] = new ShapeObject( true );
-			// Random position for the player
-			player.p[ 0 ] = (float) Math.random() * BOUNDARIES[ 0 ];
-			player.p[ 1 ] = (float) Math.random() * BOUNDARIES[ 1 ];
-			player.p[ 2 ] = Math.min( BOUNDARIES[ 2 ], Math.max( 0.0f, land[ (int) player.p[ 1 ] ][ (int) player.p[ 0 ] ] + 650.0f ) );
-			player.shape.translate( (int) player.p[ 0 ], (int) player.p[ 1 ] );
-		}
-		
-		shots     .clear();
-		explosions.clear();
-		
-	}
-	
-	
-	/**
-	 * Generates a random land.
-	 */
-	private void generateLand() {
-		// First we generates the heights of the base points
-		for ( int i = 0; i < LAND_BASE_POINTS; i++ )
-			for ( int j = 0; j < LAND_BASE_POINTS; j++ )
-				land[ i * SECTOR_SIZE ][ j * SECTOR_SIZE ] = LAND_MIN + (float)Math.random() * ( LAND_MAX - LAND_MIN );
-		
-		// Now we fill the land interpolating between the base points
-		int x, y, dx, dy; // dx and dy are relative coordinates inside a sector
-		for ( int i = 0; i < LAND_BASE_POINTS-1; i++ )
-			for ( int j = 0; j < LAND_BASE_POINTS-1; j++ ) { // We go from sector to sector
-				y = i * SECTOR_SIZE;
-				x = j * SECTOR_SIZE;
-				// Heights of the basepoints at the sectors corners
-				final float baseHeight1 = land[ y               ][ x               ];
-				final float baseHeight2 = land[ y               ][ x + SECTOR_SIZE ];
-				final float baseHeight3 = land[ y + SECTOR_SIZE ][ x + SECTOR_SIZE ];
-				final float baseHeight4 = land[ y + SECTOR_SIZE ][ x               ];
-				for ( dy = 0; dy < SECTOR_SIZE; dy++, y++ ) {
-					x = j * SECTOR_SIZE;
-					final float baseHeight5 = land[ y ][ x               ] = interpolate( baseHeight1, baseHeight4, (float) dy / SECTOR_SIZE );
-					final float baseHeight6 = land[ y ][ x + SECTOR_SIZE ] = interpolate( baseHeight2, baseHeight3, (float) dy / SECTOR_SIZE );
-					for ( dx = 0; dx < SECTOR_SIZE; dx++, x++ ) {
-						// We give a random value to the interpolated value for generating more realistic land (DISPERSION)
-						land[ y ][ x ] = interpolate( baseHeight5, baseHeight6, (float) dx / SECTOR_SIZE ) + ( (float)Math.random() - 0.5f ) * 30.0f;
-						land[ y ][ x ] = Math.max( LAND_MIN, Math.min( land[ y ][ x ], LAND_MAX ) );
-					}
-				}
-			}
-	}
-	
-	/**
-	 * Interpolates. Calculates a 3rd value at a specified position between 2 boundary value.<br>
-	 * The position is specified by a ratio, whose value means:
-	 * 0 => value1, 1 => value2, 0 < ratio < 1  => somewhere between value1 and value2.
-	 * We would like the result to be continous and nice, so 'somewhere' is determined by a
-	 * function which is non-linear (linear resulted in "breaklines"). It goes from value1
-	 * to value2 by the function which starts with 0 derivation and ends with 0 derivation
-	 * (it has an infletion point, it has an 'S'). We use for this an 'x^4' function:<br>
-	 * f(x) = a*x^4 + b*x^3 + c*x^2 + d*x^1 + e*x^0<br>
-	 * We have parameters: f(0)=0, f(1)=1, f'(0)=0, f'(1)=0, and we'd like that f'(0.5)=0.5.
-	 * The result is this:<br>
-	 * 
-	 * f(x) = 2*x^4 - 6*x^3 + 5*x^2   (my magic function!)
-	 * 
-	 * @param value1 first value of interpolation
-	 * @param value2 last value of interpolation
-	 * @param ratio  where between value1 and value2 we need the interpolation
-	 * @return the interpolation of value1 and value2 at a position between them specified by ratio
-	 */
-	private float interpolate( final float value1, final float value2, final float ratio ) {
-		final float ratio2 = ratio * ratio;
-		return value1 + ( value2 - value1 ) * ( 2.0f * ratio2*ratio2 - 6.0f * ratio2 * ratio + 5.0f * ratio2 );
-	}
-	
-}
+package p;
+
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import static p.MovingObject.BOUNDARIES;
+/**
+ * This is the model layer of the MVC architecture.<br>
+ * 
+ * @author Andras Belicza
+ */
+class Model {
+
+	/** Number of land basepoints in both of the coordinate axis.
+	 *  A basepoint is a determined (random) height point of the land.
+	 *  Note: there are basepoints on the edges of the land.                        */
+	private static final int   LAND_BASE_POINTS = 11;
+	/** The base points divide the land to sectors, and this is their sizes.        */
+	private static final int   SECTOR_SIZE      = 250;
+	/** Size of the land (calculated from the LAND_BASE_POINTS and SECTOR_SIZE).    */
+	public  static final int   LAND_SIZE        = ( LAND_BASE_POINTS - 1 ) * SECTOR_SIZE;
+	
+	/** Minimum height (depth) value of a land point.                               */
+	public  static final float LAND_MIN         = -800.0f;
+	/** Maximum height value of a land point.                                       */
+	public  static final float LAND_MAX         = 2000.0f;
+	/** Size of the cells of the aircrafts grid is 2^AIRCRAFTS_CELL_SHIFT (128).    */
+	private static final int   AIRCRAFTS_CELL_SHIFT = 7;
+	/** Maximum number of the players.                                              */
+	public  static final int   MAX_PLAYERS      = 32;
+	
+	
+	
+	
+	/** Seed of the current game, the land and the starting positions are determined by it. */
+	public long                   seed;
+	/** Players of the game (human and bot pilots).                                 */
+	public final ShapeObject[]    players;
+	/** Number of the teams, player i is in team i % teamsCount.                    */
+	public final int              teamsCount;
+	/** The values of the heights of the land.<br>
+	 *  This can contain millions of height values (huge size), so they are stored
+	 *  in one contiguous storage, optionally off-heap and/or quantized to 16 bits
+	 *  (we don't even use fully the float precision), see {@link HeightMap}.
+	 *  This is either the generated land or a land loaded from the {@link LandCache}. */
+	public HeightMap              land;
+	/** The land we generate into, reused from game to game.                       */
+	private final HeightMap       generatedLand = HeightMap.create( LAND_SIZE + 1, LAND_MIN, LAND_MAX );  // +1 is for having +1 base point for helping the land generation
+	/** Min/max pyramid of the land for the range and segment queries (the highest land of an area, where a path hits the land).
+	 *  It is rebuilt for every new land.                                          */
+	public final HeightPyramid    landPyramid   = new HeightPyramid( LAND_SIZE + 1 );
+	
+	/** The bullets and rockets.                                                    */
+	public final ShotPool         shots      = new ShotPool( 1024 );
+	/** Broadphase grid of the (living) aircrafts.                                  */
+	public final SpatialGrid      aircrafts  = new SpatialGrid( LAND_SIZE, AIRCRAFTS_CELL_SHIFT, ShapeTemplate.AIRCRAFT.reach );
+	/** The explosions.                                                             */
+	public final ExplosionPool    explosions = new ExplosionPool( 64 );
+	/** Number of the marks left on the land (the view draws them, the model only counts them). */
+	public int                    marksCount;
+	/** The render snapshots published by the simulation for the view.              */
+	public final SnapshotExchange snapshots  = new SnapshotExchange();
+	
+	
+
+	
+	/**
+	 * Creates a new Model with the number of players and teams specified by the <code>landfight.players</code>
+	 * and <code>landfight.teams</code> system properties (2 players in 2 teams by default).
+	 */
+	public Model() {
+		this( Integer.getInteger( "landfight.players", 2 ), Integer.getInteger( "landfight.teams", 2 ) );
+	}
+	
+	/**
+	 * Creates a new Model.
+	 * @param playersCount number of the players (2 - 32)
+	 * @param teamsCount   number of the teams (at least 2, at most the number of players)
+	 */
+	public Model( final int playersCount, final int teamsCount ) {
+		if ( playersCount < 2 || playersCount > MAX_PLAYERS )
+			throw new IllegalArgumentException( "Invalid number of players: " + playersCount );
+		if ( teamsCount < 2 || teamsCount > playersCount )
+			throw new IllegalArgumentException( "Invalid number of teams: " + teamsCount );
+		
+		players         = new ShapeObject[ playersCount ];
+		this.teamsCount = teamsCount;
+	}
+	
+	/**
+	 * Reinits the game model so a new game can begin, with a random seed.
+	 */
+	public void newGame() {
+		newGame( new SplittableRandom().nextLong() );
+	}
+	
+	/**
+	 * Reinits the game model so a new game can begin.<br>
+	 * The same seed always results in the same land and the same starting positions.
+	 * If the land of the seed is in the {@link LandCache}, it is loaded instead of being generated.
+	 * @param seed seed of the new game
+	 */
+	public void newGame( final long seed ) {
+		this.seed = seed;
+		final SplittableRandom random     = new SplittableRandom( seed );
+		final SplittableRandom landRandom = random.split(); // Starting positions must not depend on whether the land is generated or loaded
+		
+		if ( ( land = LandCache.loadLand( seed, LAND_SIZE + 1, LAND_MIN, LAND_MAX ) ) == null ) {
+			generateLand( landRandom );
+			LandCache.saveLand( seed, land, LAND_MIN, LAND_MAX );
+		}
+		landPyramid.build( land );
+		
+		aircrafts.clear();
+		for ( int i = 0; i < players.length; i++ ) {
+			final ShapeObject player = players[ i ] = new ShapeObject( ShapeTemplate.AIRCRAFT );
+			player.team  = i % teamsCount;
+			player.index = i;
+			// Random position for the player
+			player.p[ 0 ] = (float) random.nextDouble() * BOUNDARIES[ 0 ];
+			player.p[ 1 ] = (float) random.nextDouble() * BOUNDARIES[ 1 ];
+			player.p[ 2 ] = Math.min( BOUNDARIES[ 2 ], Math.max( 0.0f, land.get( (int) player.p[ 0 ], (int) player.p[ 1 ] ) + 650.0f ) );
+			aircrafts.add( player );
+		}
+		
+		shots     .clear();
+		explosions.clear();
+		marksCount = 0;
+		
+	}
+	
+	
+	/**
+	 * Finds the living player nearest to a point among the enemies of a team, or among the members of a team.<br>
+	 * The players are few (at most MAX_PLAYERS), they are simply checked one by one.
+	 * @param x       x coordinate of the point
+	 * @param y       y coordinate of the point
+	 * @param z       height of the point
+	 * @param team    the team
+	 * @param enemies tells whether the enemies of the team are searched (else the members of the team)
+	 * @return the index of the nearest player, or -1 if there is no living player to be searched
+	 */
+	public int findNearestPlayer( final float x, final float y, final float z, final int team, final boolean enemies ) {
+		int   nearest         = -1;
+		float nearestDistance = Float.POSITIVE_INFINITY;
+		for ( int i = 0; i < players.length; i++ ) {
+			final ShapeObject player = players[ i ];
+			if ( player.exploded || ( player.team != team ) != enemies )
+				continue;
+			final float dx = player.p[ 0 ] - x, dy = player.p[ 1 ] - y, dz = player.p[ 2 ] - z;
+			final float distance = dx * dx + dy * dy + dz * dz;
+			if ( distance < nearestDistance ) {
+				nearest         = i;
+				nearestDistance = distance;
+			}
+		}
+		return nearest;
+	}
+	
+	/**
+	 * Tells whether the game is over: the living players are all in the same team (or there are no living players).
+	 * @return true if the game is over; false otherwise
+	 */
+	public boolean isGameOver() {
+		int livingTeam = -1;
+		for ( final ShapeObject player : players )
+			if ( !player.exploded ) {
+				if ( livingTeam < 0 )
+					livingTeam = player.team;
+				else if ( player.team != livingTeam )
+					return false;
+			}
+		return true;
+	}
+	
+	/**
+	 * Saves the state of the game (except the number of steps, which is not known by the model).
+	 * @param state state to save into
+	 */
+	public void save( final ModelState state ) {
+		final int playersCount = players.length, reloadingsCount = players[ 0 ].reloadings.length;
+		if ( state.playerDirections.length != playersCount ) {
+			state.playerPositions  = new float  [ playersCount * 3 ];
+			state.playerVelocities = new float  [ playersCount * 3 ];
+			state.playerDirections = new float  [ playersCount ];
+			state.playerShields    = new float  [ playersCount ];
+			state.playerReloadings = new float  [ playersCount * reloadingsCount ];
+			state.playerExplodeds  = new boolean[ playersCount ];
+		}
+		
+		state.seed = seed;
+		for ( int i = 0; i < playersCount; i++ ) {
+			final ShapeObject player = players[ i ];
+			System.arraycopy( player.p, 0, state.playerPositions , i * 3, 3 );
+			System.arraycopy( player.v, 0, state.playerVelocities, i * 3, 3 );
+			state.playerDirections[ i ] = player.direction;
+			state.playerShields   [ i ] = player.shield;
+			System.arraycopy( player.reloadings, 0, state.playerReloadings, i * reloadingsCount, reloadingsCount );
+			state.playerExplodeds [ i ] = player.exploded;
+		}
+		state.shots     .copyFrom( shots      );
+		state.explosions.copyFrom( explosions );
+		state.marksCount = marksCount;
+	}
+	
+	/**
+	 * Restores a saved state of the game.<br>
+	 * The state must be saved from the current game (the land is not saved). The aircrafts grid is rebuilt.
+	 * @param state state to be restored
+	 * @throws IllegalArgumentException if the state is not saved from the current game
+	 */
+	public void restore( final ModelState state ) {
+		if ( state.seed != seed || state.playerDirections.length != players.length )
+			throw new IllegalArgumentException( "The state is not saved from the current game!" );
+		
+		final int reloadingsCount = players[ 0 ].reloadings.length;
+		aircrafts.clear();
+		for ( int i = 0; i < players.length; i++ ) {
+			final ShapeObject player = players[ i ];
+			System.arraycopy( state.playerPositions , i * 3, player.p, 0, 3 );
+			System.arraycopy( state.playerVelocities, i * 3, player.v, 0, 3 );
+			player.direction = state.playerDirections[ i ];
+			player.shield    = state.playerShields   [ i ];
+			System.arraycopy( state.playerReloadings, i * reloadingsCount, player.reloadings, 0, reloadingsCount );
+			player.exploded  = state.playerExplodeds [ i ];
+			if ( !player.exploded )
+				aircrafts.add( player );
+		}
+		shots     .copyFrom( state.shots      );
+		explosions.copyFrom( state.explosions );
+		marksCount = state.marksCount;
+	}
+	
+	/**
+	 * Calculates a checksum of the state of the game: of the players, the shots, the explosions and the number of marks.<br>
+	 * The same game state always has the same checksum, so it can be used to compare the states of games
+	 * (a replayed game to the recorded one, or the games of the machines of a network game).
+	 * @return the checksum of the state of the game
+	 */
+	public long checksum() {
+		long checksum = seed;
+		for ( final ShapeObject player : players ) {
+			for ( int i = 0; i < 3; i++ )
+				checksum = mix( mix( checksum, Float.floatToIntBits( player.p[ i ] ) ), Float.floatToIntBits( player.v[ i ] ) );
+			checksum = mix( mix( checksum, Float.floatToIntBits( player.direction ) ), Float.floatToIntBits( player.shield ) );
+			for ( final float reloading : player.reloadings )
+				checksum = mix( checksum, Float.floatToIntBits( reloading ) );
+			checksum = mix( checksum, player.exploded ? 1 : 0 );
+		}
+		
+		checksum = mix( checksum, shots.size );
+		for ( int i = 0; i < shots.size; i++ ) {
+			checksum = mix( mix( mix( checksum, Float.floatToIntBits( shots.x [ i ] ) ), Float.floatToIntBits( shots.y [ i ] ) ), Float.floatToIntBits( shots.z [ i ] ) );
+			checksum = mix( mix( mix( checksum, Float.floatToIntBits( shots.vx[ i ] ) ), Float.floatToIntBits( shots.vy[ i ] ) ), Float.floatToIntBits( shots.vz[ i ] ) );
+			checksum = mix( mix( checksum, shots.type[ i ] ), shots.target[ i ] );
+		}
+		
+		checksum = mix( checksum, marksCount );
+		checksum = mix( checksum, explosions.size );
+		for ( int i = 0; i < explosions.size; i++ )
+			checksum = mix( mix( mix( mix( checksum, Float.floatToIntBits( explosions.x[ i ] ) ), Float.floatToIntBits( explosions.y[ i ] ) ),
+					Float.floatToIntBits( explosions.z[ i ] ) ), Float.floatToIntBits( explosions.radius[ i ] ) );
+		
+		return checksum;
+	}
+	
+	/**
+	 * Mixes a value into a checksum.
+	 * @param checksum the checksum
+	 * @param value    value to be mixed in
+	 * @return the new checksum
+	 */
+	private static long mix( final long checksum, final int value ) {
+		final long h = ( checksum ^ value ) * 0x9E3779B97F4A7C15L;
+		return h ^ h >>> 29;
+	}
+	
+	/**
+	 * Generates a random land.<br>
+	 * First the heights of the base points are generated, then the sectors are filled in parallel
+	 * (on the common fork-join pool). Once the base points exist, the sectors are independent of each other:
+	 * each sector reads only the base points at its corners, and writes only its own points.
+	 * Every sector has its own random generator split from the specified one in a fixed order,
+	 * so the land depends only on the specified random generator, not on the number of cores or the scheduling.<br>
+	 * The land is generated into the reusable {@link #generatedLand}, and it becomes the land of the model.<br>
+	 * Package private only for the benchmarks.
+	 * @param random random generator to generate the land by
+	 */
+	void generateLand( final SplittableRandom random ) {
+		land = generatedLand;
+		
+		// First we generates the heights of the base points
+		final float[][] baseHeights = new float[ LAND_BASE_POINTS ][ LAND_BASE_POINTS ];
+		for ( int i = 0; i < LAND_BASE_POINTS; i++ )
+			for ( int j = 0; j < LAND_BASE_POINTS; j++ ) {
+				baseHeights[ i ][ j ] = LAND_MIN + (float) random.nextDouble() * ( LAND_MAX - LAND_MIN );
+				land.set( j * SECTOR_SIZE, i * SECTOR_SIZE, baseHeights[ i ][ j ] );
+			}
+		
+		// Random generators of the sectors
+		final int                SECTORS_COUNT = ( LAND_BASE_POINTS-1 ) * ( LAND_BASE_POINTS-1 );
+		final SplittableRandom[] sectorRandoms = new SplittableRandom[ SECTORS_COUNT ];
+		for ( int sector = 0; sector < SECTORS_COUNT; sector++ )
+			sectorRandoms[ sector ] = random.split();
+		
+		// Now we fill the land interpolating between the base points
+		IntStream.range( 0, SECTORS_COUNT ).parallel().forEach( sector ->
+			generateSector( sector / ( LAND_BASE_POINTS-1 ), sector % ( LAND_BASE_POINTS-1 ), baseHeights, sectorRandoms[ sector ] ) );
+	}
+	
+	/**
+	 * Fills a sector of the land interpolating between the base points at its corners.
+	 * @param i           row of the sector
+	 * @param j           column of the sector
+	 * @param baseHeights heights of the base points
+	 * @param random      random generator of the sector
+	 */
+	private void generateSector( final int i, final int j, final float[][] baseHeights, final SplittableRandom random ) {
+		int x, y = i * SECTOR_SIZE, dx, dy; // dx and dy are relative coordinates inside a sector
+		// Heights of the basepoints at the sectors corners
+		final float baseHeight1 = baseHeights[ i     ][ j     ];
+		final float baseHeight2 = baseHeights[ i     ][ j + 1 ];
+		final float baseHeight3 = baseHeights[ i + 1 ][ j + 1 ];
+		final float baseHeight4 = baseHeights[ i + 1 ][ j     ];
+		// The last column of the land belongs to the sectors of the last column
+		final boolean lastColumn = j == LAND_BASE_POINTS - 2;
+		for ( dy = 0; dy < SECTOR_SIZE; dy++, y++ ) {
+			x = j * SECTOR_SIZE;
+			final float baseHeight5 = interpolate( baseHeight1, baseHeight4, (float) dy / SECTOR_SIZE );
+			final float baseHeight6 = interpolate( baseHeight2, baseHeight3, (float) dy / SECTOR_SIZE );
+			if ( lastColumn )
+				land.set( x + SECTOR_SIZE, y, baseHeight6 );
+			for ( dx = 0; dx < SECTOR_SIZE; dx++, x++ ) {
+				// We give a random value to the interpolated value for generating more realistic land (DISPERSION)
+				final float height = interpolate( baseHeight5, baseHeight6, (float) dx / SECTOR_SIZE ) + ( (float) random.nextDouble() - 0.5f ) * 30.0f;
+				land.set( x, y, Math.max( LAND_MIN, Math.min( height, LAND_MAX ) ) );
+			}
+		}
+	}
+	
+	/**
+	 * Interpolates. Calculates a 3rd value at a specified position between 2 boundary value.<br>
+	 * The position is specified by a ratio, whose value means:
+	 * 0 => value1, 1 => value2, 0 < ratio < 1  => somewhere between value1 and value2.
+	 * We would like the result to be continous and nice, so 'somewhere' is determined by a
+	 * function which is non-linear (linear resulted in "breaklines"). It goes from value1
+	 * to value2 by the function which starts with 0 derivation and ends with 0 derivation
+	 * (it has an infletion point, it has an 'S'). We use for this an 'x^4' function:<br>
+	 * f(x) = a*x^4 + b*x^3 + c*x^2 + d*x^1 + e*x^0<br>
+	 * We have parameters: f(0)=0, f(1)=1, f'(0)=0, f'(1)=0, and we'd like that f'(0.5)=0.5.
+	 * The result is this:<br>
+	 * 
+	 * f(x) = 2*x^4 - 6*x^3 + 5*x^2   (my magic function!)
+	 * 
+	 * @param value1 first value of interpolation
+	 * @param value2 last value of interpolation
+	 * @param ratio  where between value1 and value2 we need the interpolation
+	 * @return the interpolation of value1 and value2 at a position between them specified by ratio
+	 */
+	private float interpolate( final float value1, final float value2, final float ratio ) {
+		final float ratio2 = ratio * ratio;
+		return value1 + ( value2 - value1 ) * ( 2.0f * ratio2*ratio2 - 6.0f * ratio2 * ratio + 5.0f * ratio2 );
+	}
+	
+}
@@ -0,0 +1,40 @@
+package p;
+
+/**
+ * A saved state of the game: everything the next steps of the simulation depend on.<br>
+ * The players (position, velocity, direction, shield, reloadings, whether they exploded), the shots,
+ * the explosions, the number of marks left on the land and the number of steps. The land itself is not saved,
+ * it is determined by the seed, and it does not change during a game.<br>
+ * A state is reused: saving into it only copies arrays (which only grow), so it does not allocate
+ * and takes microseconds, it can be done every step (see {@link Model#save(ModelState)}, {@link GameSimulation#save(ModelState)}).
+ *
+ * @author Andras Belicza
+ */
+class ModelState {
+
+	/** Seed of the game of the state.                                    */
+	public long                seed;
+	/** Number of steps since the game started.                           */
+	public long                tick;
+
+	/** Positions of the players (3 coordinates per player).              */
+	public float[]             playerPositions  = new float  [ 0 ];
+	/** Velocities of the players (3 coordinates per player).             */
+	public float[]             playerVelocities = new float  [ 0 ];
+	/** Directions of the players.                                        */
+	public float[]             playerDirections = new float  [ 0 ];
+	/** States of the shields of the players.                             */
+	public float[]             playerShields    = new float  [ 0 ];
+	/** Reloading states of the weapons of the players (2 per player).    */
+	public float[]             playerReloadings = new float  [ 0 ];
+	/** Tells whether the players have exploded.                          */
+	public boolean[]           playerExplodeds  = new boolean[ 0 ];
+
+	/** The shots.                                                        */
+	public final ShotPool      shots            = new ShotPool( 16 );
+	/** The explosions.                                                   */
+	public final ExplosionPool explosions       = new ExplosionPool( 16 );
+	/** Number of the marks left on the land.                             */
+	public int                 marksCount;
+
+}
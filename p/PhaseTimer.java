@@ -0,0 +1,159 @@
+package p;
+
+import java.util.Arrays;
+
+/**
+ * Latency histogram of a phase of the game iterations or of the painting.<br>
+ * The durations are counted in log-linear buckets: every power of 2 of nanoseconds is divided into 8 buckets,
+ * so a percentile is within 12.5% of the real value, and recording is a few bit operations, it does not allocate.<br>
+ * A timer is recorded by one thread only (the tick timers by the simulation of the played game only, see
+ * {@link GameSimulation}, the frame timers by the painting thread); the statistics may be read by
+ * other threads (JMX, the overlay), they see the values without synchronization (a percentile may be off by a
+ * duration or two being recorded at the same time, which does not matter for statistics).
+ *
+ * @author Andras Belicza
+ */
+class PhaseTimer {
+
+	/** Number of buckets in a power of 2 is 2^SUB_BUCKET_BITS. */
+	private static final int SUB_BUCKET_BITS  = 3;
+	/** Number of buckets in a power of 2.                        */
+	private static final int SUB_BUCKETS      = 1 << SUB_BUCKET_BITS;
+
+	/** Name of the phase.                                        */
+	public  final String  name;
+
+	/** Number of durations in the buckets.                       */
+	private final long[]  counts = new long[ ( 64 - SUB_BUCKET_BITS ) * SUB_BUCKETS ];
+	/** Number of recorded durations.                             */
+	private       long    count;
+	/** Sum of the recorded durations in nanoseconds.             */
+	private       long    totalNanos;
+	/** Maximum recorded duration in nanoseconds.                 */
+	private       long    maxNanos;
+	/** Last recorded duration in nanoseconds.                    */
+	private       long    lastNanos;
+
+
+	/**
+	 * Creates a new PhaseTimer.
+	 * @param name name of the phase
+	 */
+	public PhaseTimer( final String name ) {
+		this.name = name;
+	}
+
+	/**
+	 * Records the duration of the phase which started at the specified time and ended now.
+	 * @param startNanos start of the phase (in System.nanoTime())
+	 * @return the end of the phase (now, in System.nanoTime()), it can be used as the start of the next phase
+	 */
+	public long record( final long startNanos ) {
+		final long now = System.nanoTime();
+		recordNanos( now - startNanos );
+		return now;
+	}
+
+	/**
+	 * Records a duration.
+	 * @param nanos duration in nanoseconds
+	 */
+	public void recordNanos( long nanos ) {
+		if ( nanos < 0 )
+			nanos = 0;
+		counts[ getBucket( nanos ) ]++;
+		count++;
+		totalNanos += nanos;
+		lastNanos   = nanos;
+		if ( nanos > maxNanos )
+			maxNanos = nanos;
+	}
+
+	/**
+	 * Returns the bucket of a duration.
+	 * @param nanos duration in nanoseconds (non-negative)
+	 * @return the bucket of the duration
+	 */
+	private static int getBucket( final long nanos ) {
+		if ( nanos < SUB_BUCKETS )
+			return (int) nanos;
+		final int exponent = 63 - Long.numberOfLeadingZeros( nanos );
+		return ( exponent - SUB_BUCKET_BITS + 1 ) * SUB_BUCKETS + (int) ( nanos >>> ( exponent - SUB_BUCKET_BITS ) & SUB_BUCKETS - 1 );
+	}
+
+	/**
+	 * Returns the smallest duration of a bucket.
+	 * @param bucket the bucket
+	 * @return the smallest duration of the bucket in nanoseconds
+	 */
+	private static long getBucketMinNanos( final int bucket ) {
+		if ( bucket < SUB_BUCKETS )
+			return bucket;
+		final int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		return (long) ( SUB_BUCKETS + bucket % SUB_BUCKETS ) << ( exponent - SUB_BUCKET_BITS );
+	}
+
+	/**
+	 * Forgets all recorded durations.
+	 */
+	public void reset() {
+		Arrays.fill( counts, 0 );
+		count      = 0;
+		totalNanos = 0;
+		maxNanos   = 0;
+		lastNanos  = 0;
+	}
+
+	/**
+	 * Returns the number of recorded durations.
+	 * @return the number of recorded durations
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the average of the recorded durations in nanoseconds.
+	 * @return the average of the recorded durations in nanoseconds
+	 */
+	public long getMeanNanos() {
+		final long count_ = count;
+		return count_ == 0 ? 0 : totalNanos / count_;
+	}
+
+	/**
+	 * Returns the maximum of the recorded durations in nanoseconds.
+	 * @return the maximum of the recorded durations in nanoseconds
+	 */
+	public long getMaxNanos() {
+		return maxNanos;
+	}
+
+	/**
+	 * Returns the last recorded duration in nanoseconds.
+	 * @return the last recorded duration in nanoseconds
+	 */
+	public long getLastNanos() {
+		return lastNanos;
+	}
+
+	/**
+	 * Returns a percentile of the recorded durations.
+	 * @param percentile the percentile (between 0 and 100)
+	 * @return the duration in nanoseconds which the specified percent of the recorded durations do not exceed
+	 *         (the smallest duration of its bucket), or 0 if there are no recorded durations
+	 */
+	public long getPercentileNanos( final double percentile ) {
+		final long count_ = count;
+		if ( count_ == 0 )
+			return 0;
+
+		final long rank = Math.max( 1, (long) Math.ceil( count_ * percentile / 100.0 ) );
+		long       sum  = 0;
+		for ( int bucket = 0; bucket < counts.length; bucket++ )
+			if ( ( sum += counts[ bucket ] ) >= rank )
+				return getBucketMinNanos( bucket );
+		return maxNanos;
+	}
+
+}
@@ -0,0 +1,159 @@
+package p;
+
+import java.util.Arrays;
+
+/**
+ * Render snapshot: everything the view paints about the game state of a game iteration.<br>
+ * The simulation captures the model into a snapshot after every game iteration and publishes it
+ * through the {@link SnapshotExchange}, the view paints only from the snapshots, it never reads the model
+ * (which the simulation modifies meanwhile).<br>
+ * The snapshots are reused, the arrays only grow, so capturing does not allocate.
+ *
+ * @author Andras Belicza
+ */
+class RenderSnapshot {
+
+	/** Number of the players.                                             */
+	public int             playersCount;
+	/** X coordinates of the players.                                      */
+	public int[]           playerXs            = new int    [ 0 ];
+	/** Y coordinates of the players.                                      */
+	public int[]           playerYs            = new int    [ 0 ];
+	/** Heights of the players.                                            */
+	public int[]           playerHeights       = new int    [ 0 ];
+	/** Heights of the land below the players.                             */
+	public float[]         playerLandHeights   = new float  [ 0 ];
+	/** Directions of the players.                                         */
+	public float[]         playerDirections    = new float  [ 0 ];
+	/** States of the shields of the players.                              */
+	public float[]         playerShields       = new float  [ 0 ];
+	/** Reloading states of the weapons of the players.                    */
+	public float[][]       playerReloadings    = new float  [ 0 ][];
+	/** Tells whether the players have exploded.                           */
+	public boolean[]       playerExplodeds     = new boolean[ 0 ];
+	/** Teams of the players.                                              */
+	public int[]           playerTeams         = new int    [ 0 ];
+	/** Shapes of the players.                                             */
+	public ShapeTemplate[] playerShapes        = new ShapeTemplate[ 0 ];
+
+	/** Number of the shots.                                               */
+	public int             shotsCount;
+	/** Types of the shots (ShotPool.BULLET or ShotPool.ROCKET).           */
+	public byte[]          shotTypes           = new byte   [ 0 ];
+	/** X coordinates of the shots.                                        */
+	public float[]         shotXs              = new float  [ 0 ];
+	/** Y coordinates of the shots.                                        */
+	public float[]         shotYs              = new float  [ 0 ];
+	/** Heights of the shots.                                              */
+	public float[]         shotZs              = new float  [ 0 ];
+	/** X coordinates of the velocities of the shots (rockets are drawn in this direction). */
+	public float[]         shotVxs             = new float  [ 0 ];
+	/** Y coordinates of the velocities of the shots.                      */
+	public float[]         shotVys             = new float  [ 0 ];
+
+	/** Number of the explosions.                                          */
+	public int             explosionsCount;
+	/** X coordinates of the centers of the explosions.                    */
+	public float[]         explosionXs         = new float  [ 0 ];
+	/** Y coordinates of the centers of the explosions.                    */
+	public float[]         explosionYs         = new float  [ 0 ];
+	/** Heights of the explosions.                                         */
+	public float[]         explosionZs         = new float  [ 0 ];
+	/** Current radiuses of the explosions.                                */
+	public float[]         explosionRadiuses   = new float  [ 0 ];
+
+
+	/**
+	 * Captures the state of the model into this snapshot.
+	 * @param model model to be captured
+	 */
+	public void capture( final Model model ) {
+		final ShapeObject[] players = model.players;
+		if ( playerXs.length < players.length ) {
+			playerXs          = new int    [ players.length ];
+			playerYs          = new int    [ players.length ];
+			playerHeights     = new int    [ players.length ];
+			playerLandHeights = new float  [ players.length ];
+			playerDirections  = new float  [ players.length ];
+			playerShields     = new float  [ players.length ];
+			playerReloadings  = new float  [ players.length ][];
+			playerExplodeds   = new boolean[ players.length ];
+			playerTeams       = new int    [ players.length ];
+			playerShapes      = new ShapeTemplate[ players.length ];
+		}
+		playersCount = players.length;
+		for ( int i = 0; i < players.length; i++ ) {
+			final ShapeObject player = players[ i ];
+			playerXs         [ i ] = player.getX();
+			playerYs         [ i ] = player.getY();
+			playerHeights    [ i ] = player.getHeight();
+			playerLandHeights[ i ] = model.land.get( player.getX(), player.getY() );
+			playerDirections [ i ] = player.direction;
+			playerShields    [ i ] = player.shield;
+			if ( playerReloadings[ i ] == null || playerReloadings[ i ].length != player.reloadings.length )
+				playerReloadings[ i ] = new float[ player.reloadings.length ];
+			System.arraycopy( player.reloadings, 0, playerReloadings[ i ], 0, player.reloadings.length );
+			playerExplodeds  [ i ] = player.exploded;
+			playerTeams      [ i ] = player.team;
+			playerShapes     [ i ] = player.shape;
+		}
+
+		final ShotPool shots = model.shots;
+		if ( shotXs.length < shots.size ) {
+			final int capacity = Math.max( shots.size, shotXs.length * 2 );
+			shotTypes = Arrays.copyOf( shotTypes, capacity );
+			shotXs    = Arrays.copyOf( shotXs   , capacity );
+			shotYs    = Arrays.copyOf( shotYs   , capacity );
+			shotZs    = Arrays.copyOf( shotZs   , capacity );
+			shotVxs   = Arrays.copyOf( shotVxs  , capacity );
+			shotVys   = Arrays.copyOf( shotVys  , capacity );
+		}
+		shotsCount = shots.size;
+		System.arraycopy( shots.type, 0, shotTypes, 0, shotsCount );
+		System.arraycopy( shots.x   , 0, shotXs   , 0, shotsCount );
+		System.arraycopy( shots.y   , 0, shotYs   , 0, shotsCount );
+		System.arraycopy( shots.z   , 0, shotZs   , 0, shotsCount );
+		System.arraycopy( shots.vx  , 0, shotVxs  , 0, shotsCount );
+		System.arraycopy( shots.vy  , 0, shotVys  , 0, shotsCount );
+
+		final ExplosionPool explosions = model.explosions;
+		if ( explosionXs.length < explosions.size ) {
+			final int capacity = Math.max( explosions.size, explosionXs.length * 2 );
+			explosionXs       = Arrays.copyOf( explosionXs      , capacity );
+			explosionYs       = Arrays.copyOf( explosionYs      , capacity );
+			explosionZs       = Arrays.copyOf( explosionZs      , capacity );
+			explosionRadiuses = Arrays.copyOf( explosionRadiuses, capacity );
+		}
+		explosionsCount = explosions.size;
+		System.arraycopy( explosions.x     , 0, explosionXs      , 0, explosionsCount );
+		System.arraycopy( explosions.y     , 0, explosionYs      , 0, explosionsCount );
+		System.arraycopy( explosions.z     , 0, explosionZs      , 0, explosionsCount );
+		System.arraycopy( explosions.radius, 0, explosionRadiuses, 0, explosionsCount );
+	}
+
+	/**
+	 * Tells whether the game is over (the living players are all in the same team) in this snapshot.
+	 * @return true if the game is over; false otherwise
+	 */
+	public boolean isGameOver() {
+		return playersCount > 0 && getWinnerTeam() != -2; // The snapshots are empty before the first game
+	}
+
+	/**
+	 * Returns the team of the living players if they are all in the same team.
+	 * @return the team of the living players if they are all in the same team, -1 if there are no living players,
+	 *         -2 if there are living players in more teams (the game is not over)
+	 */
+	public int getWinnerTeam() {
+		int livingTeam = -1;
+		for ( int i = 0; i < playersCount; i++ )
+			if ( !playerExplodeds[ i ] ) {
+				if ( livingTeam < 0 )
+					livingTeam = playerTeams[ i ];
+				else if ( playerTeams[ i ] != livingTeam )
+					return -2;
+			}
+		return livingTeam;
+	}
+
+}
@@ -0,0 +1,91 @@
+package p;
+
+/**
+ * Guidance of the rockets: steers all live rockets towards their targets at once, in every step.<br>
+ * A rocket turns by a fixed angle (TURN) towards its target: the sign of the cross product of its velocity and the vector
+ * to its target tells which way, and the rotation by the fixed angle is a multiplication by its precomputed sine and cosine.
+ * If the target is within that angle, the rocket heads straight at it. Vertically it climbs or descends to the height of its target.
+ * There are no trigonometric functions and no branches depending on each other, so the rockets can be steered
+ * in a batch, several of them with a single vector instruction.<br>
+ * This class is the scalar implementation. If the JVM has the incubating vector API (Java 16 or newer, started with
+ * <code>--add-modules jdk.incubator.vector</code>), {@link #create()} returns the {@link VectorRocketGuidance} which uses it.
+ * Both calculate exactly the same results (the same IEEE 754 operations in the same order), so machines with and
+ * without the vector API play the same game.
+ *
+ * @author Andras Belicza
+ */
+class RocketGuidance {
+
+	/** 1-step vertical velocity of the rockets following their targets.          */
+	public static final float CLIMB    = 12.0f;
+	/** Angle the rockets turn in a step to follow their targets.                 */
+	public static final float TURN     = 0.08f;
+	/** Cosine of TURN.                                                           */
+	public static final float COS_TURN = (float) StrictMath.cos( TURN );
+	/** Sine of TURN.                                                             */
+	public static final float SIN_TURN = (float) StrictMath.sin( TURN );
+
+
+	/**
+	 * Creates the rocket guidance: the vectorized one if the vector API is available and it is not disabled
+	 * by the <code>landfight.scalarGuidance</code> system property, the scalar one otherwise.<br>
+	 * The vectorized one is loaded by reflection, so this class runs on Java 8 and without the vector API too.
+	 * @return the rocket guidance
+	 */
+	public static RocketGuidance create() {
+		if ( !Boolean.getBoolean( "landfight.scalarGuidance" ) )
+			try {
+				return (RocketGuidance) Class.forName( "p.VectorRocketGuidance" ).getDeclaredConstructor().newInstance();
+			}
+			catch ( final Exception | LinkageError e ) {
+				// Older Java or the vector API is not added: we steer the scalar way
+			}
+		return new RocketGuidance();
+	}
+
+	/**
+	 * Steers the rockets towards their targets: sets their velocities for the next step.
+	 * The velocities of the bullets are not changed.
+	 * @param shots    the shots
+	 * @param targetXs x coordinates of the targets (indexed by the targets of the shots)
+	 * @param targetYs y coordinates of the targets (indexed by the targets of the shots)
+	 * @param targetZs heights of the targets (indexed by the targets of the shots)
+	 */
+	public void steer( final ShotPool shots, final float[] targetXs, final float[] targetYs, final float[] targetZs ) {
+		steer( shots, targetXs, targetYs, targetZs, 0 );
+	}
+
+	/**
+	 * Steers the rockets from a shot index one by one.
+	 * @param shots    the shots
+	 * @param targetXs x coordinates of the targets (indexed by the targets of the shots)
+	 * @param targetYs y coordinates of the targets (indexed by the targets of the shots)
+	 * @param targetZs heights of the targets (indexed by the targets of the shots)
+	 * @param from     index of the first shot to be steered
+	 */
+	protected final void steer( final ShotPool shots, final float[] targetXs, final float[] targetYs, final float[] targetZs, final int from ) {
+		for ( int i = from; i < shots.size; i++ ) {
+			if ( shots.type[ i ] != ShotPool.ROCKET )
+				continue;
+
+			final int   target = shots.target[ i ];
+			final float dx     = targetXs[ target ] - shots.x[ i ], dy = targetYs[ target ] - shots.y[ i ];
+			final float vx     = shots.vx[ i ], vy = shots.vy[ i ];
+			final float cross  = vx * dy - vy * dx; // Positive if the target is on the left (turning by a positive angle)
+			final float dot    = vx * dx + vy * dy;
+			if ( dot > 0.0f && Math.abs( cross ) * COS_TURN <= dot * SIN_TURN ) {
+				// The target is within the turn, we head straight at it
+				final float k = GameSimulation.ROCKET_VELOCITY / (float) Math.sqrt( dx * dx + dy * dy );
+				shots.vx[ i ] = dx * k;
+				shots.vy[ i ] = dy * k;
+			}
+			else {
+				final float sin = cross < 0.0f ? -SIN_TURN : SIN_TURN;
+				shots.vx[ i ] = vx * COS_TURN - vy * sin;
+				shots.vy[ i ] = vx * sin + vy * COS_TURN;
+			}
+			shots.vz[ i ] = shots.z[ i ] < targetZs[ target ] ? CLIMB : -CLIMB;
+		}
+	}
+
+}
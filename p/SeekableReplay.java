@@ -0,0 +1,82 @@
+package p;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Replay of a recorded match which can jump to any step.<br>
+ * The inputs of the match are read into memory (a byte per player per step, a few tens of KB with 2 players), and {@link Keyframes} are taken
+ * while simulating, so jumping to a step means restoring the nearest keyframe before it and simulating
+ * at most {@link Keyframes#interval} - 1 steps (the first time the steps are simulated from the last keyframe,
+ * taking the keyframes on the way).
+ *
+ * @author Andras Belicza
+ */
+class SeekableReplay {
+
+	/** The simulation of the replayed match.                            */
+	public  final GameSimulation simulation;
+	/** Number of the players of the match.                              */
+	private final int            playersCount;
+	/** Packed states of the control keys of the players, step by step.  */
+	private final byte[]         inputs;
+	/** Keyframes of the match.                                          */
+	private final Keyframes      keyframes;
+	/** States of the control keys of the players of a step.             */
+	private final boolean[][]    keyStatess;
+
+
+	/**
+	 * Creates a new SeekableReplay: reads the rest of the recording, and starts the game at step 0.
+	 * @param replay           the recording (its header is already read)
+	 * @param keyframeInterval number of steps between the keyframes
+	 * @throws IOException if the recording cannot be read
+	 */
+	public SeekableReplay( final MatchReplay replay, final int keyframeInterval ) throws IOException {
+		simulation   = new GameSimulation( new Model( replay.playersCount, replay.teamsCount ), null );
+		playersCount = replay.playersCount;
+		keyStatess   = new boolean[ playersCount ][ GameSimulation.KEYS_COUNT ];
+		keyframes    = new Keyframes( keyframeInterval );
+
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		while ( replay.readStep( keyStatess ) )
+			for ( final boolean[] keyStates : keyStatess )
+				bytes.write( GameSimulation.packKeys( keyStates ) );
+		inputs = bytes.toByteArray();
+
+		simulation.newGame( replay.seed );
+		keyframes.take( simulation );
+	}
+
+	/**
+	 * Returns the number of the recorded steps.
+	 * @return the number of the recorded steps
+	 */
+	public long getStepsCount() {
+		return inputs.length / playersCount;
+	}
+
+	/**
+	 * Jumps to a step: after this the game is at the state after the specified number of steps.
+	 * @param tick the step to jump to (between 0 and the number of recorded steps)
+	 * @throws IllegalArgumentException if the step is not recorded
+	 */
+	public void seek( final long tick ) {
+		if ( tick < 0 || tick > getStepsCount() )
+			throw new IllegalArgumentException( "Step not recorded: " + tick );
+
+		// We restore the nearest keyframe unless we're already between it and the step
+		final long current = simulation.getTick();
+		if ( tick < current || keyframes.floor( tick ) > current )
+			keyframes.restore( simulation, tick );
+
+		while ( simulation.getTick() < tick ) {
+			final int step = (int) simulation.getTick();
+			for ( int i = 0; i < playersCount; i++ )
+				GameSimulation.unpackKeys( inputs[ step * playersCount + i ], keyStatess[ i ] );
+			simulation.step( keyStatess );
+			keyframes.take( simulation );
+		}
+	}
+
+}
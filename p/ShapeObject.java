@@ -1,117 +1,114 @@
-package p;
-
-import java.awt.Polygon;
-
-/**
- * Represents a(n moving) object which has a shape
- * (which is not used in the game, for space matters we merged with its inheriter classes!).<br>
- * 
- * The class also represents the rocket, if instances are created by callin the public constructor
- * with false parameter.<br>
- * 
- * The class also represents the player, if instances are created by callin the public constructor
- * with true parameter.
- * 
- * The class also used to represent an explosion of a rocket or an aircraft, or rather to
- * represent the explosion itself.
- * 
- * @author Andras Belicza
- */
-public class ShapeObject extends MovingObject {
-
-	
-	//==================================================================================================================
-    // ShapeObject attributes
-	//==================================================================================================================
-
-	// This is here and not at the view because decisions of crashing and hitting (with bullets or aircrafts)
-	// uses the polygon too (not the boundary rectangle only)
-	/** Polygon of the object.                                                             */
-	public final Polygon shape      = new Polygon();
-	
-	
-	//==================================================================================================================
-    // Rocket attributes
-	//==================================================================================================================
-
-	/** Reference to the position of the rockets target. (Rockets are "target followers".) */
-	public float[]       targetPos;
-	
-
-	//==================================================================================================================
-    // Rocket attributes
-	//==================================================================================================================
-
-	/** State of the shield of the player. 0 means gone, 1 means undamaged.                */
-	public float         shield     = 1.0f;
-	/** Array of reloading states of the weapons.
-	 *  0 means out, 1 means fully operational.
-	 *  Length of the array is 2.                                                          */
-	public float[]       reloadings = new float[] { 1.0f, 1.0f };
-	/** Direction of the player. This is an angle between -PI and PI rad.                  */
-	public float         direction;
-
-
-	//==================================================================================================================
-    // Explosion attributes
-	//==================================================================================================================
-
-	/** Radius of the explosion or null if this object does not represents an explosion.    */
-	public Float         explosionRadius;
-	
-	
-
-	/** Tells whether the shape object is a player or a rocket.                            */
-	public final boolean isPlayer;
-	
-	
-	/**
-	 * Creates a ShapeObject, a rocket.
-	 * @param isPlayer tells whether the creatable shape object will be a player or a rocket
-	 */
-	public ShapeObject( final boolean isPlayer ) {
-		this.isPlayer = isPlayer;
-		
-		// Trick: we gives the coordinates with int numbers not in double, compiling and storing doubles in classes would consume much more space
-		int[] xs;   // x coordinates of the shape of the object in the model coordiante system which is a 1000-length square
-		int[] ys;   // y coordinates of the shape of the object in the model coordiante system which is a 1000-length square
-		int   size; // size of the shape of the object
-		// The shape faces the 0 direction.
-
-		if ( isPlayer ) {
-			// The the original coordinates are scaled to 90% and moved by 10%,
-			// because I wanted to move the rotate center point by 10 percent to left (looks much better during moving in case of this shape)
-			// This is done by constants here and manually not with cycle. These manual constant operations are not compiled into classes, only the results (more free space...)
-			final int    DELTA = 100;
-			final double SCALE = 0.9;
-			xs   = new int[] { DELTA   + (int) ( SCALE * 1000 ), DELTA   + (int) ( SCALE * 800 ), DELTA   + (int) ( SCALE * 600 ), DELTA   + (int) ( SCALE * 466 ), DELTA   + (int) ( SCALE * 333 ), DELTA   + (int) ( SCALE * 400 ), DELTA   + (int) ( SCALE * 160 ), DELTA   + (int) ( SCALE * 0   ), DELTA   + (int) ( SCALE * 0   ), DELTA   + (int) ( SCALE * 160 ), DELTA   + (int) ( SCALE * 400 ), DELTA   + (int) ( SCALE * 333  ), DELTA   + (int) ( SCALE * 466 ), DELTA   + (int) ( SCALE * 600 ), DELTA   + (int) ( SCALE * 800 ) };
-		    ys   = new int[] { DELTA/2 + (int) ( SCALE * 500  ), DELTA/2 + (int) ( SCALE * 433 ), DELTA/2 + (int) ( SCALE * 433 ), DELTA/2 + (int) ( SCALE * 33  ), DELTA/2 + (int) ( SCALE * 0   ), DELTA/2 + (int) ( SCALE * 433 ), DELTA/2 + (int) ( SCALE * 440 ), DELTA/2 + (int) ( SCALE * 233 ), DELTA/2 + (int) ( SCALE * 766 ), DELTA/2 + (int) ( SCALE * 560 ), DELTA/2 + (int) ( SCALE * 566 ), DELTA/2 + (int) ( SCALE * 1000 ), DELTA/2 + (int) ( SCALE * 966 ), DELTA/2 + (int) ( SCALE * 566 ), DELTA/2 + (int) ( SCALE * 566 ) };
-			size = 70;
-		}
-		else {
-			xs   = new int[] { 1000, 875, 625, 500, 500, 125, 0  , 0  , 125, 500, 500, 625, 875 };
-		    ys   = new int[] { 500 , 438, 438, 313, 438, 438, 313, 687, 562, 562, 687, 562, 562 };
-			size = 40;
-		}
-		
-		for ( int i = 0; i < xs.length; i++ )
-			shape.addPoint( (int) ( xs[ i ] * size / 1000.0 ) - size/2, (int) ( ys[ i ] * size / 1000.0 ) - size/2 );
-	}
-
-	/**
-	 * Steps the object.<br>
-	 * Stepping an shapeObject means not only adding the velocity to the position
-	 * but also recalculating the points of its polygon.
-	 * @return true if step has been cut in order to stay inside the land, false otherwise
-	 */
-	public boolean step() {
-		final float[] oldPos = p.clone();  // We need this because we "recalculate" the aircrafts polygon only by simply translate it with the value of step
-		
-		final boolean wasCut = super.step();
-		
-		// Now we "recalculate" the points of the aircrafts polygon
-		shape.translate( (int) p[ 0 ] - (int) oldPos[ 0 ], (int) p[ 1 ] - (int) oldPos[ 1 ] );
-		return wasCut;
-	}
-
-}
+package p;
+
+/**
+ * Represents a(n moving) object which has a shape: the player, the aircraft.<br>
+ *
+ * The shape is a shared, immutable {@link ShapeTemplate}, the object itself only stores its position
+ * (which the shape is tested and drawn at) and its direction.<br>
+ *
+ * Rockets in flight are in the {@link ShotPool}, explosions (of the rockets and of the aircrafts)
+ * are in the {@link ExplosionPool}, they are not objects.
+ *
+ * @author Andras Belicza
+ */
+public class ShapeObject extends MovingObject {
+
+
+	//==================================================================================================================
+    // ShapeObject attributes
+	//==================================================================================================================
+
+	// This is here and not at the view because decisions of crashing and hitting (with bullets or aircrafts)
+	// uses the shape too (not the boundary rectangle only)
+	/** Shape of the object (shared by the objects of its type).                           */
+	public final ShapeTemplate shape;
+
+
+	//==================================================================================================================
+    // Player attributes
+	//==================================================================================================================
+
+	/** State of the shield of the player. 0 means gone, 1 means undamaged.                */
+	public float         shield     = 1.0f;
+	/** Array of reloading states of the weapons.
+	 *  0 means out, 1 means fully operational.
+	 *  Length of the array is 2.                                                          */
+	public float[]       reloadings = new float[] { 1.0f, 1.0f };
+	/** Direction of the player. This is an angle between -PI and PI rad.                  */
+	public float         direction;
+	/** Tells whether the player has exploded (its explosion is in the explosions of the model). */
+	public boolean       exploded;
+	/** Team of the player, the players of the other teams are its enemies.                */
+	public int           team;
+	/** Index of the player in the players of the model. Ties (e.g. of shots hitting aircrafts at the same time)
+	 *  are decided by it, not by the order of the aircrafts in the grid (which is not saved in the model states). */
+	public int           index;
+
+
+	/**
+	 * Creates a ShapeObject.
+	 * @param shape shape of the object
+	 */
+	public ShapeObject( final ShapeTemplate shape ) {
+		this.shape = shape;
+	}
+
+	/**
+	 * Returns the quantized rotation of the object (see {@link ShapeTemplate#toRotation(float)}).
+	 * @return the quantized rotation of the object
+	 */
+	public int getRotation() {
+		return ShapeTemplate.toRotation( direction );
+	}
+
+	/**
+	 * Tells whether a hit shape of the object contains a point.<br>
+	 * The hit shape is rotated and scaled with the object as it is drawn: the point is transformed into
+	 * the coordinate system of the hit shape.
+	 * @param hitShape the hit shape (for example the swept shape of the shape of the object)
+	 * @param px       x coordinate of the point
+	 * @param py       y coordinate of the point
+	 * @return true if the hit shape of the object contains the point; false otherwise
+	 */
+	public boolean contains( final SweptShape hitShape, final float px, final float py ) {
+		final int   rotation = getRotation();
+		final float cos = ShapeTemplate.COS[ rotation ], sin = ShapeTemplate.SIN[ rotation ], scale = ShapeTemplate.getScale( getHeight() );
+		final float x   = px - p[ 0 ], y = py - p[ 1 ];
+		return hitShape.contains( 0.0f, 0.0f, ( cos * x + sin * y ) / scale, ( cos * y - sin * x ) / scale );
+	}
+
+	/**
+	 * Finds where a segment enters a hit shape of the object (see {@link SweptShape#sweep(float, float, float, float, float, float, float[])}).<br>
+	 * The hit shape is rotated and scaled with the object as it is drawn: the segment is transformed into
+	 * the coordinate system of the hit shape (its parameters don't change).
+	 * @param hitShape the hit shape (for example the swept shape of the shape of the object)
+	 * @param x0       x coordinate of the start point of the segment
+	 * @param y0       y coordinate of the start point of the segment
+	 * @param dx       x component of the vector from the start point to the end point
+	 * @param dy       y component of the vector from the start point to the end point
+	 * @param t        range of parameters of the segment to be tested (in); the parameter where the segment enters the hit shape first
+	 *                 is stored at index 0 if it does (out, index 1 is undefined)
+	 * @return true if the segment enters the hit shape in the range; false otherwise
+	 */
+	public boolean sweep( final SweptShape hitShape, final float x0, final float y0, final float dx, final float dy, final float[] t ) {
+		final int   rotation = getRotation();
+		final float cos = ShapeTemplate.COS[ rotation ], sin = ShapeTemplate.SIN[ rotation ], scale = ShapeTemplate.getScale( getHeight() );
+		final float x   = x0 - p[ 0 ], y = y0 - p[ 1 ];
+		return hitShape.sweep( 0.0f, 0.0f, ( cos * x + sin * y ) / scale, ( cos * y - sin * x ) / scale, ( cos * dx + sin * dy ) / scale, ( cos * dy - sin * dx ) / scale, t );
+	}
+
+	/**
+	 * Tells whether the shape of the object intersects the shape of another object, both rotated and scaled as they are drawn.
+	 * @param other the other object
+	 * @return true if the shape of the object intersects the shape of the other object; false otherwise
+	 */
+	public boolean intersects( final ShapeObject other ) {
+		final int   rotation = getRotation(), relativeRotation = other.getRotation() - rotation & ShapeTemplate.ROTATIONS - 1;
+		final float cos = ShapeTemplate.COS[ rotation ], sin = ShapeTemplate.SIN[ rotation ], scale = ShapeTemplate.getScale( getHeight() );
+		final float relativeScale = ShapeTemplate.getScale( other.getHeight() ) / scale;
+		final float x   = other.p[ 0 ] - p[ 0 ], y = other.p[ 1 ] - p[ 1 ];
+		return shape.swept.intersects( other.shape.swept, ShapeTemplate.COS[ relativeRotation ] * relativeScale, ShapeTemplate.SIN[ relativeRotation ] * relativeScale,
+				( cos * x + sin * y ) / scale, ( cos * y - sin * x ) / scale );
+	}
+
+}
@@ -0,0 +1,145 @@
+package p;
+
+import static p.MovingObject.BOUNDARIES;
+
+import java.awt.Graphics2D;
+import java.awt.Polygon;
+
+/**
+ * Immutable shape of a type of objects (aircraft, rocket), shared by all objects of the type.<br>
+ * The shape is around the origin and it faces the 0 direction; an object only stores its position
+ * (and orientation), and the shape is tested or drawn at the position of the object.
+ * The polygon of the shape is never handed out, so it can't be modified (translated) by anyone.<br>
+ * The shape is drawn rotated to the direction of the object and scaled by its height (see {@link #getScale(int)}),
+ * and it is tested the same way: the points are transformed into the coordinate system of the shape.
+ * The rotations are quantized to ROTATIONS angles, so their sines and cosines are looked up from tables,
+ * and the shapes of another shape hitting this one can be precomputed for every relative rotation
+ * (see {@link #createHitShapes(ShapeTemplate)}).
+ *
+ * @author Andras Belicza
+ */
+final class ShapeTemplate {
+
+	/** Number of the quantized rotations of the shapes (power of 2).                 */
+	public static final int     ROTATIONS = 128;
+	/** Cosines of the quantized rotations.                                           */
+	public static final float[] COS       = new float[ ROTATIONS ];
+	/** Sines of the quantized rotations.                                             */
+	public static final float[] SIN       = new float[ ROTATIONS ];
+	static {
+		for ( int i = 0; i < ROTATIONS; i++ ) {
+			COS[ i ] = (float) StrictMath.cos( i * 2.0 * Math.PI / ROTATIONS );
+			SIN[ i ] = (float) StrictMath.sin( i * 2.0 * Math.PI / ROTATIONS );
+		}
+	}
+
+	/** Shape of the aircrafts (of the players).                                      */
+	public static final ShapeTemplate AIRCRAFT = createAircraft();
+	/** Shape of the rockets.                                                         */
+	public static final ShapeTemplate ROCKET   = createRocket();
+
+	/** Polygon of the shape (around the origin, facing the 0 direction).             */
+	private final Polygon polygon;
+	/** X coordinate of the upper left corner of the bounding rectangle of the shape. */
+	public  final int     x;
+	/** Y coordinate of the upper left corner of the bounding rectangle of the shape. */
+	public  final int     y;
+	/** Width of the bounding rectangle of the shape.                                 */
+	public  final int     width;
+	/** Height of the bounding rectangle of the shape.                                */
+	public  final int     height;
+	/** Maximum distance of a point of the shape from the origin (in any rotation).   */
+	public  final int     reach;
+	/** The shape for the swept collision tests.                                      */
+	public  final SweptShape swept;
+
+
+	/**
+	 * Creates a new ShapeTemplate.<br>
+	 * The coordinates are given in a 1000-length square, and they are scaled to the size of the shape.
+	 * @param xs   x coordinates of the points of the shape in the 1000-length square
+	 * @param ys   y coordinates of the points of the shape in the 1000-length square
+	 * @param size size of the shape
+	 */
+	private ShapeTemplate( final int[] xs, final int[] ys, final int size ) {
+		polygon = new Polygon();
+		for ( int i = 0; i < xs.length; i++ )
+			polygon.addPoint( (int) ( xs[ i ] * size / 1000.0 ) - size/2, (int) ( ys[ i ] * size / 1000.0 ) - size/2 );
+
+		x      = polygon.getBounds().x;
+		y      = polygon.getBounds().y;
+		width  = polygon.getBounds().width;
+		height = polygon.getBounds().height;
+		double maxDistance = 0.0;
+		for ( int i = 0; i < polygon.npoints; i++ )
+			maxDistance = Math.max( maxDistance, Math.hypot( polygon.xpoints[ i ], polygon.ypoints[ i ] ) );
+		reach  = (int) Math.ceil( maxDistance );
+		swept  = SweptShape.of( polygon );
+	}
+
+	/**
+	 * Creates the shape of the aircrafts.
+	 * @return the shape of the aircrafts
+	 */
+	private static ShapeTemplate createAircraft() {
+		// The the original coordinates are scaled to 90% and moved by 10%,
+		// because I wanted to move the rotate center point by 10 percent to left (looks much better during moving in case of this shape)
+		// This is done by constants here and manually not with cycle. These manual constant operations are not compiled into classes, only the results (more free space...)
+		final int    DELTA = 100;
+		final double SCALE = 0.9;
+		return new ShapeTemplate(
+			new int[] { DELTA   + (int) ( SCALE * 1000 ), DELTA   + (int) ( SCALE * 800 ), DELTA   + (int) ( SCALE * 600 ), DELTA   + (int) ( SCALE * 466 ), DELTA   + (int) ( SCALE * 333 ), DELTA   + (int) ( SCALE * 400 ), DELTA   + (int) ( SCALE * 160 ), DELTA   + (int) ( SCALE * 0   ), DELTA   + (int) ( SCALE * 0   ), DELTA   + (int) ( SCALE * 160 ), DELTA   + (int) ( SCALE * 400 ), DELTA   + (int) ( SCALE * 333  ), DELTA   + (int) ( SCALE * 466 ), DELTA   + (int) ( SCALE * 600 ), DELTA   + (int) ( SCALE * 800 ) },
+			new int[] { DELTA/2 + (int) ( SCALE * 500  ), DELTA/2 + (int) ( SCALE * 433 ), DELTA/2 + (int) ( SCALE * 433 ), DELTA/2 + (int) ( SCALE * 33  ), DELTA/2 + (int) ( SCALE * 0   ), DELTA/2 + (int) ( SCALE * 433 ), DELTA/2 + (int) ( SCALE * 440 ), DELTA/2 + (int) ( SCALE * 233 ), DELTA/2 + (int) ( SCALE * 766 ), DELTA/2 + (int) ( SCALE * 560 ), DELTA/2 + (int) ( SCALE * 566 ), DELTA/2 + (int) ( SCALE * 1000 ), DELTA/2 + (int) ( SCALE * 966 ), DELTA/2 + (int) ( SCALE * 566 ), DELTA/2 + (int) ( SCALE * 566 ) },
+			70 );
+	}
+
+	/**
+	 * Creates the shape of the rockets.
+	 * @return the shape of the rockets
+	 */
+	private static ShapeTemplate createRocket() {
+		return new ShapeTemplate( new int[] { 1000, 875, 625, 500, 500, 125, 0  , 0  , 125, 500, 500, 625, 875 },
+		                          new int[] { 500 , 438, 438, 313, 438, 438, 313, 687, 562, 562, 687, 562, 562 }, 40 );
+	}
+
+	/**
+	 * Returns the quantized rotation of a direction.
+	 * @param direction the direction (an angle in radian)
+	 * @return the index of the nearest quantized rotation (between 0 and ROTATIONS-1)
+	 */
+	public static int toRotation( final float direction ) {
+		return (int) Math.floor( direction * ( ROTATIONS / ( 2.0 * Math.PI ) ) + 0.5 ) & ROTATIONS - 1;
+	}
+
+	/**
+	 * Returns the scale of the shapes at a height: the shapes are real size at maximum height and are 40% at 0 height.
+	 * @param height the height
+	 * @return the scale of the shapes at the height
+	 */
+	public static float getScale( final int height ) {
+		return 0.4f + 0.6f * height / BOUNDARIES[ 2 ];
+	}
+
+	/**
+	 * Creates the shapes of the positions of another shape where it hits this shape, for every relative rotation
+	 * of the other shape (see {@link SweptShape#expand(ConvexHull, float, float)}). The other shape is represented
+	 * by its convex hull, and it is taken as the same scale as this shape.
+	 * @param other the other shape
+	 * @return the shapes of the positions of the other shape where it hits this shape, indexed by relative rotation
+	 */
+	public SweptShape[] createHitShapes( final ShapeTemplate other ) {
+		final SweptShape[] hitShapes = new SweptShape[ ROTATIONS ];
+		for ( int rotation = 0; rotation < ROTATIONS; rotation++ )
+			hitShapes[ rotation ] = swept.expand( other.swept.hull, COS[ rotation ], SIN[ rotation ] );
+		return hitShapes;
+	}
+
+	/**
+	 * Fills the shape at the origin of the graphics context (which is to be transformed to the position of the object).
+	 * @param g2 graphics context to draw into
+	 */
+	public void fill( final Graphics2D g2 ) {
+		g2.fillPolygon( polygon );
+	}
+
+}
@@ -0,0 +1,189 @@
+package p;
+
+import java.util.Arrays;
+
+import static p.MovingObject.BOUNDARIES;
+
+/**
+ * The bullets and rockets in flight.<br>
+ * The shots are not objects, they are stored in parallel primitive arrays (position, velocity, type and target),
+ * shot i is described by the i. elements of the arrays. The arrays are preallocated and reused, so
+ * firing and destroying shots does not allocate (the arrays only grow if there are more shots than ever before).
+ * A shot is removed by moving the last shot to its place, so the live shots are always at the first
+ * {@link #size} indices, but removing a shot changes the index of the last shot.
+ *
+ * @author Andras Belicza
+ */
+class ShotPool {
+
+	/** Type of the bullets.                                         */
+	public static final byte BULLET = 0;
+	/** Type of the rockets.                                         */
+	public static final byte ROCKET = 1;
+
+	/** Number of the shots.                                         */
+	public int     size;
+
+	/** X coordinates of the positions of the shots.                 */
+	public float[] x;
+	/** Y coordinates of the positions of the shots.                 */
+	public float[] y;
+	/** Heights (z coordinates) of the positions of the shots.       */
+	public float[] z;
+	/** X components of the velocities of the shots.                 */
+	public float[] vx;
+	/** Y components of the velocities of the shots.                 */
+	public float[] vy;
+	/** Vertical (z) components of the velocities of the shots.      */
+	public float[] vz;
+	/** Types of the shots (BULLET or ROCKET).                       */
+	public byte[]  type;
+	/** Index of the player targeted by the shots. (Rockets are "target followers".) */
+	public int[]   target;
+
+
+	/**
+	 * Creates a new ShotPool.
+	 * @param capacity number of shots to preallocate room for
+	 */
+	public ShotPool( final int capacity ) {
+		x      = new float[ capacity ];
+		y      = new float[ capacity ];
+		z      = new float[ capacity ];
+		vx     = new float[ capacity ];
+		vy     = new float[ capacity ];
+		vz     = new float[ capacity ];
+		type   = new byte [ capacity ];
+		target = new int  [ capacity ];
+	}
+
+	/**
+	 * Adds a new shot.
+	 * @param type_   type of the shot (BULLET or ROCKET)
+	 * @param x_      x coordinate of the position of the shot
+	 * @param y_      y coordinate of the position of the shot
+	 * @param z_      height of the shot
+	 * @param vx_     x component of the velocity of the shot
+	 * @param vy_     y component of the velocity of the shot
+	 * @param vz_     vertical component of the velocity of the shot
+	 * @param target_ index of the player targeted by the shot
+	 * @return the index of the new shot
+	 */
+	public int add( final byte type_, final float x_, final float y_, final float z_, final float vx_, final float vy_, final float vz_, final int target_ ) {
+		if ( size == x.length )
+			grow();
+
+		final int i = size++;
+		type  [ i ] = type_;
+		x     [ i ] = x_;
+		y     [ i ] = y_;
+		z     [ i ] = z_;
+		vx    [ i ] = vx_;
+		vy    [ i ] = vy_;
+		vz    [ i ] = vz_;
+		target[ i ] = target_;
+		return i;
+	}
+
+	/**
+	 * Removes a shot by moving the last shot to its place.
+	 * @param i index of the shot to be removed
+	 */
+	public void remove( final int i ) {
+		final int last = --size;
+		if ( i == last )
+			return;
+
+		type  [ i ] = type  [ last ];
+		x     [ i ] = x     [ last ];
+		y     [ i ] = y     [ last ];
+		z     [ i ] = z     [ last ];
+		vx    [ i ] = vx    [ last ];
+		vy    [ i ] = vy    [ last ];
+		vz    [ i ] = vz    [ last ];
+		target[ i ] = target[ last ];
+	}
+
+	/**
+	 * Removes all shots.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Makes this pool a copy of another one: copies the shots of the other pool.<br>
+	 * The arrays only grow if needed, so copying does not allocate.
+	 * @param other the pool to be copied
+	 */
+	public void copyFrom( final ShotPool other ) {
+		while ( x.length < other.size )
+			grow();
+
+		size = other.size;
+		System.arraycopy( other.type  , 0, type  , 0, size );
+		System.arraycopy( other.x     , 0, x     , 0, size );
+		System.arraycopy( other.y     , 0, y     , 0, size );
+		System.arraycopy( other.z     , 0, z     , 0, size );
+		System.arraycopy( other.vx    , 0, vx    , 0, size );
+		System.arraycopy( other.vy    , 0, vy    , 0, size );
+		System.arraycopy( other.vz    , 0, vz    , 0, size );
+		System.arraycopy( other.target, 0, target, 0, size );
+	}
+
+	/**
+	 * Steps a shot.<br>
+	 * Stepping a shot means adding the velocity to the position and checking if it left the land.
+	 * If it did, we cut the step so it can stay inside, but we return that step has been cut.
+	 * (Same as {@link MovingObject#step()}.)
+	 * @param i index of the shot to be stepped
+	 * @return true if step has been cut in order to stay inside the land, false otherwise
+	 */
+	public boolean step( final int i ) {
+		boolean cut = false;
+
+		x[ i ] += vx[ i ];
+		if ( x[ i ] < 0.0f ) {
+			x[ i ] = 0.0f;
+			cut    = true;
+		}
+		if ( x[ i ] >= BOUNDARIES[ 0 ] ) {
+			x[ i ] = BOUNDARIES[ 0 ];
+			cut    = true;
+		}
+
+		y[ i ] += vy[ i ];
+		if ( y[ i ] < 0.0f ) {
+			y[ i ] = 0.0f;
+			cut    = true;
+		}
+		if ( y[ i ] >= BOUNDARIES[ 1 ] ) {
+			y[ i ] = BOUNDARIES[ 1 ];
+			cut    = true;
+		}
+
+		z[ i ] += vz[ i ];
+		if ( z[ i ] < 0.0f )
+			z[ i ] = 0.0f;
+		if ( z[ i ] >= BOUNDARIES[ 2 ] )
+			z[ i ] = BOUNDARIES[ 2 ];
+
+		return cut;
+	}
+
+	/**
+	 * Doubles the capacity of the arrays.
+	 */
+	private void grow() {
+		final int capacity = Math.max( 16, x.length * 2 );
+		x      = Arrays.copyOf( x     , capacity );
+		y      = Arrays.copyOf( y     , capacity );
+		z      = Arrays.copyOf( z     , capacity );
+		vx     = Arrays.copyOf( vx    , capacity );
+		vy     = Arrays.copyOf( vy    , capacity );
+		vz     = Arrays.copyOf( vz    , capacity );
+		type   = Arrays.copyOf( type  , capacity );
+		target = Arrays.copyOf( target, capacity );
+	}
+
+}
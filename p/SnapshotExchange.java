@@ -0,0 +1,54 @@
+package p;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Triple buffer of the render snapshots: the simulation publishes, the view consumes the snapshots without locks.<br>
+ * There are 3 snapshots: the back one is owned by the simulation (it captures the model into it), the front one
+ * is owned by the view (it paints from it), and the middle one is the latest published snapshot.
+ * Publishing swaps the back and the middle snapshots, acquiring swaps the front and the middle snapshots
+ * if there is a newer one, both with a single atomic operation. So neither of them ever waits for the other,
+ * the simulation may publish more snapshots during a frame (the view paints the latest one), and the view
+ * may paint the same snapshot more times. The atomic swaps also make the content of the snapshot visible
+ * to the other thread.
+ *
+ * @author Andras Belicza
+ */
+class SnapshotExchange {
+
+	/** Flag of the middle index telling that the middle snapshot has not been acquired yet. */
+	private static final int FRESH = 4;
+
+	/** The snapshots.                                                             */
+	private final RenderSnapshot[] snapshots = { new RenderSnapshot(), new RenderSnapshot(), new RenderSnapshot() };
+	/** Index of the middle (the latest published) snapshot, with the FRESH flag.  */
+	private final AtomicInteger    middle    = new AtomicInteger( 1 );
+	/** Index of the back snapshot (accessed only by the publishing thread).       */
+	private       int              back      = 0;
+	/** Index of the front snapshot (accessed only by the acquiring thread).       */
+	private       int              front     = 2;
+
+
+	/**
+	 * Captures the state of the model into the back snapshot, and publishes it.<br>
+	 * Must be called by the same thread all the time (the simulation thread).
+	 * @param model model to be captured
+	 */
+	public void publish( final Model model ) {
+		snapshots[ back ].capture( model );
+		back = middle.getAndSet( back | FRESH ) & ~FRESH;
+	}
+
+	/**
+	 * Acquires the latest published snapshot.<br>
+	 * The returned snapshot is not modified until the next call, it can be read without locking.
+	 * Must be called by the same thread all the time (the painting thread).
+	 * @return the latest published snapshot (the previous one if there is no newer one; empty if nothing has been published yet)
+	 */
+	public RenderSnapshot acquire() {
+		if ( ( middle.get() & FRESH ) != 0 )
+			front = middle.getAndSet( front ) & ~FRESH;
+		return snapshots[ front ];
+	}
+
+}
@@ -0,0 +1,202 @@
+package p;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over the plane of the land (a spatial hash), the broadphase of the collision detection.<br>
+ * The plane is divided into square cells, every registered moving object is listed in the cell of its position.
+ * A query only visits the cells around the queried area, so finding the objects near a point does not depend
+ * on the number of all objects.<br>
+ * The objects are in intrusive doubly linked lists (index arrays, no allocation per object or per step),
+ * and they are moved between the cells incrementally: a registered object updates its cell when it is stepped
+ * (see {@link MovingObject#step()}), which only costs two shifts if it stays in the same cell.<br>
+ * The cells are found by the positions of the objects, but the objects have extent: the grid is created with the
+ * <i>reach</i> of its objects (the maximum distance of a point of an object from its position in both of the
+ * coordinate axis), and the queried areas are enlarged by it.
+ *
+ * @author Andras Belicza
+ */
+class SpatialGrid {
+
+	/** Size of a cell in both of the coordinate axis is 2^cellShift.            */
+	public  final int       cellShift;
+	/** Number of cells in both of the coordinate axis.                            */
+	public  final int       cellsCount;
+	/** Maximum distance of a point of an object from its position.               */
+	public  final int       reach;
+
+	/** Index of the first object of the cells, or -1 if a cell is empty.          */
+	private final int[]     heads;
+	/** The registered objects, indexed by their grid id (null for free ids).      */
+	private MovingObject[]  objects = new MovingObject[ 8 ];
+	/** Cell of the objects.                                                       */
+	private int[]           cells   = new int[ 8 ];
+	/** Next object in the same cell, or -1.                                       */
+	private int[]           nexts   = new int[ 8 ];
+	/** Previous object in the same cell, or -1.                                   */
+	private int[]           prevs   = new int[ 8 ];
+	/** Number of grid ids in use (including the free ones below it).             */
+	private int             idsCount;
+	/** First free grid id, or -1 (the free ids are chained through nexts).        */
+	private int             firstFreeId = -1;
+
+	/** Result of the last query: the found objects (only the first ones are valid, see {@link #query(int, int, int, int)}). */
+	public  MovingObject[]  found   = new MovingObject[ 8 ];
+
+
+	/**
+	 * Creates a new SpatialGrid.
+	 * @param size      size of the covered plane in both of the coordinate axis
+	 * @param cellShift size of a cell in both of the coordinate axis is 2^cellShift (so the cell of a coordinate is a shift, not a division)
+	 * @param reach     maximum distance of a point of an object from its position in both of the coordinate axis
+	 */
+	public SpatialGrid( final int size, final int cellShift, final int reach ) {
+		this.cellShift = cellShift;
+		this.reach     = reach;
+		cellsCount     = ( ( size - 1 ) >> cellShift ) + 1;
+		heads          = new int[ cellsCount * cellsCount ];
+		Arrays.fill( heads, -1 );
+	}
+
+	/**
+	 * Removes all the objects.
+	 */
+	public void clear() {
+		for ( int id = 0; id < idsCount; id++ )
+			if ( objects[ id ] != null ) {
+				objects[ id ].grid = null;
+				objects[ id ]      = null;
+			}
+		Arrays.fill( heads, -1 );
+		idsCount    = 0;
+		firstFreeId = -1;
+	}
+
+	/**
+	 * Registers an object at its current position.
+	 * @param object object to be registered (must not be registered in a grid)
+	 */
+	public void add( final MovingObject object ) {
+		final int id;
+		if ( firstFreeId >= 0 ) {
+			id          = firstFreeId;
+			firstFreeId = nexts[ id ];
+		}
+		else {
+			if ( idsCount == objects.length ) {
+				objects = Arrays.copyOf( objects, idsCount * 2 );
+				cells   = Arrays.copyOf( cells  , idsCount * 2 );
+				nexts   = Arrays.copyOf( nexts  , idsCount * 2 );
+				prevs   = Arrays.copyOf( prevs  , idsCount * 2 );
+			}
+			id = idsCount++;
+		}
+
+		objects[ id ]  = object;
+		object.grid    = this;
+		object.gridId  = id;
+		link( id, getCell( object.p[ 0 ], object.p[ 1 ] ) );
+	}
+
+	/**
+	 * Unregisters an object.
+	 * @param object object to be unregistered (must be registered in this grid)
+	 */
+	public void remove( final MovingObject object ) {
+		final int id = object.gridId;
+		unlink( id );
+		objects[ id ] = null;
+		object.grid   = null;
+		nexts[ id ]   = firstFreeId;
+		firstFreeId   = id;
+	}
+
+	/**
+	 * Moves a registered object to the cell of its current position (if it's not there already).
+	 * @param object object to be updated (must be registered in this grid)
+	 */
+	public void update( final MovingObject object ) {
+		final int id   = object.gridId;
+		final int cell = getCell( object.p[ 0 ], object.p[ 1 ] );
+		if ( cell != cells[ id ] ) {
+			unlink( id );
+			link( id, cell );
+		}
+	}
+
+	/**
+	 * Finds the objects which may overlap the specified rectangle area.<br>
+	 * The objects listed in the cells touched by the area enlarged by the reach are collected into {@link #found}
+	 * (it grows if needed). It's only a broadphase: the found objects may still be farther,
+	 * the exact tests are up to the caller. The result is valid until the next query.
+	 * @param minX minimum x coordinate of the area
+	 * @param minY minimum y coordinate of the area
+	 * @param maxX maximum x coordinate of the area
+	 * @param maxY maximum y coordinate of the area
+	 * @return the number of the found objects
+	 */
+	public int query( final int minX, final int minY, final int maxX, final int maxY ) {
+		final int minCellX = getCellCoordinate( minX - reach ), maxCellX = getCellCoordinate( maxX + reach );
+		final int minCellY = getCellCoordinate( minY - reach ), maxCellY = getCellCoordinate( maxY + reach );
+
+		int count = 0;
+		for ( int cellY = minCellY; cellY <= maxCellY; cellY++ )
+			for ( int cellX = minCellX; cellX <= maxCellX; cellX++ )
+				for ( int id = heads[ cellY * cellsCount + cellX ]; id >= 0; id = nexts[ id ] ) {
+					if ( count == found.length )
+						found = Arrays.copyOf( found, count * 2 );
+					found[ count++ ] = objects[ id ];
+				}
+
+		return count;
+	}
+
+	/**
+	 * Returns the cell of a position.
+	 * @param x x coordinate of the position
+	 * @param y y coordinate of the position
+	 * @return the cell of the position
+	 */
+	private int getCell( final float x, final float y ) {
+		return getCellCoordinate( (int) y ) * cellsCount + getCellCoordinate( (int) x );
+	}
+
+	/**
+	 * Returns the cell coordinate of a coordinate (coordinates outside of the plane are clamped to the edge cells).
+	 * @param coordinate coordinate to be converted
+	 * @return the cell coordinate of the coordinate
+	 */
+	private int getCellCoordinate( final int coordinate ) {
+		return Math.max( 0, Math.min( cellsCount - 1, coordinate >> cellShift ) );
+	}
+
+	/**
+	 * Inserts an object to the front of the list of a cell.
+	 * @param id   grid id of the object
+	 * @param cell cell to insert the object into
+	 */
+	private void link( final int id, final int cell ) {
+		final int head = heads[ cell ];
+		cells[ id ]    = cell;
+		prevs[ id ]    = -1;
+		nexts[ id ]    = head;
+		if ( head >= 0 )
+			prevs[ head ] = id;
+		heads[ cell ]  = id;
+	}
+
+	/**
+	 * Removes an object from the list of its cell.
+	 * @param id grid id of the object
+	 */
+	private void unlink( final int id ) {
+		final int prev = prevs[ id ], next = nexts[ id ];
+		if ( prev >= 0 )
+			nexts[ prev ] = next;
+		else
+			heads[ cells[ id ] ] = next;
+		if ( next >= 0 )
+			prevs[ next ] = prev;
+	}
+
+}
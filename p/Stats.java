@@ -0,0 +1,146 @@
+package p;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ * Performance statistics of the game: the timers of the phases of the game iterations (ticks) and of the painting (frames).<br>
+ * The statistics are exposed as the <code>landfight:type=Stats</code> MBean (see {@link #register()}). For every timer
+ * there are the <code>&lt;timer&gt;.count</code>, <code>.meanMicros</code>, <code>.p50Micros</code>, <code>.p99Micros</code>,
+ * <code>.maxMicros</code> and <code>.lastMicros</code> read-only attributes, and the <code>reset</code> operation
+ * forgets all recorded durations. The view can show them in an overlay too (F3).<br>
+ * If a frame is slow, the <code>tick</code> and <code>frame</code> timers tell whether the simulation or the
+ * painting was slow, and the timers of their phases tell which part of it.
+ *
+ * @author Andras Belicza
+ */
+class Stats implements DynamicMBean {
+
+	/** A whole game iteration.                                              */
+	public static final PhaseTimer TICK            = new PhaseTimer( "tick"            );
+	/** Ageing the explosions.                                               */
+	public static final PhaseTimer TICK_EXPLOSIONS = new PhaseTimer( "tick.explosions" );
+	/** Checking the crashes (into each other and into the land).           */
+	public static final PhaseTimer TICK_CRASHES    = new PhaseTimer( "tick.crashes"    );
+	/** Updating the players (turning, accelerating, stepping and firing).  */
+	public static final PhaseTimer TICK_PLAYERS    = new PhaseTimer( "tick.players"    );
+	/** Stepping the shots and checking their collisions.                   */
+	public static final PhaseTimer TICK_SHOTS      = new PhaseTimer( "tick.shots"      );
+	/** Publishing the render snapshot for the view.                        */
+	public static final PhaseTimer TICK_SNAPSHOT   = new PhaseTimer( "tick.snapshot"   );
+	/** How late the game iterations start compared to their schedule.      */
+	public static final PhaseTimer TICK_JITTER     = new PhaseTimer( "tick.jitter"     );
+	/** A whole frame painting.                                              */
+	public static final PhaseTimer FRAME           = new PhaseTimer( "frame"           );
+	/** Painting the scenes (terrain and moving objects).                   */
+	public static final PhaseTimer FRAME_SCENES    = new PhaseTimer( "frame.scenes"    );
+	/** Painting the status windows.                                        */
+	public static final PhaseTimer FRAME_STATUS    = new PhaseTimer( "frame.status"    );
+	/** Painting the minimap (and the messages).                            */
+	public static final PhaseTimer FRAME_MINIMAP   = new PhaseTimer( "frame.minimap"   );
+
+	/** All the timers.                                                      */
+	public static final PhaseTimer[] TIMERS = { TICK, TICK_EXPLOSIONS, TICK_CRASHES, TICK_PLAYERS, TICK_SHOTS, TICK_SNAPSHOT, TICK_JITTER,
+	                                            FRAME, FRAME_SCENES, FRAME_STATUS, FRAME_MINIMAP };
+
+	/** Names of the statistics of a timer in the attribute names.           */
+	private static final String[] STATISTICS = { "count", "meanMicros", "p50Micros", "p99Micros", "maxMicros", "lastMicros" };
+
+
+	/**
+	 * Only {@link #register()} creates an instance.
+	 */
+	private Stats() {
+	}
+
+	/**
+	 * Registers the statistics into the platform MBean server as <code>landfight:type=Stats</code>.<br>
+	 * Errors are printed, the game goes on without JMX.
+	 */
+	public static void register() {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean( new Stats(), new ObjectName( "landfight:type=Stats" ) );
+		}
+		catch ( final JMException je ) {
+			je.printStackTrace();
+		}
+	}
+
+	/**
+	 * Returns a statistic of a timer.
+	 * @param timer     the timer
+	 * @param statistic index of the statistic in STATISTICS
+	 * @return the value of the statistic
+	 */
+	private static long getStatistic( final PhaseTimer timer, final int statistic ) {
+		switch ( statistic ) {
+			case 0  : return timer.getCount();
+			case 1  : return timer.getMeanNanos() / 1000;
+			case 2  : return timer.getPercentileNanos( 50 ) / 1000;
+			case 3  : return timer.getPercentileNanos( 99 ) / 1000;
+			case 4  : return timer.getMaxNanos() / 1000;
+			default : return timer.getLastNanos() / 1000;
+		}
+	}
+
+	public Object getAttribute( final String attribute ) throws AttributeNotFoundException {
+		for ( final PhaseTimer timer : TIMERS )
+			for ( int statistic = 0; statistic < STATISTICS.length; statistic++ )
+				if ( attribute.equals( timer.name + '.' + STATISTICS[ statistic ] ) )
+					return getStatistic( timer, statistic );
+		throw new AttributeNotFoundException( attribute );
+	}
+
+	public AttributeList getAttributes( final String[] attributes ) {
+		final AttributeList list = new AttributeList();
+		for ( final String attribute : attributes )
+			try {
+				list.add( new Attribute( attribute, getAttribute( attribute ) ) );
+			}
+			catch ( final AttributeNotFoundException anfe ) {
+				// Unknown attributes are left out of the list
+			}
+		return list;
+	}
+
+	public void setAttribute( final Attribute attribute ) throws AttributeNotFoundException {
+		throw new AttributeNotFoundException( "All attributes are read-only: " + attribute.getName() );
+	}
+
+	public AttributeList setAttributes( final AttributeList attributes ) {
+		return new AttributeList(); // All attributes are read-only
+	}
+
+	public Object invoke( final String actionName, final Object[] params, final String[] signature ) throws ReflectionException {
+		if ( !"reset".equals( actionName ) )
+			throw new ReflectionException( new NoSuchMethodException( actionName ) );
+		for ( final PhaseTimer timer : TIMERS )
+			timer.reset();
+		return null;
+	}
+
+	public MBeanInfo getMBeanInfo() {
+		final List< MBeanAttributeInfo > attributes = new ArrayList< MBeanAttributeInfo >();
+		for ( final PhaseTimer timer : TIMERS )
+			for ( final String statistic : STATISTICS )
+				attributes.add( new MBeanAttributeInfo( timer.name + '.' + statistic, "long", statistic + " of " + timer.name, true, false, false ) );
+
+		return new MBeanInfo( Stats.class.getName(), "Performance statistics of LandFight (durations in microseconds)",
+				attributes.toArray( new MBeanAttributeInfo[ attributes.size() ] ), null,
+				new MBeanOperationInfo[] { new MBeanOperationInfo( "reset", "Forgets all recorded durations", null, "void", MBeanOperationInfo.ACTION ) },
+				null );
+	}
+
+}
@@ -0,0 +1,185 @@
+package p;
+
+import java.awt.Polygon;
+
+/**
+ * Shape for the swept collision tests: a (possibly concave) polygon as the union of convex parts.<br>
+ * The polygon is triangulated (ear clipping) when the shape is created, and every triangle is a {@link ConvexHull}.
+ * A moving point hits the shape where its path enters the first part; the convex hull of the whole shape is tested first,
+ * so a path missing the shape is rejected by a single hull test.<br>
+ * Immutable.
+ *
+ * @author Andras Belicza
+ */
+final class SweptShape {
+
+	/** Convex hull of the whole shape.                                   */
+	public  final ConvexHull   hull;
+	/** The convex parts of the shape.                                    */
+	private final ConvexHull[] parts;
+
+
+	/**
+	 * Creates a new SweptShape.
+	 * @param hull  convex hull of the whole shape
+	 * @param parts the convex parts of the shape
+	 */
+	private SweptShape( final ConvexHull hull, final ConvexHull[] parts ) {
+		this.hull  = hull;
+		this.parts = parts;
+	}
+
+	/**
+	 * Creates the swept shape of a simple polygon: triangulates it.
+	 * @param polygon the polygon
+	 * @return the swept shape of the polygon
+	 */
+	public static SweptShape of( final Polygon polygon ) {
+		// The vertices not clipped yet (as a list of indices), and the orientation of the polygon
+		int         n       = polygon.npoints;
+		final int[] vertices = new int[ n ];
+		long        area2   = 0;
+		for ( int i = 0; i < n; i++ ) {
+			vertices[ i ] = i;
+			area2 += (long) polygon.xpoints[ i ] * polygon.ypoints[ ( i + 1 ) % n ] - (long) polygon.xpoints[ ( i + 1 ) % n ] * polygon.ypoints[ i ];
+		}
+		final long orientation = Long.signum( area2 );
+
+		final ConvexHull[] triangles = new ConvexHull[ n ];
+		int trianglesCount = 0;
+		while ( n > 3 ) {
+			boolean clipped = false;
+			for ( int i = 0; i < n && !clipped; i++ ) {
+				final int a = vertices[ ( i + n - 1 ) % n ], b = vertices[ i ], c = vertices[ ( i + 1 ) % n ];
+				final long turn = cross( polygon, a, b, c ) * orientation;
+				if ( turn < 0 )
+					continue; // Reflex vertex, not an ear
+				if ( turn > 0 ) {
+					// Convex vertex, it's an ear if no other vertex is in its triangle
+					boolean ear = true;
+					for ( int j = 0; j < n && ear; j++ ) {
+						final int v = vertices[ j ];
+						if ( v != a && v != b && v != c && cross( polygon, a, b, v ) * orientation >= 0
+								&& cross( polygon, b, c, v ) * orientation >= 0 && cross( polygon, c, a, v ) * orientation >= 0 )
+							ear = false;
+					}
+					if ( !ear )
+						continue;
+					triangles[ trianglesCount++ ] = ConvexHull.of( new float[] { polygon.xpoints[ a ], polygon.xpoints[ b ], polygon.xpoints[ c ] },
+							new float[] { polygon.ypoints[ a ], polygon.ypoints[ b ], polygon.ypoints[ c ] } );
+				}
+				// The ear (or a collinear vertex) is clipped
+				System.arraycopy( vertices, i + 1, vertices, i, n - i - 1 );
+				n--;
+				clipped = true;
+			}
+			if ( !clipped )
+				throw new IllegalArgumentException( "Not a simple polygon!" );
+		}
+		if ( cross( polygon, vertices[ 0 ], vertices[ 1 ], vertices[ 2 ] ) != 0 )
+			triangles[ trianglesCount++ ] = ConvexHull.of( new float[] { polygon.xpoints[ vertices[ 0 ] ], polygon.xpoints[ vertices[ 1 ] ], polygon.xpoints[ vertices[ 2 ] ] },
+					new float[] { polygon.ypoints[ vertices[ 0 ] ], polygon.ypoints[ vertices[ 1 ] ], polygon.ypoints[ vertices[ 2 ] ] } );
+
+		final ConvexHull[] parts = new ConvexHull[ trianglesCount ];
+		System.arraycopy( triangles, 0, parts, 0, trianglesCount );
+		return new SweptShape( ConvexHull.of( polygon ), parts );
+	}
+
+	/**
+	 * Returns the cross product of the vectors a-&gt;b and a-&gt;c of vertices of a polygon.
+	 * @param polygon the polygon
+	 * @param a       index of vertex a
+	 * @param b       index of vertex b
+	 * @param c       index of vertex c
+	 * @return the cross product of the vectors a-&gt;b and a-&gt;c
+	 */
+	private static long cross( final Polygon polygon, final int a, final int b, final int c ) {
+		return (long) ( polygon.xpoints[ b ] - polygon.xpoints[ a ] ) * ( polygon.ypoints[ c ] - polygon.ypoints[ a ] )
+				- (long) ( polygon.ypoints[ b ] - polygon.ypoints[ a ] ) * ( polygon.xpoints[ c ] - polygon.xpoints[ a ] );
+	}
+
+	/**
+	 * Creates the shape of the positions of a convex hull where it intersects this shape
+	 * (see {@link ConvexHull#expand(ConvexHull, float, float)}, the parts are expanded one by one).
+	 * @param other the convex hull
+	 * @param cos   cosine of the rotation of the convex hull (relative to this shape)
+	 * @param sin   sine of the rotation of the convex hull (relative to this shape)
+	 * @return the shape of the positions of the convex hull where it intersects this shape
+	 */
+	public SweptShape expand( final ConvexHull other, final float cos, final float sin ) {
+		final ConvexHull[] expandedParts = new ConvexHull[ parts.length ];
+		for ( int i = 0; i < parts.length; i++ )
+			expandedParts[ i ] = parts[ i ].expand( other, cos, sin );
+		return new SweptShape( hull.expand( other, cos, sin ), expandedParts );
+	}
+
+	/**
+	 * Tells whether another shape intersects this shape: whether one of its parts intersects one of the parts of this shape
+	 * (the hulls are tested first). The other shape is transformed into the coordinate system of this shape
+	 * (see {@link ConvexHull#intersects(ConvexHull, float, float, float, float)}).
+	 * @param other the other shape
+	 * @param m00   cosine of the rotation of the other shape multiplied by its scale
+	 * @param m10   sine of the rotation of the other shape multiplied by its scale
+	 * @param tx    x coordinate of the position of the other shape
+	 * @param ty    y coordinate of the position of the other shape
+	 * @return true if the other shape intersects this shape; false otherwise
+	 */
+	public boolean intersects( final SweptShape other, final float m00, final float m10, final float tx, final float ty ) {
+		if ( !hull.intersects( other.hull, m00, m10, tx, ty ) )
+			return false;
+		for ( final ConvexHull part : parts )
+			if ( part.intersects( other.hull, m00, m10, tx, ty ) )
+				for ( final ConvexHull otherPart : other.parts )
+					if ( part.intersects( otherPart, m00, m10, tx, ty ) )
+						return true;
+		return false;
+	}
+
+	/**
+	 * Tells whether the shape at the specified position contains a point.
+	 * @param posX x coordinate of the position of the shape
+	 * @param posY y coordinate of the position of the shape
+	 * @param px   x coordinate of the point
+	 * @param py   y coordinate of the point
+	 * @return true if the shape at the specified position contains the point; false otherwise
+	 */
+	public boolean contains( final float posX, final float posY, final float px, final float py ) {
+		if ( !hull.contains( posX, posY, px, py ) )
+			return false;
+		for ( final ConvexHull part : parts )
+			if ( part.contains( posX, posY, px, py ) )
+				return true;
+		return false;
+	}
+
+	/**
+	 * Finds where a segment enters the shape at the specified position.
+	 * @param posX x coordinate of the position of the shape
+	 * @param posY y coordinate of the position of the shape
+	 * @param x0   x coordinate of the start point of the segment
+	 * @param y0   y coordinate of the start point of the segment
+	 * @param dx   x component of the vector from the start point to the end point
+	 * @param dy   y component of the vector from the start point to the end point
+	 * @param t    range of parameters of the segment to be tested (in); the parameter where the segment enters the shape first
+	 *             is stored at index 0 if it does (out, index 1 is undefined)
+	 * @return true if the segment enters the shape in the range; false otherwise
+	 */
+	public boolean sweep( final float posX, final float posY, final float x0, final float y0, final float dx, final float dy, final float[] t ) {
+		final float tStart = t[ 0 ], tEnd = t[ 1 ];
+		if ( !hull.clip( posX, posY, x0, y0, dx, dy, t ) )
+			return false;
+		// The path is in the hull in [ t[ 0 ], t[ 1 ] ], the parts are only tested in that range
+		final float tHullEnter = t[ 0 ], tHullExit = t[ 1 ];
+		float tFirst = Float.POSITIVE_INFINITY;
+		for ( final ConvexHull part : parts ) {
+			t[ 0 ] = tHullEnter;
+			t[ 1 ] = Math.min( tHullExit, tFirst );
+			if ( part.clip( posX, posY, x0, y0, dx, dy, t ) )
+				tFirst = t[ 0 ];
+		}
+		t[ 0 ] = tFirst;
+		t[ 1 ] = tEnd;
+		return tFirst >= tStart && tFirst <= tEnd;
+	}
+
+}
@@ -0,0 +1,93 @@
+package p;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fixed-rate scheduler of the game iterations (ticks).<br>
+ * The deadlines of the ticks are calculated from the start and the period (not from the end of the previous tick),
+ * so the timing does not drift. Waiting for a deadline parks the thread (it does not spin),
+ * so an idle or paused game does not burn CPU.<br>
+ * If a tick overruns, the following ticks are started right away to catch up, but at most
+ * a limited number of ticks; if we are further behind, the missed deadlines are dropped
+ * (the CPU is slow or it's loaded, won't be able to catch up anyway).<br>
+ * The jitter of the last tick (how late it started compared to its deadline) is kept for the {@link Stats}.
+ *
+ * @author Andras Belicza
+ */
+class TickScheduler {
+
+	/** Default number of ticks per second (the game speed is tuned for it).     */
+	public static final int DEFAULT_TICK_RATE = 25;
+
+	/** Period of the ticks in nanoseconds.                                      */
+	private final long periodNanos;
+	/** Maximum number of ticks started right away to catch up after an overrun. */
+	private final int  maxCatchUpTicks;
+
+	/** Deadline of the next tick (in System.nanoTime()).                         */
+	private long nextDeadline;
+
+	/** Jitter of the last tick in nanoseconds.                                   */
+	private long lastJitterNanos;
+
+
+	/**
+	 * Creates a new TickScheduler.
+	 * @param tickRate        number of ticks per second (positive)
+	 * @param maxCatchUpTicks maximum number of ticks started right away to catch up after an overrun
+	 */
+	public TickScheduler( final int tickRate, final int maxCatchUpTicks ) {
+		if ( tickRate <= 0 )
+			throw new IllegalArgumentException( "Invalid tick rate: " + tickRate );
+
+		periodNanos          = 1000000000l / tickRate;
+		this.maxCatchUpTicks = maxCatchUpTicks;
+		reset();
+	}
+
+	/**
+	 * Creates a new TickScheduler configured by the <code>landfight.tickRate</code> (ticks per second, 25 by default)
+	 * and the <code>landfight.maxCatchUpTicks</code> (3 by default) system properties.<br>
+	 * A tick rate which is not positive is ignored (the default is used), a negative catch-up limit means no catching up.
+	 * @return a new tick scheduler
+	 */
+	public static TickScheduler create() {
+		final int tickRate = Integer.getInteger( "landfight.tickRate", DEFAULT_TICK_RATE );
+		return new TickScheduler( tickRate > 0 ? tickRate : DEFAULT_TICK_RATE, Math.max( 0, Integer.getInteger( "landfight.maxCatchUpTicks", 3 ) ) );
+	}
+
+	/**
+	 * Resets the schedule: the next tick is due one period from now.<br>
+	 * Should be called after a long pause of ticking (for example after generating a new land),
+	 * else the missed ticks would count as overruns.
+	 */
+	public void reset() {
+		nextDeadline = System.nanoTime() + periodNanos;
+	}
+
+	/**
+	 * Waits until the next tick is due, and keeps its jitter.
+	 */
+	public void awaitNextTick() {
+		long now;
+		while ( ( now = System.nanoTime() ) < nextDeadline )
+			LockSupport.parkNanos( nextDeadline - now );
+
+		lastJitterNanos = now - nextDeadline;
+
+		nextDeadline += periodNanos;
+		// Bounded catch-up: if more deadlines passed than we are willing to catch up, we drop the oldest ones
+		final long overdueTicks = now < nextDeadline ? 0 : ( now - nextDeadline ) / periodNanos + 1;
+		if ( overdueTicks > maxCatchUpTicks )
+			nextDeadline += ( overdueTicks - maxCatchUpTicks ) * periodNanos;
+	}
+
+	/**
+	 * Returns the jitter of the last tick in nanoseconds.
+	 * @return the jitter of the last tick in nanoseconds
+	 */
+	public long getLastJitterNanos() {
+		return lastJitterNanos;
+	}
+
+}
@@ -0,0 +1,64 @@
+package p;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Rocket guidance with the incubating vector API: the rockets are steered in batches of the preferred vector size
+ * (8 shots with AVX2, 16 with AVX-512), both ways of steering are calculated for every lane and the right one is blended in.<br>
+ * Bullets are in the same batches, their velocities are blended back unchanged; batches without rockets are skipped.
+ * The shots after the last full batch are steered by the scalar code.<br>
+ * This class needs Java 16 or newer with <code>--add-modules jdk.incubator.vector</code> (to compile and to run),
+ * it is only loaded by reflection (see {@link RocketGuidance#create()}).
+ *
+ * @author Andras Belicza
+ */
+final class VectorRocketGuidance extends RocketGuidance {
+
+	/** Species of the float vectors (the preferred size of the CPU).                     */
+	private static final VectorSpecies< Float > FLOATS = FloatVector.SPECIES_PREFERRED;
+	/** Species of the byte vectors for the types: as many lanes as the float vectors, or more if there are no byte vectors
+	 *  that short (the shortest ones have 64 bits, 4 float lanes of 128-bit vectors need 32 bits).                     */
+	private static final VectorSpecies< Byte >  BYTES  = VectorSpecies.of( byte.class, VectorShape.forBitSize( Math.max( 64, FLOATS.length() * Byte.SIZE ) ) );
+	/** Mask of the byte lanes of a batch (only these types are loaded, the array may end after the batch). */
+	private static final VectorMask< Byte >     BATCH  = BYTES.indexInRange( 0, FLOATS.length() );
+
+
+	@Override
+	public void steer( final ShotPool shots, final float[] targetXs, final float[] targetYs, final float[] targetZs ) {
+		final int bound = FLOATS.loopBound( shots.size );
+		for ( int i = 0; i < bound; i += FLOATS.length() ) {
+			final VectorMask< Float > rockets = ByteVector.fromArray( BYTES, shots.type, i, BATCH ).castShape( FLOATS, 0 ).compare( VectorOperators.EQ, ShotPool.ROCKET );
+			if ( !rockets.anyTrue() )
+				continue;
+
+			final FloatVector dx    = FloatVector.fromArray( FLOATS, targetXs, 0, shots.target, i ).sub( FloatVector.fromArray( FLOATS, shots.x, i ) );
+			final FloatVector dy    = FloatVector.fromArray( FLOATS, targetYs, 0, shots.target, i ).sub( FloatVector.fromArray( FLOATS, shots.y, i ) );
+			final FloatVector vx    = FloatVector.fromArray( FLOATS, shots.vx, i ), vy = FloatVector.fromArray( FLOATS, shots.vy, i );
+			final FloatVector cross = vx.mul( dy ).sub( vy.mul( dx ) );
+			final FloatVector dot   = vx.mul( dx ).add( vy.mul( dy ) );
+
+			// Turning by the fixed angle
+			final FloatVector sin   = FloatVector.broadcast( FLOATS, SIN_TURN ).blend( -SIN_TURN, cross.lt( 0.0f ) );
+			FloatVector       newVx = vx.mul( COS_TURN ).sub( vy.mul( sin ) );
+			FloatVector       newVy = vx.mul( sin ).add( vy.mul( COS_TURN ) );
+			// Heading straight at the target if it is within the turn
+			final VectorMask< Float > within = dot.compare( VectorOperators.GT, 0.0f ).and( cross.abs().mul( COS_TURN ).compare( VectorOperators.LE, dot.mul( SIN_TURN ) ) );
+			final FloatVector k     = FloatVector.broadcast( FLOATS, GameSimulation.ROCKET_VELOCITY ).div( dx.mul( dx ).add( dy.mul( dy ) ).sqrt() );
+			newVx = newVx.blend( dx.mul( k ), within );
+			newVy = newVy.blend( dy.mul( k ), within );
+			final FloatVector newVz = FloatVector.broadcast( FLOATS, -CLIMB ).blend( CLIMB,
+					FloatVector.fromArray( FLOATS, shots.z, i ).compare( VectorOperators.LT, FloatVector.fromArray( FLOATS, targetZs, 0, shots.target, i ) ) );
+
+			vx.blend( newVx, rockets ).intoArray( shots.vx, i );
+			vy.blend( newVy, rockets ).intoArray( shots.vy, i );
+			FloatVector.fromArray( FLOATS, shots.vz, i ).blend( newVz, rockets ).intoArray( shots.vz, i );
+		}
+		steer( shots, targetXs, targetYs, targetZs, bound );
+	}
+
+}
@@ -1,470 +1,804 @@
-package p;
-
-import java.awt.Color;
-import java.awt.Dimension;
-import java.awt.Font;
-import java.awt.FontMetrics;
-import java.awt.Graphics;
-import java.awt.Graphics2D;
-import java.awt.GridLayout;
-import java.awt.Rectangle;
-import java.awt.RenderingHints;
-import java.awt.event.KeyEvent;
-import java.awt.event.KeyListener;
-import java.awt.geom.AffineTransform;
-import java.awt.image.BufferedImage;
-import java.util.Iterator;
-import java.util.TreeSet;
-
-import javax.swing.JComponent;
-import javax.swing.JLabel;
-import javax.swing.JOptionPane;
-import javax.swing.JPanel;
-import javax.swing.JSeparator;
-
-import static p.Model.LAND_SIZE;
-import static p.Model.LAND_MIN;
-import static p.Model.LAND_MAX;
-import static java.awt.image.BufferedImage.TYPE_INT_BGR;
-
-/**
- * The view layer in the MVC architectrue.<br>
- * The view consists of:
- * <ul>
- *     <li>2 game scene parts, which is a view of the players and their environment including the land,
- *     <li>2 player status parts where we can see heights, our shield, and our weapon reloading status,
- *     <li>one minimap of the whole land.
- * </ul>
- * 
- * @author Andras Belicza
- */
-class View extends JComponent implements KeyListener {
-
-	/** Size of the game scene of each scene parts of the players.                   */
-	private static final int       SCENE_SIZE      = 500;
-	/** Size of the minimap.                                                         */
-	private static final int       MINIMAP_SIZE    = 150;
-	/** Width of the separator of the parts of the view (the distance between them). */
-	private static final int       SEPARATOR_WIDTH = 4;
-	/** The dimension of the view of the game.                                       */
-	private static final Dimension VIEW_DIMENSION  = new Dimension( SCENE_SIZE * 2 + 2 * SEPARATOR_WIDTH, SCENE_SIZE + 2 * SEPARATOR_WIDTH + MINIMAP_SIZE );
-	
-
-
-	
-	
-	/** Reference to the model.                                                      */
-	private final Model           model;
-	/** Reference to the controller.                                                 */
-	private final Controller      controller;
-	/** Landscape: the relief map of the land.                                       */
-	private final BufferedImage   landscape = new BufferedImage( LAND_SIZE   , LAND_SIZE   , TYPE_INT_BGR );
-	/** A mini map of the whole landscape.                                           */
-	private final BufferedImage   miniMap   = new BufferedImage( MINIMAP_SIZE, MINIMAP_SIZE, TYPE_INT_BGR );
-	
-	/** During the rendering we use this to store the affine transform of the graphics context. */
-	private       AffineTransform storedTransform;
-	
-
-	/** States of the control keys of the players (public: used by the controller).  */
-	public final  boolean[][]     keyStates = new boolean[ 2 ][ 8 ];
-	
-	
-	/**
-	 * Creates a new View.
-	 * @param model      reference to the model
-	 * @param controller reference to the controller
-	 */
-	public View( final Model model, final Controller controller ) {
-		this.model      = model;
-		this.controller = controller;
-		
-		setPreferredSize( VIEW_DIMENSION );
-		addKeyListener  ( this           );
-	}
-	
-	/**
-	 * Does all neccessary things for starting a new game.
-	 */
-	public void newGame() {
-		// Land has been changed, we have to redraw landscape
-		for ( int y = 0; y < LAND_SIZE; y++ )
-			for ( int x = 0; x < LAND_SIZE; x++ )
-				landscape.setRGB( x, y, getRGBOfHeight( model.land[ y ][ x ] ) );
-
-		// Now we can draw the minimap
-		miniMap.createGraphics().drawImage( landscape, 0,0, MINIMAP_SIZE, MINIMAP_SIZE, null );
-	}
-	
-	/**
-	 * Calculates and returns the RGB components of the color of the specified height on the landscape.<br>
-	 * The returned int value contains the rgb values in the right order. Blue is at the least significant bits.
-	 * All of the rgb components are 8 bit precision.
-	 * @param height height whose color needed to be calculated
-	 * @return the RGB values of the specified height on the landscape
-	 */
-	private int getRGBOfHeight( final float height ) {
-		// Values of heights where the relief map changes colors at.
-		final float[]   HEIGHT_STONES   = new float[] { LAND_MIN                , 0.0f                    , 0.0f                   , 600.0f                    , 900.0f                    , 1300.0f                  , 1600.0f                   , LAND_MAX               , MovingObject.BOUNDARIES[ 2 ] };
-		// Values of colors at the height stones to be used for landscape
-		final Color[]   STONE_COLORS    = new Color[] { new Color( 39, 23, 112 ), new Color( 0, 146, 221 ), new Color( 0, 146, 63 ), new Color( 126, 195, 128 ), new Color( 184, 218, 141 ), new Color( 255, 252, 212 ), new Color( 187, 129, 92 ), new Color( 90, 58, 37 ), Color.BLACK                  };
-
-		// We locate the height between 2 heights whose interpolatable colors will determine the searched RGB
-		int i;
-		for ( i = 1; height > HEIGHT_STONES[ i ]; i++ )
-			;
-		
-		return interpolateColors( STONE_COLORS[ i - 1 ], STONE_COLORS[ i ], ( height - HEIGHT_STONES[ i - 1 ] ) / ( HEIGHT_STONES[ i ] - HEIGHT_STONES[ i - 1 ] ) );
-	}
-	
-	/**
-	 * Linear-interpolates colors. Calculates a 3rd color at a specified position between 2 boundary colors.<br>
-	 * The position is specified by a ratio, whose value means:
-	 * 0 => value1, 1 => value2, 0 < ratio < 1  => somewhere between value1 and value2.<br>
-	 * In case of colors, interpolation means interpolation of red, green and blue components of colors.
-	 * 
-	 * @param value1 first value of interpolation
-	 * @param value2 last value of interpolation
-	 * @param ratio  where between value1 and value2 we need the interpolation
-	 * @return the RGB value of the linear interpolation of value1 and value2 at a position between them specified by ratio
-	 */
-	private int interpolateColors( final Color value1, final Color value2, final double ratio ) {
-		final int a = value1.getAlpha() + (int) ( ( value2.getAlpha() - value1.getAlpha() ) * ratio );
-		final int r = value1.getRed  () + (int) ( ( value2.getRed  () - value1.getRed  () ) * ratio );
-		final int g = value1.getGreen() + (int) ( ( value2.getGreen() - value1.getGreen() ) * ratio );
-		final int b = value1.getBlue () + (int) ( ( value2.getBlue () - value1.getBlue () ) * ratio );
-		
-		return ( a << 24 ) + ( r << 16 ) + ( g << 8 ) + b;
-	}
-	
-	/**
-	 * Registers a mark of a moving object.<br>
-	 * Mark of a moving object can be like a bullet hitting the land, a rocket exploding into the land
-	 * or a player crashing into the land.<br>
-	 * Registering means displaying it somehow on the scene.<br>
-	 * Implementation simply draws to the landscape.
-	 * Drawing to the landscape cannot be done directly. Landscape is a very big (n*10MB) image, drawing into it
-	 * is very slow (would make the game lag). First we make a subimage of it which has a small size,
-	 * and we draw into that subimage.
-	 *
-	 * @param object object whose mark is to be registered
-	 */
-	public void registerObjectMark( final MovingObject object ) {
-		final Float explosionRadius = object instanceof ShapeObject ? ( (ShapeObject) object ).explosionRadius : null;
-		
-		final int BULLET_MARK_RADIUS = 2;
-		final int SUBIMAGE_RADIUS    = explosionRadius == null ? BULLET_MARK_RADIUS : explosionRadius.intValue();
-		
-		final int px = (int) object.getX();
-		final int py = (int) object.getY();
-		
-		final int LEFT_X  = Math.min( px, SUBIMAGE_RADIUS );
-		final int UPPER_Y = Math.min( py, SUBIMAGE_RADIUS );
-		final int RIGHT_X = Math.min( LAND_SIZE - 1 - px, SUBIMAGE_RADIUS );
-		final int LOWER_Y = Math.min( LAND_SIZE - 1 - py, SUBIMAGE_RADIUS );
-		
-		// We make a subimage only big enough to hold the mark of the object
-		final BufferedImage bi = landscape.getSubimage( px - LEFT_X, py - UPPER_Y, LEFT_X + RIGHT_X + 1, UPPER_Y + LOWER_Y + 1 );
-		final Graphics2D    g2 = bi.createGraphics();
-		
-		g2.setColor( new Color( 0, 0, 0, 70 ) );
-		if ( explosionRadius == null ) {// Bullet has a single filled oval mark
-			try { // If we're near the edge of land, ArrayOutOfBoundsException is a normal thing...
-				if ( model.land[ py ][ px ] > 0.0f )               // Marks cannot be in the water
-					g2.fillOval( LEFT_X - BULLET_MARK_RADIUS, UPPER_Y - BULLET_MARK_RADIUS, BULLET_MARK_RADIUS*2, BULLET_MARK_RADIUS*2 );
-			}
-			catch ( final Exception e ) {}
-		}
-		else
-			for ( int i = SUBIMAGE_RADIUS * 10; i > 0; i-- ) {
-				final double radius = Math.random() * ( SUBIMAGE_RADIUS - 2 );
-				final double alpha  = Math.random() * 6.28;             // 2*PI, a full circle
-				final int    dx     = (int) ( radius*Math.cos( alpha ) );
-				final int    dy     = (int) ( radius*Math.sin( alpha ) );
-				try { // If we're near the edge of land, ArrayOutOfBoundsException is a normal thing...
-					if ( model.land[ py + dy ][ px + dx ] > 0.0f ) // Marks cannot be in the water
-						g2.fillOval( LEFT_X + dx - 2, UPPER_Y + dy - 2, 4, 4 );
-				}
-				catch ( final Exception e ) {}
-			}
-	}
-	
-	/**
-	 * Paints the actual look of the component, paints the view of the game.<br>
-	 * 
-	 * I would have used paintComponent(), but paint() is shorter, less space.
-	 * I draw only to the Graphics2D object, doesn't matter...
-	 * I'm sorry for being space centric... (but that's one of the competition's aspect)
-	 * 
-	 * First draws the scenes, then the status windows, the minimap and lastly the potential messages.
-	 * 
-	 * @param g the graphics context in which to paint
-	 */
-	public void paint( final Graphics g ) {
-		try {
-			// Colors of the players
-			final Color[] PLAYER_COLORS = new Color[] { Color.ORANGE, Color.MAGENTA };
-			// Width of the status window. Note: the height is determined by MINIMAP_SIZE!
-			final int     STATUS_WIDTH  = ( 2*SCENE_SIZE - SEPARATOR_WIDTH - MINIMAP_SIZE ) /2;
-
-			
-			final Graphics2D g2 = (Graphics2D) g;
-			g2.setBackground( Color.BLACK );
-			g2.setRenderingHint( RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON );
-	
-			
-			// My apoligies for the millionth times now. This would have deserved several other methods, but space again...
-			
-			// We draw the scenes
-			for ( int i = 0; i < model.players.length; i++ ) { // There is one for each player.
-				prepareContextForDrawing( g2, i == 0 ? SEPARATOR_WIDTH/2 : SCENE_SIZE + SEPARATOR_WIDTH*3/2, SEPARATOR_WIDTH/2, SCENE_SIZE, SCENE_SIZE );
-				
-				final ShapeObject player = model.players[ i ];
-
-				// We draw the land below and around the player.
-				// We position so the player will be in the center of the scene except if player reached the edges of the land
-				// Note: this algorithm assumes that LAND_SIZE>SCENE_SIZE.
-				final int landPosX = Math.max( 0, Math.min( LAND_SIZE - SCENE_SIZE, player.getX() - SCENE_SIZE/2 ) );
-				final int landPosY = Math.max( 0, Math.min( LAND_SIZE - SCENE_SIZE, player.getY() - SCENE_SIZE/2 ) );
-				g2.drawImage( landscape, 0, 0, SCENE_SIZE , SCENE_SIZE , landPosX, landPosY, landPosX + SCENE_SIZE , landPosY + SCENE_SIZE , null );
-				
-				// Now we draw the moving objects in the right height order.
-				// Sorted set for moving object to draw them in the right height order.
-				// It's kinda like z-buffer.
-				final TreeSet< MovingObject > movingObjects = new TreeSet< MovingObject >();
-				movingObjects.clear();
-				movingObjects.addAll( model.shots      );
-				movingObjects.addAll( model.explosions );
-				for ( final ShapeObject player_ : model.players )
-					movingObjects.add( player_ );
-				final Iterator< MovingObject >  iterator = movingObjects.iterator();
-				
-				while ( iterator.hasNext() ) {
-					final MovingObject movingObject = iterator.next();
-					// We could check and display moving object only if it's visible,
-					// but that would cost lots of bytes giving the same result :) (we have clipping window)
-					if ( movingObject instanceof ShapeObject ) { // It has a shape, we have to fill a polygon
-						final ShapeObject shapeObject = (ShapeObject) movingObject;
-						
-						final AffineTransform at = g2.getTransform();
-						g2.translate( shapeObject.getX() - landPosX, shapeObject.getY() - landPosY );
-
-						if ( shapeObject.explosionRadius == null ) {
-							g2.setColor( shapeObject.isPlayer ? PLAYER_COLORS[ shapeObject == model.players[ 0 ] ? 0 : 1 ] : Color.BLACK );
-
-							// The shape is real size at maximum height and is 40% at 0 height.
-							final double scaleFactor = 0.4 + 0.6 * shapeObject.getHeight() / MovingObject.BOUNDARIES[ 2 ];
-							g2.scale( scaleFactor, scaleFactor );
-							g2.rotate( shapeObject.isPlayer ? shapeObject.direction : Math.atan2( shapeObject.v[ 1 ], shapeObject.v[ 0 ] ) );
-							shapeObject.shape.translate( -shapeObject.getX(), -shapeObject.getY() );
-					
-							g2.fillPolygon( shapeObject.shape ); // At last after a lots of preparation
-							
-							shapeObject.shape.translate(  shapeObject.getX(),  shapeObject.getY() );
-						}
-						else  // It's an explosion
-							for ( int radius = shapeObject.explosionRadius.intValue(); radius > 0; radius -= 5 ) {
-								g2.setColor( new Color( interpolateColors( new Color( 227, 225, 195, 200 ), new Color( 224, 197, 41, 130 ), radius / shapeObject.explosionRadius ), true ) );
-								g2.fillOval( -radius, -radius, radius*2, radius*2 );
-							}
-						
-						g2.setTransform( at );
-					}
-					else { // It's a simple bullet
-						g2.setColor( Color.BLACK );
-						g2.fillOval( movingObject.getX() - landPosX - 2, movingObject.getY() - landPosY - 2, 4, 4 );
-					}
-				}
-
-
-				// We draw the colored height indicator
-				g2.setColor( Color.BLACK );
-				g2.fillRect( SCENE_SIZE - 62, 18, 34, 34 );
-				g2.setColor( Color.WHITE );
-				g2.fillRect( SCENE_SIZE - 61, 19, 32, 32 );
-				g2.setColor( new Color( getRGBOfHeight( player.getHeight() ) ) );
-				g2.fillRect( SCENE_SIZE - 60, 20, 30, 30 );
-					
-				// Now we draw the possible scene-messages
-				g2.setFont( new Font( null, Font.BOLD, 13 ) );
-				final FontMetrics fontMetrics     = g2.getFontMetrics();
-				final String      CRITICAL_HEIGHT = "Critical height!";
-				g2.setColor( Color.RED );
-				if ( player.getHeight() - model.land[ player.getY() ][ player.getX() ] < 500.0f )
-					g2.drawString( CRITICAL_HEIGHT, SCENE_SIZE/2 - fontMetrics.stringWidth( CRITICAL_HEIGHT )/2, 50 );
-				
-				restoreContext( g2 );
-			}
-			
-			
-			
-			// We draw the status windows, the status infos of the players.
-			g2.setFont( new Font( null, Font.PLAIN, 12 ) );
-			for ( int i = 0; i < model.players.length; i++ ) {
-				prepareContextForDrawing( g2, i == 0 ? SEPARATOR_WIDTH/2 : STATUS_WIDTH + SEPARATOR_WIDTH*5/2 + MINIMAP_SIZE, SCENE_SIZE + SEPARATOR_WIDTH*3/2, STATUS_WIDTH, MINIMAP_SIZE );
-				
-				g2.clearRect( 0, 0, STATUS_WIDTH, MINIMAP_SIZE );
-				final ShapeObject player = model.players[ i ];
-				
-				g2.setColor( Color.WHITE );
-				g2.drawString( "Your height / land height: " + player.getHeight() + " / " + (int) model.land[ player.getY() ][ player.getX() ] , 5, 20 );
-
-				g2.setColor( Color.WHITE );
-				g2.drawString( "Shield:", 5, 50 );
-				g2.setColor( Color.BLUE );
-				g2.fillRect( 0, 50 + 1, (int) ( player.shield * STATUS_WIDTH ) , 12 );
-				
-				for ( int j = 0; j < player.reloadings.length; j++ ) {
-					g2.setColor( Color.WHITE );
-					g2.drawString( "Weapon " + (j+1) + ":", 5, 85 + j * 25 );
-					g2.setColor( Color.CYAN );
-					g2.fillRect( 0, 85 + j * 25 + 1, (int) ( player.reloadings[ j ] * STATUS_WIDTH ) , 12 );
-				}
-
-				restoreContext( g2 );
-			}
-
-			
-			
-			// We draw the mini map
-			prepareContextForDrawing( g2, STATUS_WIDTH + SEPARATOR_WIDTH*3/2, SCENE_SIZE + SEPARATOR_WIDTH*3/2, MINIMAP_SIZE, MINIMAP_SIZE );
-			g2.drawImage( miniMap, 0, 0, null );
-			for ( int i = 0; i < model.players.length; i++ ) {
-				g2.setColor( PLAYER_COLORS[ i ] );
-				g2.fillOval( model.players[ i ].getX() * MINIMAP_SIZE/LAND_SIZE - 3, model.players[ i ].getY() * MINIMAP_SIZE/LAND_SIZE - 3, 6, 6 );
-			}
-			restoreContext( g2 );
-
-
-			
-			// We draw possible window-messages
-			if ( model.players[ 0 ].explosionRadius != null || model.players[ 1 ].explosionRadius != null ) {
-				g2.setFont( new Font( null, Font.ITALIC | Font.BOLD, 38 ) );
-				final FontMetrics fontMetrics = g2.getFontMetrics();
-				String gameOverMessage = "Game Over, ";
-				if ( model.players[ 0 ].explosionRadius != null && model.players[ 1 ].explosionRadius != null )
-					gameOverMessage += "there is no winner!";
-				for ( int i = 0; i < model.players.length; i++ )
-					if ( model.players[ i ].explosionRadius == null )
-						gameOverMessage += "Player " + ( i + 1 ) + " wins!";
-				for ( int i = 0; i < 2; i++ ) {
-					g2.setColor( i == 0 ? new Color( 0, 0, 0, 150 ) : Color.YELLOW );
-					g2.drawString( gameOverMessage, SCENE_SIZE + SEPARATOR_WIDTH/2 - fontMetrics.stringWidth( gameOverMessage )/2 - i*4 , SCENE_SIZE/2 + SEPARATOR_WIDTH - i*2 );
-				}
-			}
-		
-		}
-		catch ( final Exception e ) {  // Exception can occur when we modify/regenerate the model during a painting
-		}
-	}
-
-	
-	/**
-	 * Prepares the specified graphics context for drawing in a window.
-	 * @param g2     reference to the graphics context to be prepared
-	 * @param x      x position of the window of drawing
-	 * @param y      y position of the window of drawing
-	 * @param width  width of the window of drawing
-	 * @param height width of the window of drawing
-	 */
-	private void prepareContextForDrawing( final Graphics2D g2, final int x, final int y, final int width, final int height ) {
-		storedTransform = g2.getTransform();
-		g2.setClip( x, y, width, height );
-		g2.translate( x, y );
-	}
-	
-	/**
-	 * Restores the specified graphics context before the state of calling prepareContextForDrawing(). 
-	 * @param g2 reference to the graphics context to be restored
-	 */
-	private void restoreContext( final Graphics2D g2 ) {
-		g2.setTransform( storedTransform                 );
-		g2.setClip     ( new Rectangle( VIEW_DIMENSION ) );
-	}
-
-	/**
-	 * Handles the key typed events.
-	 * @param ke details of the key event
-	 */
-	public void keyTyped( final KeyEvent ke ) {
-	}
-
-	/**
-	 * Handles the key pressed events.
-	 * @param ke details of the key event
-	 */
-	public void keyPressed( final KeyEvent ke ) {
-		// Keys which will result the actions of the players
-		final int[][] CONTROL_KEYS = new int[][] {
-				{ KeyEvent.VK_D      , KeyEvent.VK_G      , KeyEvent.VK_R      ,KeyEvent.VK_F      , KeyEvent.VK_S , KeyEvent.VK_X   , KeyEvent.VK_W    , KeyEvent.VK_2    },
-				{ KeyEvent.VK_NUMPAD4, KeyEvent.VK_NUMPAD6, KeyEvent.VK_NUMPAD8,KeyEvent.VK_NUMPAD5, KeyEvent.VK_UP, KeyEvent.VK_DOWN, KeyEvent.VK_RIGHT, KeyEvent.VK_LEFT }
-			};
-
-		for ( int i = 0; i < CONTROL_KEYS.length; i++ )
-			for ( int j = 0; j < CONTROL_KEYS[ i ].length; j++ )
-				if ( ke.getKeyCode() == CONTROL_KEYS[ i ][ j ] )
-					keyStates[ i ][ j ] = true;
-
-		if ( ke.getKeyCode() == KeyEvent.VK_F1 ) {
-			 // We show help informations about Landfight
-			final JPanel panel = new JPanel( new GridLayout( 5, 3, 5, 0 ) );
-
-			panel.add( new JLabel( "Action:", JLabel.CENTER ) );
-			panel.add( new JLabel( "Player1:", JLabel.CENTER ) );
-			panel.add( new JLabel( "Player2:", JLabel.CENTER ) );
-
-			panel.add( new JLabel( "Turn left / right", JLabel.CENTER ) );
-			panel.add( new JLabel( "D / G", JLabel.CENTER ) );
-			panel.add( new JLabel( "Numpad4 / Numpad6", JLabel.CENTER ) );
-
-			panel.add( new JLabel( "Accelerate forward / backward", JLabel.CENTER ) );
-			panel.add( new JLabel( "R / F", JLabel.CENTER ) );
-			panel.add( new JLabel( "Numpad8 / Numpad5", JLabel.CENTER ) );
-
-			panel.add( new JLabel( "Ascend / Descend", JLabel.CENTER ) );
-			panel.add( new JLabel( "S / X", JLabel.CENTER ) );
-			panel.add( new JLabel( "Up / Down", JLabel.CENTER ) );
-
-			panel.add( new JLabel( "Fire primary / secondary", JLabel.CENTER ) );
-			panel.add( new JLabel( "W / 2", JLabel.CENTER ) );
-			panel.add( new JLabel( "Right / Left", JLabel.CENTER ) );
-
-			JOptionPane.showMessageDialog( getParent(), new Object[] {
-					new JLabel( "Java Technology Turns 10:", JLabel.CENTER ),
-					new JLabel( "LandFight", JLabel.CENTER ),
-					new JSeparator(),
-					new JLabel( "Your simple goal is to eliminate your opponent.", JLabel.CENTER ),
-					new JSeparator(),
-					"Control keys:",
-					"F1 - this help",
-					"Space - pause / resume / new game",
-					new JSeparator(),
-					panel,
-					new JSeparator(),
-					new JLabel( "Created by Andr\u00e1s Belicza, Hungary 2005", JLabel.CENTER )
-				}, "Help", JOptionPane.INFORMATION_MESSAGE );
-			
-		}
-		else if ( ke.getKeyCode() == KeyEvent.VK_SPACE )
-			// If game is over, we don't modify the status text, because it will be right away ('Generating...'), we don't want it to blink. We use no short cut condition evaluation (controller.paused gets new value!). 
-			controller.statusLabel.setText( ( controller.paused = !controller.paused ) & ( model.players[ 0 ].explosionRadius == null && model.players[ 1 ].explosionRadius == null ) ? "Paused - SPACE to resume" : null );
-	}
-
-	/**
-	 * Handles the key released events.
-	 * @param ke details of the key event
-	 */
-	public void keyReleased( final KeyEvent ke ) {
-		// Keys which will result the actions of the players
-		final int[][] CONTROL_KEYS = new int[][] {
-				{ KeyEvent.VK_D      , KeyEvent.VK_G      , KeyEvent.VK_R      ,KeyEvent.VK_F      , KeyEvent.VK_S , KeyEvent.VK_X   , KeyEvent.VK_W    , KeyEvent.VK_2    },
-				{ KeyEvent.VK_NUMPAD4, KeyEvent.VK_NUMPAD6, KeyEvent.VK_NUMPAD8,KeyEvent.VK_NUMPAD5, KeyEvent.VK_UP, KeyEvent.VK_DOWN, KeyEvent.VK_RIGHT, KeyEvent.VK_LEFT }
-			};
-		
-		for ( int i = 0; i < CONTROL_KEYS.length; i++ )
-			for ( int j = 0; j < CONTROL_KEYS[ i ].length; j++ )
-				if ( ke.getKeyCode() == CONTROL_KEYS[ i ][ j ] )
-					keyStates[ i ][ j ] = false;
-	}
-	
-}
+package p;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GridLayout;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JSeparator;
+
+import static p.Model.LAND_SIZE;
+import static p.Model.LAND_MIN;
+import static p.Model.LAND_MAX;
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+
+/**
+ * The view layer in the MVC architectrue.<br>
+ * The view consists of:
+ * <ul>
+ *     <li>2 game scene parts, which is a view of the players and their environment including the land,
+ *     <li>2 player status parts where we can see heights, our shield, and our weapon reloading status,
+ *     <li>one minimap of the whole land.
+ * </ul>
+ * The scenes and the status parts are the ones of players 1 and 2 (the human players), the other players (bots)
+ * are seen in the scenes and on the minimap. The aircrafts are colored by their teams.
+ * 
+ * The view paints from the {@link RenderSnapshot}s published by the simulation, it does not read the model
+ * which is modified meanwhile (the simulation and the painting may run at the same time on different cores).
+ * It is painted either on the EDT (repaint()), or actively by an {@link ActiveRenderer}, but always by the same thread.
+ * 
+ * @author Andras Belicza
+ */
+class View extends JComponent implements KeyListener, LandMarkListener {
+
+	/** Number of the scene parts (players 1 and 2 have one).                        */
+	private static final int       SCENES_COUNT    = 2;
+	/** Size of the game scene of each scene parts of the players.                   */
+	private static final int       SCENE_SIZE      = 500;
+	/** Size of the minimap.                                                         */
+	private static final int       MINIMAP_SIZE    = 150;
+	/** Width of the separator of the parts of the view (the distance between them). */
+	private static final int       SEPARATOR_WIDTH = 4;
+	/** The dimension of the view of the game.                                       */
+	private static final Dimension VIEW_DIMENSION  = new Dimension( SCENE_SIZE * 2 + 2 * SEPARATOR_WIDTH, SCENE_SIZE + 2 * SEPARATOR_WIDTH + MINIMAP_SIZE );
+	/** Kind of the players in the draw keys.                                        */
+	private static final int       KIND_PLAYER     = 0;
+	/** Kind of the shots in the draw keys.                                          */
+	private static final int       KIND_SHOT       = 1;
+	/** Kind of the explosions in the draw keys.                                     */
+	private static final int       KIND_EXPLOSION  = 2;
+	/** Format of a line of the performance statistics overlay.                      */
+	private static final String    STATS_FORMAT    = "%-16s %8d %8d %8d";
+	
+	/** Lookup table of the colors of the heights (RGB). Entry i is the color of the height
+	 *  LAND_MIN + i + 0.5 (of the middle of the unit), up to the highest height of the moving objects. */
+	private static final int[]     HEIGHT_RGBS     = new int[ (int) ( MovingObject.BOUNDARIES[ 2 ] - LAND_MIN ) + 1 ];
+	static {
+		for ( int i = 0; i < HEIGHT_RGBS.length; i++ )
+			HEIGHT_RGBS[ i ] = getRGBOfHeight( Math.min( LAND_MIN + i + 0.5f, MovingObject.BOUNDARIES[ 2 ] ) );
+	}
+	
+
+
+	
+	
+	/** Reference to the model.                                                      */
+	private final Model           model;
+	/** Reference to the controller.                                                 */
+	private final Controller      controller;
+	/** Landscape: the relief map of the land.                                       */
+	private final Landscape       landscape = new Landscape( LAND_SIZE );
+	/** A mini map of the whole landscape.                                           */
+	private final BufferedImage   miniMap   = new BufferedImage( MINIMAP_SIZE, MINIMAP_SIZE, TYPE_INT_RGB );
+	/** Number of landscapes created so far (the scene terrains made from an older landscape are outdated). */
+	private volatile int          landscapeGeneration;
+	/** Random generator of the spots of the marks, seeded by the seed of the game (a replayed game leaves the same marks). */
+	private       SplittableRandom markRandom = new SplittableRandom();
+	/** Marks registered by the simulation, waiting to be drawn onto the landscape (see {@link #registerObjectMark(int, int, float)}). */
+	private final ConcurrentLinkedQueue< Mark > marks       = new ConcurrentLinkedQueue< Mark >();
+	/** Areas of the landscape modified by marks in the current frame (reused).     */
+	private final List< Rectangle >             markedAreas = new ArrayList< Rectangle >();
+	
+	/** Terrain of the scenes: the part of the landscape under the scenes, kept from frame to frame
+	 *  (in video memory if we can, see {@link #updateSceneTerrain(int, int, int, Rectangle[])}). */
+	private final Image[]         sceneTerrains            = new Image[ SCENES_COUNT ];
+	/** Positions of the terrains of the scenes on the landscape (x coordinates).    */
+	private final int[]           sceneTerrainXs           = new int[ SCENES_COUNT ];
+	/** Positions of the terrains of the scenes on the landscape (y coordinates).    */
+	private final int[]           sceneTerrainYs           = new int[ SCENES_COUNT ];
+	/** Landscape generations the terrains of the scenes were made from (-1: none).  */
+	private final int[]           sceneTerrainGenerations  = new int[] { -1, -1 };
+	
+	/** During the rendering we use this to store the affine transform of the graphics context. */
+	private       AffineTransform storedTransform;
+	/** The draw list: the moving objects of the frame in height order (shared by the scenes, reused, grows if needed).
+	 *  An entry is the kind of the object (KIND_XXX) in the upper 2 bits and its index among the ones of its kind. */
+	private       int[]           drawList    = new int[ 64 ];
+	/** The entries of the draw list in collecting order (before sorting).            */
+	private       int[]           drawEntries = new int[ 64 ];
+	/** Height buckets (integer heights) of the entries of the draw list in collecting order. */
+	private       int[]           drawBuckets = new int[ 64 ];
+	/** Number of entries in the height buckets, then the start positions of the buckets in the draw list. */
+	private final int[]           bucketStarts = new int[ MovingObject.BOUNDARIES[ 2 ] + 2 ];
+	
+
+	/** Tells whether the performance statistics overlay is shown (toggled by F3).  */
+	private volatile boolean      showStats;
+	/** Tells whether the game is over in the last painted snapshot (the key handler may run on another thread than the painting). */
+	private volatile boolean      gameOver;
+
+	/** States of the control keys of players 1 and 2 (public: used by the controller). */
+	public final  boolean[][]     keyStates = new boolean[ SCENES_COUNT ][ 8 ];
+	
+	
+	/**
+	 * Creates a new View.
+	 * @param model      reference to the model
+	 * @param controller reference to the controller
+	 */
+	public View( final Model model, final Controller controller ) {
+		this.model      = model;
+		this.controller = controller;
+		
+		setPreferredSize( VIEW_DIMENSION );
+		addKeyListener  ( this           );
+	}
+	
+	/**
+	 * Does all neccessary things for starting a new game.<br>
+	 * The landscape of a known land is loaded from the {@link LandCache}, a new one is saved into it.<br>
+	 * The painting thread may be drawing marks meanwhile: the marks of the previous land are dropped before
+	 * the landscape is recoloured, and drawing the marks is locked out during the recolouring
+	 * (see {@link #drawMarks(List)}), so no mark of the previous land gets onto the new landscape (or into the cache).
+	 */
+	public void newGame() {
+		synchronized ( landscape ) {
+			// The marks of the previous land are outdated
+			landscapeGeneration++;
+			marks.clear();
+			markRandom = new SplittableRandom( model.seed );
+			
+			// Land has been changed, we have to redraw landscape
+			if ( !LandCache.loadLandscape( model.seed, landscape ) ) {
+				// We color the tiles in parallel, looking up the colors in the table
+				final HeightMap land = model.land;
+				landscape.colour( ( x, y ) -> HEIGHT_RGBS[ getHeightColorIndex( land.get( x, y ) ) ] );
+				LandCache.saveLandscape( model.seed, landscape );
+			}
+		}
+
+		// Now we can draw the minimap
+		final Graphics2D g2 = miniMap.createGraphics();
+		landscape.drawScaled( g2, MINIMAP_SIZE );
+		g2.dispose();
+		
+		// The terrains of the scenes are outdated (also the ones made during the recolouring)
+		landscapeGeneration++;
+	}
+	
+	/**
+	 * Returns the index of the specified height in the color lookup table (HEIGHT_RGBS).
+	 * @param height height whose color is needed
+	 * @return the index of the specified height in the color lookup tables
+	 */
+	private static int getHeightColorIndex( final float height ) {
+		return Math.max( 0, Math.min( (int) ( height - LAND_MIN ), HEIGHT_RGBS.length - 1 ) );
+	}
+	
+	/**
+	 * Calculates and returns the RGB components of the color of the specified height on the landscape.<br>
+	 * The returned int value contains the rgb values in the right order. Blue is at the least significant bits.
+	 * All of the rgb components are 8 bit precision.<br>
+	 * This is slow, it is only used to fill the color lookup tables.
+	 * @param height height whose color needed to be calculated
+	 * @return the RGB values of the specified height on the landscape
+	 */
+	private static int getRGBOfHeight( final float height ) {
+		// Values of heights where the relief map changes colors at.
+		final float[]   HEIGHT_STONES   = new float[] { LAND_MIN                , 0.0f                    , 0.0f                   , 600.0f                    , 900.0f                    , 1300.0f                  , 1600.0f                   , LAND_MAX               , MovingObject.BOUNDARIES[ 2 ] };
+		// Values of colors at the height stones to be used for landscape
+		final Color[]   STONE_COLORS    = new Color[] { new Color( 39, 23, 112 ), new Color( 0, 146, 221 ), new Color( 0, 146, 63 ), new Color( 126, 195, 128 ), new Color( 184, 218, 141 ), new Color( 255, 252, 212 ), new Color( 187, 129, 92 ), new Color( 90, 58, 37 ), Color.BLACK                  };
+
+		// We locate the height between 2 heights whose interpolatable colors will determine the searched RGB
+		int i;
+		for ( i = 1; height > HEIGHT_STONES[ i ]; i++ )
+			;
+		
+		return interpolateColors( STONE_COLORS[ i - 1 ], STONE_COLORS[ i ], ( height - HEIGHT_STONES[ i - 1 ] ) / ( HEIGHT_STONES[ i ] - HEIGHT_STONES[ i - 1 ] ) );
+	}
+	
+	/**
+	 * Linear-interpolates colors. Calculates a 3rd color at a specified position between 2 boundary colors.<br>
+	 * The position is specified by a ratio, whose value means:
+	 * 0 => value1, 1 => value2, 0 < ratio < 1  => somewhere between value1 and value2.<br>
+	 * In case of colors, interpolation means interpolation of red, green and blue components of colors.
+	 * 
+	 * @param value1 first value of interpolation
+	 * @param value2 last value of interpolation
+	 * @param ratio  where between value1 and value2 we need the interpolation
+	 * @return the RGB value of the linear interpolation of value1 and value2 at a position between them specified by ratio
+	 */
+	private static int interpolateColors( final Color value1, final Color value2, final double ratio ) {
+		final int a = value1.getAlpha() + (int) ( ( value2.getAlpha() - value1.getAlpha() ) * ratio );
+		final int r = value1.getRed  () + (int) ( ( value2.getRed  () - value1.getRed  () ) * ratio );
+		final int g = value1.getGreen() + (int) ( ( value2.getGreen() - value1.getGreen() ) * ratio );
+		final int b = value1.getBlue () + (int) ( ( value2.getBlue () - value1.getBlue () ) * ratio );
+		
+		return ( a << 24 ) + ( r << 16 ) + ( g << 8 ) + b;
+	}
+	
+	/**
+	 * Registers a mark of a moving object.<br>
+	 * Mark of a moving object can be like a bullet hitting the land, a rocket exploding into the land
+	 * or a player crashing into the land.<br>
+	 * Registering means displaying it somehow on the scene.<br>
+	 * This is called by the simulation thread, so we only generate the spots of the mark here, and queue it.
+	 * The painting draws the queued marks to the landscape (so only the painting thread draws onto the landscape,
+	 * and it's locked out while {@link #newGame()} recolours it): only to the tiles the mark touches (the landscape is big, n*10MB, drawing into the whole of it would be slow
+	 * and would make the game lag).
+	 *
+	 * @param px              x coordinate of the mark
+	 * @param py              y coordinate of the mark
+	 * @param explosionRadius radius of the explosion which left the mark, or 0 if the mark was left by a bullet
+	 */
+	public void registerObjectMark( final int px, final int py, final float explosionRadius ) {
+		final int BULLET_MARK_RADIUS = 2;
+		final int SUBIMAGE_RADIUS    = explosionRadius == 0.0f ? BULLET_MARK_RADIUS : (int) explosionRadius;
+		
+		final int LEFT_X  = Math.min( px, SUBIMAGE_RADIUS );
+		final int UPPER_Y = Math.min( py, SUBIMAGE_RADIUS );
+		final int RIGHT_X = Math.min( LAND_SIZE - 1 - px, SUBIMAGE_RADIUS );
+		final int LOWER_Y = Math.min( LAND_SIZE - 1 - py, SUBIMAGE_RADIUS );
+		
+		// The area only big enough to hold the mark of the object
+		final Rectangle area = new Rectangle( px - LEFT_X, py - UPPER_Y, LEFT_X + RIGHT_X + 1, UPPER_Y + LOWER_Y + 1 );
+		
+		// Centers of the spots of the mark
+		final int[] xs = new int[ explosionRadius == 0.0f ? 1 : SUBIMAGE_RADIUS * 10 ];
+		final int[] ys = new int[ xs.length ];
+		int spotsCount = 0;
+		if ( explosionRadius == 0.0f ) {// Bullet has a single filled oval mark
+			if ( model.land.get( px, py ) > 0.0f ) {             // Marks cannot be in the water
+				xs[ spotsCount   ] = px;
+				ys[ spotsCount++ ] = py;
+			}
+		}
+		else
+			for ( int i = SUBIMAGE_RADIUS * 10; i > 0; i-- ) {
+				final double radius = markRandom.nextDouble() * ( SUBIMAGE_RADIUS - 2 );
+				final double alpha  = markRandom.nextDouble() * 6.28;   // 2*PI, a full circle
+				final int    dx     = (int) ( radius*StrictMath.cos( alpha ) );
+				final int    dy     = (int) ( radius*StrictMath.sin( alpha ) );
+				// If we're near the edge of land, the point can be outside of the land (the heights are in one array, we have to check it)
+				if ( px + dx >= 0 && px + dx < LAND_SIZE && py + dy >= 0 && py + dy < LAND_SIZE
+						&& model.land.get( px + dx, py + dy ) > 0.0f ) { // Marks cannot be in the water
+					xs[ spotsCount   ] = px + dx;
+					ys[ spotsCount++ ] = py + dy;
+				}
+			}
+		if ( spotsCount == 0 )
+			return;
+		
+		marks.add( new Mark( landscapeGeneration, area, xs, ys, spotsCount, explosionRadius == 0.0f ? BULLET_MARK_RADIUS : 2 ) );
+	}
+	
+	/**
+	 * Draws the queued marks onto the landscape.<br>
+	 * Marks of a previous landscape are dropped. It waits if the landscape is being recoloured by {@link #newGame()}.
+	 * @param markedAreas list to add the areas of the drawn marks to
+	 */
+	private void drawMarks( final List< Rectangle > markedAreas ) {
+		synchronized ( landscape ) {
+			final int generation = landscapeGeneration;
+			for ( Mark mark; ( mark = marks.poll() ) != null; ) {
+				if ( mark.generation != generation )
+					continue;
+				final Mark mark_ = mark;
+				landscape.drawOnto( mark.area, g2 -> {
+					g2.setColor( new Color( 0, 0, 0, 70 ) );
+					for ( int i = 0; i < mark_.spotsCount; i++ )
+						g2.fillOval( mark_.xs[ i ] - mark_.spotRadius, mark_.ys[ i ] - mark_.spotRadius, mark_.spotRadius*2, mark_.spotRadius*2 );
+				} );
+				// The terrains of the scenes showing this area must be updated
+				markedAreas.add( mark.area );
+			}
+		}
+	}
+	
+	/**
+	 * Paints the actual look of the component, paints the view of the game.<br>
+	 * 
+	 * I would have used paintComponent(), but paint() is shorter, less space.
+	 * I draw only to the Graphics2D object, doesn't matter...
+	 * I'm sorry for being space centric... (but that's one of the competition's aspect)
+	 * 
+	 * First draws the scenes, then the status windows, the minimap and lastly the potential messages.
+	 * 
+	 * @param g the graphics context in which to paint
+	 */
+	public void paint( final Graphics g ) {
+		final long start = System.nanoTime();
+		// Colors of the teams
+		final Color[] TEAM_COLORS   = new Color[] { Color.ORANGE, Color.MAGENTA, Color.CYAN, Color.GREEN, Color.PINK, Color.WHITE, Color.YELLOW, Color.LIGHT_GRAY };
+		// Width of the status window. Note: the height is determined by MINIMAP_SIZE!
+		final int     STATUS_WIDTH  = ( 2*SCENE_SIZE - SEPARATOR_WIDTH - MINIMAP_SIZE ) /2;
+
+		
+		final Graphics2D g2 = (Graphics2D) g;
+		g2.setBackground( Color.BLACK );
+		g2.setRenderingHint( RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON );
+	
+		
+		// My apoligies for the millionth times now. This would have deserved several other methods, but space again...
+		
+		// The state of the game to be painted, the model is being modified meanwhile
+		final RenderSnapshot snapshot = model.snapshots.acquire();
+		gameOver = snapshot.isGameOver();
+		// Number of the scenes and status windows (players 1 and 2 have one)
+		final int scenesCount = Math.min( SCENES_COUNT, snapshot.playersCount );
+		
+		// We draw the marks registered since the last frame
+		long time = System.nanoTime();
+		markedAreas.clear();
+		drawMarks( markedAreas );
+		final Rectangle[] markedAreas_ = markedAreas.toArray( new Rectangle[ markedAreas.size() ] );
+		
+		// The moving objects in the right height order, the same for all scenes
+		final int drawCount = buildDrawList( snapshot );
+		
+		// We draw the scenes
+		for ( int i = 0; i < scenesCount; i++ ) { // There is one for each human player.
+			prepareContextForDrawing( g2, i == 0 ? SEPARATOR_WIDTH/2 : SCENE_SIZE + SEPARATOR_WIDTH*3/2, SEPARATOR_WIDTH/2, SCENE_SIZE, SCENE_SIZE );
+			
+			// We draw the land below and around the player.
+			// We position so the player will be in the center of the scene except if player reached the edges of the land
+			// Note: this algorithm assumes that LAND_SIZE>SCENE_SIZE.
+			final int landPosX = Math.max( 0, Math.min( LAND_SIZE - SCENE_SIZE, snapshot.playerXs[ i ] - SCENE_SIZE/2 ) );
+			final int landPosY = Math.max( 0, Math.min( LAND_SIZE - SCENE_SIZE, snapshot.playerYs[ i ] - SCENE_SIZE/2 ) );
+			g2.drawImage( updateSceneTerrain( i, landPosX, landPosY, markedAreas_ ), 0, 0, null );
+			
+			// Now we draw the moving objects in the right height order.
+			// It's kinda like z-buffer.
+			for ( int k = 0; k < drawCount; k++ ) {
+				final int kind  = drawList[ k ] >>> 30;
+				final int index = drawList[ k ] & 0x3fffffff;
+				// We could check and display moving object only if it's visible,
+				// but that would cost lots of bytes giving the same result :) (we have clipping window)
+				if ( kind == KIND_SHOT ) {
+					g2.setColor( Color.BLACK );
+					if ( snapshot.shotTypes[ index ] == ShotPool.BULLET ) // It's a simple bullet
+						g2.fillOval( (int) snapshot.shotXs[ index ] - landPosX - 2, (int) snapshot.shotYs[ index ] - landPosY - 2, 4, 4 );
+					else { // It's a rocket, we have to fill its shape
+						final AffineTransform at = g2.getTransform();
+						g2.translate( (int) snapshot.shotXs[ index ] - landPosX, (int) snapshot.shotYs[ index ] - landPosY );
+						// The shape is real size at maximum height and is 40% at 0 height.
+						final double scaleFactor = ShapeTemplate.getScale( (int) snapshot.shotZs[ index ] );
+						g2.scale( scaleFactor, scaleFactor );
+						g2.rotate( Math.atan2( snapshot.shotVys[ index ], snapshot.shotVxs[ index ] ) );
+						ShapeTemplate.ROCKET.fill( g2 );
+						g2.setTransform( at );
+					}
+					continue;
+				}
+				
+				final AffineTransform at = g2.getTransform();
+				if ( kind == KIND_PLAYER ) {
+					if ( snapshot.playerExplodeds[ index ] ) // Its explosion is drawn instead
+						continue;
+					g2.translate( snapshot.playerXs[ index ] - landPosX, snapshot.playerYs[ index ] - landPosY );
+					g2.setColor( TEAM_COLORS[ snapshot.playerTeams[ index ] % TEAM_COLORS.length ] );
+
+					// The shape is real size at maximum height and is 40% at 0 height.
+					final double scaleFactor = ShapeTemplate.getScale( snapshot.playerHeights[ index ] );
+					g2.scale( scaleFactor, scaleFactor );
+					g2.rotate( snapshot.playerDirections[ index ] );
+					snapshot.playerShapes[ index ].fill( g2 ); // At last after a lots of preparation
+				}
+				else { // It's an explosion
+					final float explosionRadius = snapshot.explosionRadiuses[ index ];
+					g2.translate( (int) snapshot.explosionXs[ index ] - landPosX, (int) snapshot.explosionYs[ index ] - landPosY );
+					for ( int radius = (int) explosionRadius; radius > 0; radius -= 5 ) {
+						g2.setColor( new Color( interpolateColors( new Color( 227, 225, 195, 200 ), new Color( 224, 197, 41, 130 ), radius / explosionRadius ), true ) );
+						g2.fillOval( -radius, -radius, radius*2, radius*2 );
+					}
+				}
+				
+				g2.setTransform( at );
+			}
+
+
+			// We draw the colored height indicator
+			g2.setColor( Color.BLACK );
+			g2.fillRect( SCENE_SIZE - 62, 18, 34, 34 );
+			g2.setColor( Color.WHITE );
+			g2.fillRect( SCENE_SIZE - 61, 19, 32, 32 );
+			g2.setColor( new Color( HEIGHT_RGBS[ getHeightColorIndex( snapshot.playerHeights[ i ] ) ] ) );
+			g2.fillRect( SCENE_SIZE - 60, 20, 30, 30 );
+				
+			// Now we draw the possible scene-messages
+			g2.setFont( new Font( null, Font.BOLD, 13 ) );
+			final FontMetrics fontMetrics     = g2.getFontMetrics();
+			final String      CRITICAL_HEIGHT = "Critical height!";
+			g2.setColor( Color.RED );
+			if ( snapshot.playerHeights[ i ] - snapshot.playerLandHeights[ i ] < 500.0f )
+				g2.drawString( CRITICAL_HEIGHT, SCENE_SIZE/2 - fontMetrics.stringWidth( CRITICAL_HEIGHT )/2, 50 );
+			
+			restoreContext( g2 );
+		}
+		time = Stats.FRAME_SCENES.record( time );
+		
+		
+		
+		// We draw the status windows, the status infos of the players.
+		g2.setFont( new Font( null, Font.PLAIN, 12 ) );
+		for ( int i = 0; i < scenesCount; i++ ) {
+			prepareContextForDrawing( g2, i == 0 ? SEPARATOR_WIDTH/2 : STATUS_WIDTH + SEPARATOR_WIDTH*5/2 + MINIMAP_SIZE, SCENE_SIZE + SEPARATOR_WIDTH*3/2, STATUS_WIDTH, MINIMAP_SIZE );
+			
+			g2.clearRect( 0, 0, STATUS_WIDTH, MINIMAP_SIZE );
+			
+			g2.setColor( Color.WHITE );
+			g2.drawString( "Your height / land height: " + snapshot.playerHeights[ i ] + " / " + (int) snapshot.playerLandHeights[ i ] , 5, 20 );
+
+			g2.setColor( Color.WHITE );
+			g2.drawString( "Shield:", 5, 50 );
+			g2.setColor( Color.BLUE );
+			g2.fillRect( 0, 50 + 1, (int) ( snapshot.playerShields[ i ] * STATUS_WIDTH ) , 12 );
+			
+			final float[] reloadings = snapshot.playerReloadings[ i ];
+			for ( int j = 0; j < reloadings.length; j++ ) {
+				g2.setColor( Color.WHITE );
+				g2.drawString( "Weapon " + (j+1) + ":", 5, 85 + j * 25 );
+				g2.setColor( Color.CYAN );
+				g2.fillRect( 0, 85 + j * 25 + 1, (int) ( reloadings[ j ] * STATUS_WIDTH ) , 12 );
+			}
+
+			restoreContext( g2 );
+		}
+		time = Stats.FRAME_STATUS.record( time );
+
+		
+		
+		// We draw the mini map
+		prepareContextForDrawing( g2, STATUS_WIDTH + SEPARATOR_WIDTH*3/2, SCENE_SIZE + SEPARATOR_WIDTH*3/2, MINIMAP_SIZE, MINIMAP_SIZE );
+		g2.drawImage( miniMap, 0, 0, null );
+		for ( int i = 0; i < snapshot.playersCount; i++ ) {
+			g2.setColor( TEAM_COLORS[ snapshot.playerTeams[ i ] % TEAM_COLORS.length ] );
+			g2.fillOval( snapshot.playerXs[ i ] * MINIMAP_SIZE/LAND_SIZE - 3, snapshot.playerYs[ i ] * MINIMAP_SIZE/LAND_SIZE - 3, 6, 6 );
+		}
+		restoreContext( g2 );
+
+
+		
+		// We draw possible window-messages
+		if ( snapshot.isGameOver() ) {
+			g2.setFont( new Font( null, Font.ITALIC | Font.BOLD, 38 ) );
+			final FontMetrics fontMetrics = g2.getFontMetrics();
+			String gameOverMessage = "Game Over, ";
+			final int winnerTeam = snapshot.getWinnerTeam();
+			int winner = -1, teamSize = 0;
+			for ( int i = 0; i < snapshot.playersCount; i++ )
+				if ( snapshot.playerTeams[ i ] == winnerTeam ) {
+					winner = i;
+					teamSize++;
+				}
+			if ( winnerTeam < 0 )
+				gameOverMessage += "there is no winner!";
+			else if ( teamSize == 1 )
+				gameOverMessage += "Player " + ( winner + 1 ) + " wins!";
+			else
+				gameOverMessage += "Team " + ( winnerTeam + 1 ) + " wins!";
+			for ( int i = 0; i < 2; i++ ) {
+				g2.setColor( i == 0 ? new Color( 0, 0, 0, 150 ) : Color.YELLOW );
+				g2.drawString( gameOverMessage, SCENE_SIZE + SEPARATOR_WIDTH/2 - fontMetrics.stringWidth( gameOverMessage )/2 - i*4 , SCENE_SIZE/2 + SEPARATOR_WIDTH - i*2 );
+			}
+		}
+		Stats.FRAME_MINIMAP.record( time );
+		
+		// We draw the performance statistics if they are asked for
+		if ( showStats )
+			paintStats( g2 );
+		
+		Stats.FRAME.record( start );
+	}
+	
+	/**
+	 * Paints the performance statistics overlay: the average, the 99th percentile and the maximum durations
+	 * of the timers of the {@link Stats} in microseconds.
+	 * @param g2 the graphics context in which to paint
+	 */
+	private void paintStats( final Graphics2D g2 ) {
+		g2.setFont( new Font( Font.MONOSPACED, Font.PLAIN, 12 ) );
+		final FontMetrics fontMetrics = g2.getFontMetrics();
+		final int         lineHeight  = fontMetrics.getHeight();
+		
+		g2.setColor( new Color( 0, 0, 0, 170 ) );
+		g2.fillRect( SEPARATOR_WIDTH, SEPARATOR_WIDTH, fontMetrics.stringWidth( String.format( STATS_FORMAT, "", 0L, 0L, 0L ) ) + 10, ( Stats.TIMERS.length + 1 ) * lineHeight + 10 );
+		
+		g2.setColor( Color.WHITE );
+		int y = SEPARATOR_WIDTH + 5 + fontMetrics.getAscent();
+		g2.drawString( String.format( "%-16s %8s %8s %8s", "Phase (\u00b5s)", "mean", "p99", "max" ), SEPARATOR_WIDTH + 5, y );
+		for ( final PhaseTimer timer : Stats.TIMERS )
+			g2.drawString( String.format( STATS_FORMAT, timer.name, timer.getMeanNanos() / 1000, timer.getPercentileNanos( 99 ) / 1000, timer.getMaxNanos() / 1000 ),
+					SEPARATOR_WIDTH + 5, y += lineHeight );
+	}
+
+	
+	/**
+	 * Updates the terrain of a scene to show the landscape from the specified position, and returns it.<br>
+	 * The terrain of the previous frame is scrolled by the movement of the scene, and only the newly exposed strips
+	 * and the marked areas are copied from the landscape. The whole terrain is copied only if it's new,
+	 * if the landscape has been changed or if the scene has moved more than its size.<br>
+	 * If the view is displayed, the terrain is a volatile image (in video memory, where scrolling and drawing it
+	 * to the screen are accelerated, and only the exposed strips have to be uploaded from the big landscape which
+	 * is not kept in video memory as a whole); if it's not (for example when painting offscreen), the terrain is a buffered image.
+	 * The whole terrain is redrawn if the content of the volatile image is lost.
+	 * @param i           index of the scene
+	 * @param landPosX    x coordinate of the position of the scene on the landscape
+	 * @param landPosY    y coordinate of the position of the scene on the landscape
+	 * @param markedAreas areas of the landscape modified by marks since the last frame
+	 * @return the terrain of the scene
+	 */
+	private Image updateSceneTerrain( final int i, final int landPosX, final int landPosY, final Rectangle[] markedAreas ) {
+		final int dx = sceneTerrainXs[ i ] - landPosX;
+		final int dy = sceneTerrainYs[ i ] - landPosY;
+		final int generation = landscapeGeneration;
+		boolean   redraw     = sceneTerrainGenerations[ i ] != generation || Math.abs( dx ) >= SCENE_SIZE || Math.abs( dy ) >= SCENE_SIZE;
+		
+		final GraphicsConfiguration gc = getGraphicsConfiguration();
+		if ( gc == null ) {
+			if ( !( sceneTerrains[ i ] instanceof BufferedImage ) ) {
+				sceneTerrains[ i ] = new BufferedImage( SCENE_SIZE, SCENE_SIZE, TYPE_INT_RGB );
+				redraw = true;
+			}
+		}
+		else {
+			final int status = sceneTerrains[ i ] instanceof VolatileImage ? ( (VolatileImage) sceneTerrains[ i ] ).validate( gc ) : VolatileImage.IMAGE_INCOMPATIBLE;
+			if ( status == VolatileImage.IMAGE_INCOMPATIBLE ) {
+				sceneTerrains[ i ] = gc.createCompatibleVolatileImage( SCENE_SIZE, SCENE_SIZE );
+				redraw = true;
+			}
+			else if ( status == VolatileImage.IMAGE_RESTORED )
+				redraw = true;
+		}
+		
+		final Graphics2D g2 = (Graphics2D) sceneTerrains[ i ].getGraphics();
+		if ( redraw ) {
+			drawLandscape( g2, landPosX, landPosY, 0, 0, SCENE_SIZE, SCENE_SIZE );
+			sceneTerrainGenerations[ i ] = generation;
+		}
+		else {
+			if ( dx != 0 || dy != 0 ) {
+				g2.copyArea( 0, 0, SCENE_SIZE, SCENE_SIZE, dx, dy );
+				// The exposed vertical strip (full height) and horizontal strip (full width)
+				if ( dx != 0 )
+					drawLandscape( g2, landPosX, landPosY, dx > 0 ? 0 : SCENE_SIZE + dx, 0, Math.abs( dx ), SCENE_SIZE );
+				if ( dy != 0 )
+					drawLandscape( g2, landPosX, landPosY, 0, dy > 0 ? 0 : SCENE_SIZE + dy, SCENE_SIZE, Math.abs( dy ) );
+			}
+			
+			final Rectangle scene = new Rectangle( landPosX, landPosY, SCENE_SIZE, SCENE_SIZE );
+			for ( final Rectangle markedArea : markedAreas ) {
+				final Rectangle area = scene.intersection( markedArea );
+				if ( !area.isEmpty() )
+					drawLandscape( g2, landPosX, landPosY, area.x - landPosX, area.y - landPosY, area.width, area.height );
+			}
+		}
+		
+		g2.dispose();
+		sceneTerrainXs[ i ] = landPosX;
+		sceneTerrainYs[ i ] = landPosY;
+		if ( sceneTerrains[ i ] instanceof VolatileImage && ( (VolatileImage) sceneTerrains[ i ] ).contentsLost() )
+			sceneTerrainGenerations[ i ] = -1; // We will redraw it in the next frame
+		return sceneTerrains[ i ];
+	}
+
+	/**
+	 * Draws an area of the landscape into the terrain of a scene.
+	 * @param g2       graphics context of the terrain of the scene
+	 * @param landPosX x coordinate of the position of the scene on the landscape
+	 * @param landPosY y coordinate of the position of the scene on the landscape
+	 * @param x        x coordinate of the area in the scene
+	 * @param y        y coordinate of the area in the scene
+	 * @param width    width of the area
+	 * @param height   height of the area
+	 */
+	private void drawLandscape( final Graphics2D g2, final int landPosX, final int landPosY, final int x, final int y, final int width, final int height ) {
+		landscape.draw( g2, landPosX + x, landPosY + y, x, y, width, height );
+	}
+
+	/**
+	 * Builds the draw list: the moving objects (players, shots and explosions) in height order.<br>
+	 * The heights are bounded integers (in int precision), so we sort with counting sort: we count the objects
+	 * of each height, calculate the start positions of the heights, and place the objects. It's linear in the number
+	 * of objects and it does not allocate (except if the arrays have to grow). Objects of the same height
+	 * remain in collecting order, their order is unimportant anyway.
+	 * @param snapshot the snapshot of the game state to be painted
+	 * @return the number of entries in the draw list
+	 */
+	private int buildDrawList( final RenderSnapshot snapshot ) {
+		final int count = snapshot.playersCount + snapshot.shotsCount + snapshot.explosionsCount;
+		if ( drawList.length < count ) {
+			drawList    = new int[ Math.max( count, drawList.length * 2 ) ];
+			drawEntries = new int[ drawList.length ];
+			drawBuckets = new int[ drawList.length ];
+		}
+		
+		int k = 0;
+		for ( int i = 0; i < snapshot.playersCount; i++, k++ ) {
+			drawEntries[ k ] = KIND_PLAYER << 30 | i;
+			drawBuckets[ k ] = snapshot.playerHeights[ i ];
+		}
+		for ( int i = 0; i < snapshot.shotsCount; i++, k++ ) {
+			drawEntries[ k ] = KIND_SHOT << 30 | i;
+			drawBuckets[ k ] = (int) snapshot.shotZs[ i ];
+		}
+		for ( int i = 0; i < snapshot.explosionsCount; i++, k++ ) {
+			drawEntries[ k ] = KIND_EXPLOSION << 30 | i;
+			drawBuckets[ k ] = (int) snapshot.explosionZs[ i ];
+		}
+		
+		// Counting sort by the height buckets
+		Arrays.fill( bucketStarts, 0 );
+		for ( int e = 0; e < k; e++ )
+			bucketStarts[ drawBuckets[ e ] = Math.max( 0, Math.min( MovingObject.BOUNDARIES[ 2 ], drawBuckets[ e ] ) ) ]++;
+		for ( int bucket = 0, start = 0; bucket < bucketStarts.length; bucket++ ) {
+			final int bucketCount = bucketStarts[ bucket ];
+			bucketStarts[ bucket ] = start;
+			start += bucketCount;
+		}
+		for ( int e = 0; e < k; e++ )
+			drawList[ bucketStarts[ drawBuckets[ e ] ]++ ] = drawEntries[ e ];
+		
+		return k;
+	}
+
+	/**
+	 * Prepares the specified graphics context for drawing in a window.
+	 * @param g2     reference to the graphics context to be prepared
+	 * @param x      x position of the window of drawing
+	 * @param y      y position of the window of drawing
+	 * @param width  width of the window of drawing
+	 * @param height width of the window of drawing
+	 */
+	private void prepareContextForDrawing( final Graphics2D g2, final int x, final int y, final int width, final int height ) {
+		storedTransform = g2.getTransform();
+		g2.setClip( x, y, width, height );
+		g2.translate( x, y );
+	}
+	
+	/**
+	 * Restores the specified graphics context before the state of calling prepareContextForDrawing(). 
+	 * @param g2 reference to the graphics context to be restored
+	 */
+	private void restoreContext( final Graphics2D g2 ) {
+		g2.setTransform( storedTransform                 );
+		g2.setClip     ( new Rectangle( VIEW_DIMENSION ) );
+	}
+
+	/**
+	 * Handles the key typed events.
+	 * @param ke details of the key event
+	 */
+	public void keyTyped( final KeyEvent ke ) {
+	}
+
+	/**
+	 * Handles the key pressed events.
+	 * @param ke details of the key event
+	 */
+	public void keyPressed( final KeyEvent ke ) {
+		// Keys which will result the actions of the players
+		final int[][] CONTROL_KEYS = new int[][] {
+				{ KeyEvent.VK_D      , KeyEvent.VK_G      , KeyEvent.VK_R      ,KeyEvent.VK_F      , KeyEvent.VK_S , KeyEvent.VK_X   , KeyEvent.VK_W    , KeyEvent.VK_2    },
+				{ KeyEvent.VK_NUMPAD4, KeyEvent.VK_NUMPAD6, KeyEvent.VK_NUMPAD8,KeyEvent.VK_NUMPAD5, KeyEvent.VK_UP, KeyEvent.VK_DOWN, KeyEvent.VK_RIGHT, KeyEvent.VK_LEFT }
+			};
+
+		for ( int i = 0; i < CONTROL_KEYS.length; i++ )
+			for ( int j = 0; j < CONTROL_KEYS[ i ].length; j++ )
+				if ( ke.getKeyCode() == CONTROL_KEYS[ i ][ j ] )
+					keyStates[ i ][ j ] = true;
+
+		if ( ke.getKeyCode() == KeyEvent.VK_F1 ) {
+			 // We show help informations about Landfight
+			final JPanel panel = new JPanel( new GridLayout( 5, 3, 5, 0 ) );
+
+			panel.add( new JLabel( "Action:", JLabel.CENTER ) );
+			panel.add( new JLabel( "Player1:", JLabel.CENTER ) );
+			panel.add( new JLabel( "Player2:", JLabel.CENTER ) );
+
+			panel.add( new JLabel( "Turn left / right", JLabel.CENTER ) );
+			panel.add( new JLabel( "D / G", JLabel.CENTER ) );
+			panel.add( new JLabel( "Numpad4 / Numpad6", JLabel.CENTER ) );
+
+			panel.add( new JLabel( "Accelerate forward / backward", JLabel.CENTER ) );
+			panel.add( new JLabel( "R / F", JLabel.CENTER ) );
+			panel.add( new JLabel( "Numpad8 / Numpad5", JLabel.CENTER ) );
+
+			panel.add( new JLabel( "Ascend / Descend", JLabel.CENTER ) );
+			panel.add( new JLabel( "S / X", JLabel.CENTER ) );
+			panel.add( new JLabel( "Up / Down", JLabel.CENTER ) );
+
+			panel.add( new JLabel( "Fire primary / secondary", JLabel.CENTER ) );
+			panel.add( new JLabel( "W / 2", JLabel.CENTER ) );
+			panel.add( new JLabel( "Right / Left", JLabel.CENTER ) );
+
+			JOptionPane.showMessageDialog( getParent(), new Object[] {
+					new JLabel( "Java Technology Turns 10:", JLabel.CENTER ),
+					new JLabel( "LandFight", JLabel.CENTER ),
+					new JSeparator(),
+					new JLabel( "Your simple goal is to eliminate your opponent.", JLabel.CENTER ),
+					new JSeparator(),
+					"Control keys:",
+					"F1 - this help",
+					"F3 - show / hide performance statistics",
+					"Space - pause / resume / new game",
+					new JSeparator(),
+					panel,
+					new JSeparator(),
+					new JLabel( "Created by Andr\u00e1s Belicza, Hungary 2005", JLabel.CENTER )
+				}, "Help", JOptionPane.INFORMATION_MESSAGE );
+			
+		}
+		else if ( ke.getKeyCode() == KeyEvent.VK_F3 )
+			showStats = !showStats;
+		else if ( ke.getKeyCode() == KeyEvent.VK_SPACE && controller.lockstep == null ) // A network game can't be paused
+			// If game is over, we don't modify the status text, because it will be right away ('Generating...'), we don't want it to blink. We use no short cut condition evaluation (controller.paused gets new value!). 
+			controller.statusLabel.setText( ( controller.paused = !controller.paused ) & !gameOver ? "Paused - SPACE to resume" : null );
+	}
+
+	/**
+	 * Handles the key released events.
+	 * @param ke details of the key event
+	 */
+	public void keyReleased( final KeyEvent ke ) {
+		// Keys which will result the actions of the players
+		final int[][] CONTROL_KEYS = new int[][] {
+				{ KeyEvent.VK_D      , KeyEvent.VK_G      , KeyEvent.VK_R      ,KeyEvent.VK_F      , KeyEvent.VK_S , KeyEvent.VK_X   , KeyEvent.VK_W    , KeyEvent.VK_2    },
+				{ KeyEvent.VK_NUMPAD4, KeyEvent.VK_NUMPAD6, KeyEvent.VK_NUMPAD8,KeyEvent.VK_NUMPAD5, KeyEvent.VK_UP, KeyEvent.VK_DOWN, KeyEvent.VK_RIGHT, KeyEvent.VK_LEFT }
+			};
+		
+		for ( int i = 0; i < CONTROL_KEYS.length; i++ )
+			for ( int j = 0; j < CONTROL_KEYS[ i ].length; j++ )
+				if ( ke.getKeyCode() == CONTROL_KEYS[ i ][ j ] )
+					keyStates[ i ][ j ] = false;
+	}
+	
+	
+	/**
+	 * A mark left on the land, waiting to be drawn onto the landscape: the spots of the mark.
+	 */
+	private static final class Mark {
+		/** Landscape generation the mark was left on.                              */
+		final int       generation;
+		/** Area of the landscape covering the mark.                                */
+		final Rectangle area;
+		/** X coordinates of the centers of the spots of the mark.                  */
+		final int[]     xs;
+		/** Y coordinates of the centers of the spots of the mark.                  */
+		final int[]     ys;
+		/** Number of the spots of the mark.                                         */
+		final int       spotsCount;
+		/** Radius of the spots of the mark.                                         */
+		final int       spotRadius;
+		
+		/**
+		 * Creates a new Mark.
+		 * @param generation landscape generation the mark was left on
+		 * @param area       area of the landscape covering the mark
+		 * @param xs         x coordinates of the centers of the spots of the mark
+		 * @param ys         y coordinates of the centers of the spots of the mark
+		 * @param spotsCount number of the spots of the mark
+		 * @param spotRadius radius of the spots of the mark
+		 */
+		Mark( final int generation, final Rectangle area, final int[] xs, final int[] ys, final int spotsCount, final int spotRadius ) {
+			this.generation = generation;
+			this.area       = area;
+			this.xs         = xs;
+			this.ys         = ys;
+			this.spotsCount = spotsCount;
+			this.spotRadius = spotRadius;
+		}
+	}
+	
+}